@@ -47,7 +47,10 @@ public final class ClassNames {
     public static final ClassName ARENA_CLOSE_ACTION = get(PKG_INTEROP, "ArenaCloseAction");
     public static final ClassName MEMORY_CLEANER = get(PKG_INTEROP, "MemoryCleaner");
     public static final ClassName INTEROP = get(PKG_INTEROP, "Interop");
+    public static final ClassName NATIVE_STRINGS = get(PKG_INTEROP, "NativeStrings");
     public static final ClassName PLATFORM = get(PKG_INTEROP, "Platform");
+    public static final ClassName SCRATCH_ARENA = get(PKG_INTEROP, "ScratchArena");
+    public static final ClassName SHARED_UPCALLS = get(PKG_INTEROP, "SharedUpcalls");
 
     public static final ClassName AUTO_CLOSEABLE = get(PKG_GIO, "AutoCloseable");
 
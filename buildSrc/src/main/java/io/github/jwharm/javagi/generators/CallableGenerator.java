@@ -46,14 +46,27 @@ public class CallableGenerator {
     }
 
     CodeBlock generateFunctionDescriptorDeclaration() {
+        return generateFunctionDescriptorDeclaration(false);
+    }
+
+    CodeBlock generateFunctionDescriptorDeclaration(boolean userData) {
         return CodeBlock.builder()
                 .add("$[$T _fdesc = ", FunctionDescriptor.class)
-                .add(generateFunctionDescriptor())
+                .add(generateFunctionDescriptor(userData))
                 .add(";\n$]")
                 .build();
     }
 
     CodeBlock generateFunctionDescriptor() {
+        return generateFunctionDescriptor(false);
+    }
+
+    /*
+     * When userData is true, a trailing user_data pointer is added. This is
+     * used for signal handlers, where GObject passes the user_data pointer
+     * after the signal parameters.
+     */
+    CodeBlock generateFunctionDescriptor(boolean userData) {
         List<String> valueLayouts = new ArrayList<>();
 
         var returnType = callable.returnValue().anyType();
@@ -78,6 +91,9 @@ public class CallableGenerator {
         if (callable.throws_())
             valueLayouts.add("ADDRESS");
 
+        if (userData)
+            valueLayouts.add("ADDRESS");
+
         if (valueLayouts.isEmpty()) {
             return CodeBlock.of("$T.ofVoid()", FunctionDescriptor.class);
         } else {
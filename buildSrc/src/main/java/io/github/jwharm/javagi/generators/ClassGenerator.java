@@ -28,6 +28,7 @@ import io.github.jwharm.javagi.util.GeneratedAnnotationBuilder;
 import javax.lang.model.element.Modifier;
 
 import java.lang.foreign.MemorySegment;
+import java.util.List;
 
 public class ClassGenerator extends RegisteredTypeGenerator {
 
@@ -81,10 +82,12 @@ public class ClassGenerator extends RegisteredTypeGenerator {
         else if (cls.isInstanceOf("GObject", "ParamSpec"))
             builder.addMethod(paramSpecGetTypeMethod());
 
-        MethodSpec memoryLayout = new MemoryLayoutGenerator()
-                .generateMemoryLayout(cls);
+        var layoutGenerator = new MemoryLayoutGenerator();
+        MethodSpec memoryLayout = layoutGenerator.generateMemoryLayout(cls);
         if (memoryLayout != null)
-            builder.addMethod(memoryLayout);
+            builder.addMethod(memoryLayout)
+                   .addType(layoutGenerator.generateMemoryLayoutHolder(
+                           cls, List.of()));
 
         builder.addMethod(parentAccessor());
         builder.addMethod(memoryAddressConstructor());
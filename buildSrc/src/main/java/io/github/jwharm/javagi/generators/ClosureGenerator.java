@@ -36,6 +36,7 @@ import java.lang.foreign.ValueLayout;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.List;
 
 import static io.github.jwharm.javagi.util.Conversions.*;
@@ -63,6 +64,10 @@ public class ClosureGenerator {
                 .addMethod(generateUpcallMethod(name, "upcall", "run"))
                 .addMethod(generateToCallbackMethod(name));
 
+        if (closure instanceof Signal)
+            builder.addMethod(generateSharedUpcallMethod(name))
+                   .addMethod(generateSharedCallbackMethod(name));
+
         if (closure.deprecated())
             builder.addAnnotation(Deprecated.class);
 
@@ -309,6 +314,74 @@ public class ClosureGenerator {
         upcall.addStatement("return $T.NULL", MemorySegment.class);
     }
 
+    /*
+     * Static upcall method for the shared upcall stub of a signal callback
+     * interface. It looks up the handler with the user_data pointer, and
+     * calls its upcall method.
+     */
+    private MethodSpec generateSharedUpcallMethod(String className) {
+        boolean returnsVoid = returnValue.anyType().isVoid();
+        MethodSpec.Builder upcall = MethodSpec.methodBuilder("sharedUpcall")
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .returns(returnsVoid
+                        ? TypeName.VOID
+                        : getCarrierTypeName(returnValue.anyType()));
+
+        List<String> args = new ArrayList<>();
+        Signal signal = (Signal) closure;
+        String sourceName = "source" + toCamelCase(signal.parent().name(), true);
+        upcall.addParameter(MemorySegment.class, sourceName);
+        args.add(sourceName);
+
+        if (closure.parameters() != null)
+            for (Parameter p : closure.parameters().parameters()) {
+                String paramName = toJavaIdentifier(p.name());
+                upcall.addParameter(getCarrierTypeName(p.anyType()), paramName);
+                args.add(paramName);
+            }
+
+        upcall.addParameter(MemorySegment.class, "_userData");
+
+        // An exception must not escape from the upcall stub: that would
+        // terminate the JVM. The handler can be missing when it was
+        // unregistered while the signal was emitted.
+        upcall.beginControlFlow("try")
+                .addStatement("$L(($L) $T.get(_userData)).upcall($L)",
+                        returnsVoid ? "" : "return ",
+                        className,
+                        ClassNames.SHARED_UPCALLS,
+                        String.join(", ", args))
+                .nextControlFlow("catch ($T _err)", Throwable.class)
+                .addStatement("$T.log($T.LOG_DOMAIN, $T.LEVEL_WARNING, $S, _err.toString(), $S)",
+                        ClassNames.GLIB,
+                        ClassNames.CONSTANTS,
+                        ClassNames.LOG_LEVEL_FLAGS,
+                        "%s in %s\n",
+                        className + ".upcall");
+        if (!returnsVoid)
+            returnNull(upcall);
+        return upcall.endControlFlow()
+                .build();
+    }
+
+    private MethodSpec generateSharedCallbackMethod(String className) {
+        return MethodSpec.methodBuilder("sharedCallback")
+                .addJavadoc("""
+                        Returns the native function pointer that is shared by all
+                        {@code $L} handlers. The handler is found with the
+                        {@code user_data} pointer, that must be registered with
+                        {@link $T#register}.
+                        
+                        @return the native function pointer
+                        """, className, ClassNames.SHARED_UPCALLS)
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .returns(MemorySegment.class)
+                .addCode(generator.generateFunctionDescriptorDeclaration(true))
+                .addStatement("return $T.stub($L.class, $T.lookup(), _fdesc)",
+                        ClassNames.SHARED_UPCALLS, className, MethodHandles.class)
+                .build();
+    }
+
     MethodSpec generateToCallbackMethod(String className) {
         return MethodSpec.methodBuilder("toCallback")
                 .addJavadoc("""
@@ -19,6 +19,8 @@
 
 package io.github.jwharm.javagi.generators;
 
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.MethodSpec;
 import io.github.jwharm.javagi.configuration.ClassNames;
 import io.github.jwharm.javagi.gir.*;
@@ -33,6 +35,9 @@ import java.lang.foreign.MemoryLayout;
 import java.lang.foreign.MemorySegment;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
 
 import static io.github.jwharm.javagi.util.Conversions.*;
 
@@ -44,11 +49,96 @@ public class FieldGenerator extends TypedValueGenerator {
 
     private final Field f;
     private final Callback cb;
+    private final ClassName holder;
+    private final boolean handleConstant;
+    private final boolean offsetConstant;
 
     public FieldGenerator(Field f) {
+        this(f, null);
+    }
+
+    /**
+     * Create a generator for the field accessor methods.
+     *
+     * @param f      the field
+     * @param holder the class that holds the memory layout of the struct. If
+     *               not null, the accessors use the static constants that
+     *               are generated with {@link #generateConstants()} in this
+     *               class, instead of resolving the field in the memory
+     *               layout on every call. Fields without a value layout (such
+     *               as fixed-size arrays) always resolve the field in the
+     *               memory layout.
+     */
+    public FieldGenerator(Field f, ClassName holder) {
         super(f);
         this.f = f;
         this.cb = f.callback();
+        this.holder = holder;
+        // Only fields with a value layout have a VarHandle, and only embedded
+        // structs have an offset. Other fields use the memory layout directly.
+        this.handleConstant = holder != null
+                && new MemoryLayoutGenerator().isValueLayout(f);
+        this.offsetConstant = holder != null && isEmbedded();
+    }
+
+    /**
+     * Generate static final constants with the VarHandle (for fields with a
+     * value layout) and the byte offset (for embedded structs) of the field.
+     * The constants are derived from the {@code LAYOUT} constant in the
+     * memory layout holder class, and must be added to that class.
+     *
+     * @return the field declarations
+     */
+    public List<FieldSpec> generateConstants() {
+        List<FieldSpec> specs = new ArrayList<>();
+        if (offsetConstant)
+            specs.add(FieldSpec.builder(long.class, "_" + getName() + "Offset",
+                            Modifier.STATIC, Modifier.FINAL)
+                    .initializer("LAYOUT.byteOffset($T.PathElement.groupElement($S))",
+                            MemoryLayout.class, f.name())
+                    .build());
+        if (handleConstant)
+            specs.add(FieldSpec.builder(VarHandle.class, "_" + getName() + "Handle",
+                            Modifier.STATIC, Modifier.FINAL)
+                    .initializer("LAYOUT.varHandle($T.PathElement.groupElement($S))",
+                            MemoryLayout.class, f.name())
+                    .build());
+        return specs;
+    }
+
+    // Whether the field is an embedded struct (not a pointer)
+    private boolean isEmbedded() {
+        return type != null && !type.isPointer()
+                && (target instanceof Class
+                    || target instanceof Interface
+                    || target instanceof Record);
+    }
+
+    // Reference to the VarHandle constant in the holder class
+    private String handleName() {
+        return holder.simpleName() + "._" + getName() + "Handle";
+    }
+
+    // Reference to the offset constant in the holder class
+    private String offsetName() {
+        return holder.simpleName() + "._" + getName() + "Offset";
+    }
+
+    // Statement that declares the _offset variable
+    private void declareOffset(MethodSpec.Builder spec) {
+        if (offsetConstant)
+            spec.addStatement("long _offset = $L", offsetName());
+        else
+            spec.addStatement("long _offset = getMemoryLayout().byteOffset($T.PathElement.groupElement($S))",
+                    MemoryLayout.class, f.name());
+    }
+
+    // Expression that returns the VarHandle, followed by ".set(handle(), 0"
+    private String setValue() {
+        return handleConstant
+                ? handleName() + ".set(handle(), 0L, "
+                : "getMemoryLayout().varHandle($memoryLayout:T.PathElement.groupElement($fieldName:S))$Z"
+                    + ".set(handle(), 0, ";
     }
 
     private String methodName(String prefix) {
@@ -84,23 +174,26 @@ public class FieldGenerator extends TypedValueGenerator {
         if ((type != null)
                 && (!type.isPointer())
                 && (target instanceof Class || target instanceof Interface)) {
-            var calcOffset = "long _offset = getMemoryLayout().byteOffset($T.PathElement.groupElement($S))";
             var returnSlice = PartialStatement.of("return ")
                     .add(marshalNativeToJava("handle().asSlice(_offset)", false))
                     .add(";\n");
-            return spec.addStatement(calcOffset, MemoryLayout.class, f.name())
-                    .addNamedCode(returnSlice.format(), returnSlice.arguments())
+            declareOffset(spec);
+            return spec.addNamedCode(returnSlice.format(), returnSlice.arguments())
                     .build();
         }
 
         // Read a pointer or primitive value from the struct
         var carrierType = getCarrierTypeName(f.anyType());
-        var getResult = "var _result = ($T) getMemoryLayout()$Z.varHandle($T.PathElement.groupElement($S)).get(handle(), 0)";
         var returnResult = PartialStatement.of("return ")
                 .add(marshalNativeToJava("_result", false))
                 .add(";\n");
-        return spec.addStatement(getResult, carrierType, MemoryLayout.class, f.name())
-                .addNamedCode(returnResult.format(), returnResult.arguments())
+        if (handleConstant)
+            spec.addStatement("var _result = ($T) $L.get(handle(), 0L)",
+                    carrierType, handleName());
+        else
+            spec.addStatement("var _result = ($T) getMemoryLayout()$Z.varHandle($T.PathElement.groupElement($S)).get(handle(), 0)",
+                    carrierType, MemoryLayout.class, f.name());
+        return spec.addNamedCode(returnResult.format(), returnResult.arguments())
                 .build();
     }
 
@@ -127,13 +220,12 @@ public class FieldGenerator extends TypedValueGenerator {
                         "fieldName", f.name());
 
         if (checkNull())
-            spec.addNamedCode("getMemoryLayout().varHandle($memoryLayout:T.PathElement.groupElement($fieldName:S))$Z"
-                            + ".set(handle(), 0, (" + getName() + " == null ? $memorySegment:T.NULL : "
+            spec.addNamedCode(setValue()
+                            + "(" + getName() + " == null ? $memorySegment:T.NULL : "
                             + stmt.format() + "));\n",
                     stmt.arguments());
         else
-            spec.addNamedCode("getMemoryLayout().varHandle($memoryLayout:T.PathElement.groupElement($fieldName:S))$Z"
-                            + ".set(handle(), 0, "
+            spec.addNamedCode(setValue()
                             + stmt.format() + ");\n",
                     stmt.arguments());
 
@@ -141,17 +233,16 @@ public class FieldGenerator extends TypedValueGenerator {
     }
 
     public MethodSpec generateReadCopyMethod() {
-        return MethodSpec.methodBuilder(methodName(READ_PREFIX))
+        var spec = MethodSpec.methodBuilder(methodName(READ_PREFIX))
                 .addModifiers(Modifier.PUBLIC)
                 .returns(getType())
                 .addJavadoc("""
                         Read the value of the field {@code $1L}.
                         
                         @return The value of the field {@code $1L}
-                        """, f.name())
-                .addStatement("long _offset = getMemoryLayout().byteOffset($T.PathElement.groupElement($S))",
-                        MemoryLayout.class, f.name())
-                .addStatement("$T _slice = handle().asSlice(_offset, $T.getMemoryLayout())",
+                        """, f.name());
+        declareOffset(spec);
+        return spec.addStatement("$T _slice = handle().asSlice(_offset, $T.getMemoryLayout())",
                         MemorySegment.class, getType())
                 .addStatement("return new $T(handle().asSlice(_offset))",
                         getType())
@@ -167,10 +258,9 @@ public class FieldGenerator extends TypedValueGenerator {
                         
                         @param $2L The new value for the field {@code $1L}
                         """, f.name(), getName())
-                .addParameter(getType(), getName())
-                .addStatement("long _offset = getMemoryLayout().byteOffset($T.PathElement.groupElement($S))",
-                        MemoryLayout.class, f.name())
-                .addStatement("$T _slice = handle().asSlice(_offset, $T.getMemoryLayout())",
+                .addParameter(getType(), getName());
+        declareOffset(spec);
+        spec.addStatement("$T _slice = handle().asSlice(_offset, $T.getMemoryLayout())",
                         MemorySegment.class, getType());
 
         if (checkNull())
@@ -187,7 +277,7 @@ public class FieldGenerator extends TypedValueGenerator {
     }
 
     public MethodSpec generateOverrideMethod() {
-        return MethodSpec.methodBuilder(methodName(OVERRIDE_PREFIX))
+        var spec = MethodSpec.methodBuilder(methodName(OVERRIDE_PREFIX))
                 .addJavadoc("""
                         Override virtual method {@code $L}.
                         
@@ -206,12 +296,18 @@ public class FieldGenerator extends TypedValueGenerator {
                         f.parent().typeName(),
                         getName() + "Upcall")
                 .addStatement("$T _address = $T.nativeLinker().upcallStub(_handle.bindTo(this), _fdesc, arena)",
-                        MemorySegment.class, Linker.class)
-                .addStatement("getMemoryLayout().varHandle($T.PathElement.groupElement($S))$Z"
-                                + ".set(handle(), 0, (method == null ? $T.NULL : _address))",
-                        MemoryLayout.class,
-                        f.name(),
-                        MemorySegment.class)
-                .build();
+                        MemorySegment.class, Linker.class);
+
+        if (handleConstant)
+            spec.addStatement("$L.set(handle(), 0L, (method == null ? $T.NULL : _address))",
+                    handleName(),
+                    MemorySegment.class);
+        else
+            spec.addStatement("getMemoryLayout().varHandle($T.PathElement.groupElement($S))$Z"
+                            + ".set(handle(), 0, (method == null ? $T.NULL : _address))",
+                    MemoryLayout.class,
+                    f.name(),
+                    MemorySegment.class);
+        return spec.build();
     }
 }
@@ -19,7 +19,10 @@
 
 package io.github.jwharm.javagi.generators;
 
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeSpec;
 import io.github.jwharm.javagi.gir.Class;
 import io.github.jwharm.javagi.gir.*;
 import io.github.jwharm.javagi.gir.Record;
@@ -50,10 +53,42 @@ public class MemoryLayoutGenerator {
         return !isOpaque;
     }
 
+    /**
+     * Name of the nested class that holds the memory layout of the type,
+     * and the byte offsets and VarHandles of its fields.
+     */
+    static ClassName holderClass(RegisteredType rt) {
+        return rt.typeName().nestedClass("MemoryLayoutHolder");
+    }
+
     MethodSpec generateMemoryLayout(RegisteredType rt) {
         if (!canGenerate(rt))
             return null;
 
+        return MethodSpec.methodBuilder("getMemoryLayout")
+                .addJavadoc("The memory layout of the native struct.\n")
+                .addJavadoc("@return the memory layout\n")
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .returns(MemoryLayout.class)
+                .addStatement("return $T.LAYOUT", holderClass(rt))
+                .build();
+    }
+
+    /**
+     * Generate a holder class with the memory layout of the type as a
+     * constant, so it is only created once, the first time it is used.
+     *
+     * @param rt        the type
+     * @param constants additional constants (such as field offsets and
+     *                  VarHandles) that are derived from the memory layout
+     * @return the holder class, or {@code null} if no memory layout can be
+     *         generated for this type
+     */
+    TypeSpec generateMemoryLayoutHolder(RegisteredType rt,
+                                        List<FieldSpec> constants) {
+        if (!canGenerate(rt))
+            return null;
+
         var fieldList = CollectionUtils.filter(rt.children(), Field.class);
         var unionList = CollectionUtils.filter(rt.children(), Union.class);
         if (fieldList.isEmpty()
@@ -64,17 +99,18 @@ public class MemoryLayoutGenerator {
         boolean isUnion = rt instanceof Union || !unionList.isEmpty();
 
         // The $> and $< in the statement increase and decrease indentation
-        var layout = PartialStatement.of("return $memoryLayout:T."
+        var layout = PartialStatement.of("$memoryLayout:T."
                         + (isUnion ? "union" : "struct") + "Layout(\n$>")
                 .add(generateFieldLayouts(fieldList, isUnion))
-                .add("$<\n).withName(\"" + rt.cType() + "\");\n");
-
-        return MethodSpec.methodBuilder("getMemoryLayout")
-                .addJavadoc("The memory layout of the native struct.\n")
-                .addJavadoc("@return the memory layout\n")
-                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
-                .returns(MemoryLayout.class)
-                .addNamedCode(layout.format(), layout.arguments())
+                .add("$<\n).withName(\"" + rt.cType() + "\")");
+
+        return TypeSpec.classBuilder(holderClass(rt))
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                .addField(FieldSpec.builder(MemoryLayout.class, "LAYOUT",
+                                Modifier.STATIC, Modifier.FINAL)
+                        .initializer(layout.toCodeBlock())
+                        .build())
+                .addFields(constants)
                 .build();
     }
 
@@ -127,6 +163,28 @@ public class MemoryLayoutGenerator {
         };
     }
 
+    /*
+     * Check if the memory layout of the field is a value layout (and not a
+     * struct, union or sequence layout), so a VarHandle can be created for it.
+     */
+    boolean isValueLayout(Field f) {
+        return switch (f.anyType()) {
+            case null -> true; // callback
+            case Type type -> isValueLayout(type);
+            case Array array -> array.fixedSize() <= 0;
+        };
+    }
+
+    private boolean isValueLayout(Type type) {
+        RegisteredType target = type.get();
+
+        // Recursive lookup for aliases
+        if (target instanceof Alias alias)
+            return isValueLayout(alias.type());
+
+        return type.isPointer() || !canGenerate(target);
+    }
+
     private PartialStatement layoutForType(Type type) {
         RegisteredType target = type.get();
 
@@ -29,7 +29,6 @@ import io.github.jwharm.javagi.util.PartialStatement;
 import io.github.jwharm.javagi.util.Platform;
 
 import javax.lang.model.element.Modifier;
-import java.lang.foreign.Arena;
 import java.lang.foreign.MemorySegment;
 import java.lang.foreign.ValueLayout;
 import java.lang.invoke.MethodHandle;
@@ -160,8 +159,8 @@ public class MethodGenerator {
 
         // try-block for arena
         if (func.allocatesMemory())
-            builder.beginControlFlow("try (var _arena = $T.ofConfined())",
-                    Arena.class);
+            builder.beginControlFlow("try (var _arena = $T.open())",
+                    ClassNames.SCRATCH_ARENA);
 
         // Preprocessing
         if (func.parameters() != null)
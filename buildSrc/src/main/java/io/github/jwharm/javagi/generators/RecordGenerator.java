@@ -21,6 +21,8 @@ package io.github.jwharm.javagi.generators;
 
 import java.lang.foreign.Arena;
 import java.lang.foreign.MemorySegment;
+import java.util.ArrayList;
+import java.util.List;
 
 import com.squareup.javapoet.*;
 import io.github.jwharm.javagi.configuration.ClassNames;
@@ -40,6 +42,7 @@ public class RecordGenerator extends RegisteredTypeGenerator {
     private final Record rec;
     private final RegisteredType outerClass;
     private final TypeSpec.Builder builder;
+    private final List<FieldSpec> layoutConstants = new ArrayList<>();
 
     public RecordGenerator(Record rec) {
         super(rec);
@@ -107,8 +110,8 @@ public class RecordGenerator extends RegisteredTypeGenerator {
 
         builder.addMethod(memoryAddressConstructor());
 
-        MethodSpec memoryLayout = new MemoryLayoutGenerator()
-                                            .generateMemoryLayout(rec);
+        var layoutGenerator = new MemoryLayoutGenerator();
+        MethodSpec memoryLayout = layoutGenerator.generateMemoryLayout(rec);
         if (memoryLayout != null) {
             builder.addMethod(memoryLayout);
 
@@ -123,11 +126,16 @@ public class RecordGenerator extends RegisteredTypeGenerator {
                        .addMethod(allocateWithParameters());
 
             for (Field f : rec.fields())
-                generateField(f);
+                generateField(f, true);
 
+            // The memory layout only contains the union fields when the
+            // record has no other fields
             if (!rec.unions().isEmpty())
                 for (Field f : rec.unions().getFirst().fields())
-                    generateField(f);
+                    generateField(f, rec.fields().isEmpty());
+
+            builder.addType(layoutGenerator.generateMemoryLayoutHolder(
+                    rec, layoutConstants));
         }
 
         addConstructors(builder);
@@ -146,11 +154,17 @@ public class RecordGenerator extends RegisteredTypeGenerator {
         return builder.build();
     }
 
-    private void generateField(Field f) {
+    private void generateField(Field f, boolean inLayout) {
         if (f.isDisguised()) return;
-        FieldGenerator generator = new FieldGenerator(f);
+        FieldGenerator generator = new FieldGenerator(f, inLayout
+                ? MemoryLayoutGenerator.holderClass(rec)
+                : null);
         Callback cb  = f.callback();
 
+        // Static VarHandle and offset constants for the field accessors
+        if (inLayout)
+            layoutConstants.addAll(generator.generateConstants());
+
         if (cb == null) {
             if (f.anyType() instanceof Type t
                     && (!t.isPointer())
@@ -203,10 +217,12 @@ public class RecordGenerator extends RegisteredTypeGenerator {
                 .addParameter(Arena.class, "arena")
                 .addStatement("super(arena.allocate(getMemoryLayout()))");
         else
-            spec.addJavadoc("The memory is allocated with {@link $T#ofAuto}.\n",
-                            Arena.class)
-                .addStatement("super($T.ofAuto().allocate(getMemoryLayout()))",
-                    Arena.class);
+            spec.addJavadoc("""
+                            The memory is allocated in the current allocation scope
+                            (see {@link $1T#scope}), or else with {@link $2T#ofAuto}.
+                            """, ClassNames.INTEROP, Arena.class)
+                .addStatement("super($T.currentArena().allocate(getMemoryLayout()))",
+                    ClassNames.INTEROP);
 
         return spec.build();
     }
@@ -218,8 +234,10 @@ public class RecordGenerator extends RegisteredTypeGenerator {
                 .addModifiers(Modifier.PUBLIC);
 
         if (!arenaParameter)
-            spec.addJavadoc("The memory is allocated with {@link $T#ofAuto}.\n",
-                    Arena.class);
+            spec.addJavadoc("""
+                    The memory is allocated in the current allocation scope
+                    (see {@link $1T#scope}), or else with {@link $2T#ofAuto}.
+                    """, ClassNames.INTEROP, Arena.class);
         spec.addJavadoc("\n");
 
         rec.fields().stream().filter(not(Field::isDisguised)).forEach(f ->
@@ -239,7 +257,7 @@ public class RecordGenerator extends RegisteredTypeGenerator {
         if (arenaParameter)
             spec.addStatement("this(arena)");
         else
-            spec.addStatement("this($T.ofAuto())", Arena.class);
+            spec.addStatement("this($T.currentArena())", ClassNames.INTEROP);
 
         // Copy the parameter values into the instance fields
         rec.fields().stream().filter(not(Field::isDisguised)).forEach(f -> {
@@ -249,11 +267,11 @@ public class RecordGenerator extends RegisteredTypeGenerator {
                         toCamelCase(f.name(), true),
                         toJavaIdentifier(f.name()));
             else if (f.allocatesMemory())
-                spec.addStatement("$L$L($L, $T.ofAuto())",
+                spec.addStatement("$L$L($L, $T.currentArena())",
                         f.callback() == null ? "write" : "override",
                         toCamelCase(f.name(), true),
                         toJavaIdentifier(f.name()),
-                        Arena.class);
+                        ClassNames.INTEROP);
             else
                 spec.addStatement("$L$L($L)",
                         f.callback() == null ? "write" : "override",
@@ -27,7 +27,6 @@ import org.jetbrains.annotations.Nullable;
 
 import javax.lang.model.element.Modifier;
 
-import java.lang.foreign.Arena;
 import java.lang.foreign.MemorySegment;
 import java.lang.foreign.ValueLayout;
 
@@ -77,34 +76,56 @@ public class SignalGenerator {
                             .addAnnotation(Nullable.class)
                             .build());
 
-        builder.addParameter(signal.typeName(), "handler")
-                .beginControlFlow("try ($1T _arena = $1T.ofConfined())",
-                        Arena.class)
-                .beginControlFlow("try");
+        builder.addParameter(signal.typeName(), "handler");
 
+        // Only a detailed signal name is allocated. The shared upcall stub
+        // and the constant signal name do not need an arena.
         if (signal.detailed())
-            builder.addStatement("var _name = $T.allocateNativeString($S + ((detail == null || detail.isBlank()) ? $S : ($S + detail)), _arena)",
-                    ClassNames.INTEROP,
-                    signal.name(),
-                    "",
-                    "::");
-        else
-            builder.addStatement("var _name = $T.allocateNativeString($S, _arena)",
-                    ClassNames.INTEROP,
-                    signal.name());
+            builder.beginControlFlow("try (var _arena = $T.open())",
+                    ClassNames.SCRATCH_ARENA);
+        builder.beginControlFlow("try");
 
-        return builder.addStatement("var _callbackArena = $T.ofConfined()",
-                        Arena.class)
-                .addStatement("var _callback = handler.toCallback(_callbackArena)")
-                .addStatement("var _result = (long) $1T.g_signal_connect_data.invokeExact($Zhandle(), _name, _callback, $2T.NULL, $2T.NULL, 0)",
+        generateSignalName(builder);
+
+        // The handler is registered in a table, and is called by the upcall
+        // stub that is shared by all handlers of this signal type
+        builder.addStatement("var _userData = $T.register(handler)",
+                        ClassNames.SHARED_UPCALLS)
+                .addStatement("var _result = (long) $1T.g_signal_connect_data.invokeExact($Zhandle(), _name, $2T.sharedCallback(), _userData, $3T.destroyNotify(), 0)",
                         ClassNames.SIGNALS,
-                        MemorySegment.class)
-                .addStatement("return new SignalConnection<>(handle(), _result, _callbackArena)")
+                        signal.typeName(),
+                        ClassNames.SHARED_UPCALLS)
+                .beginControlFlow("if (_result == 0)")
+                .addStatement("$T.unregister(_userData)",
+                        ClassNames.SHARED_UPCALLS)
+                .endControlFlow()
+                .addStatement("return new SignalConnection<>(handle(), _result)")
                 .nextControlFlow("catch (Throwable _err)")
                 .addStatement("throw new AssertionError(_err)")
-                .endControlFlow()
-                .endControlFlow()
-                .build();
+                .endControlFlow();
+
+        if (signal.detailed())
+            builder.endControlFlow();
+        return builder.build();
+    }
+
+    /*
+     * The signal name is a constant string: it is encoded once into the
+     * global arena. Only a detailed signal name is allocated for every call.
+     */
+    private void generateSignalName(MethodSpec.Builder builder) {
+        if (signal.detailed())
+            builder.addStatement("$1T _name = (detail == null || detail.isBlank()) ? $2T.constant($3S) : $4T.allocateNativeString($3S + $5S + detail, _arena)",
+                    MemorySegment.class,
+                    ClassNames.NATIVE_STRINGS,
+                    signal.name(),
+                    ClassNames.INTEROP,
+                    "::");
+        else
+            builder.addStatement("$T _name = $T.constant($S)",
+                    MemorySegment.class,
+                    ClassNames.NATIVE_STRINGS,
+                    signal.name());
     }
 
     public boolean emitMethodExists() {
@@ -147,8 +168,8 @@ public class SignalGenerator {
         generator.generateMethodParameters(builder, false, true);
 
         // Arena for memory allocations
-        builder.beginControlFlow("try ($1T _arena = $1T.ofConfined())",
-                Arena.class);
+        builder.beginControlFlow("try (var _arena = $T.open())",
+                ClassNames.SCRATCH_ARENA);
 
         // Parameter preprocessing
         if (signal.parameters() != null)
@@ -167,18 +188,7 @@ public class SignalGenerator {
                     getValueLayout(returnValue.anyType()));
 
         // Allocate memory for signal name
-        if (signal.detailed())
-            builder.addStatement("$T _name = $T.allocateNativeString($S + ((detail == null || detail.isBlank()) ? $S : ($S + detail)), _arena)",
-                    MemorySegment.class,
-                    ClassNames.INTEROP,
-                    signal.name(),
-                    "",
-                    "::");
-        else
-            builder.addStatement("$T _name = $T.allocateNativeString($S, _arena)",
-                    MemorySegment.class,
-                    ClassNames.INTEROP,
-                    signal.name());
+        generateSignalName(builder);
 
         // Create an array with the signal arguments
         PartialStatement varargs = PartialStatement.of("Object[] _args = ");
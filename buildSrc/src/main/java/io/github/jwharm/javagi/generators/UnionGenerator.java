@@ -27,6 +27,7 @@ import io.github.jwharm.javagi.util.GeneratedAnnotationBuilder;
 
 import javax.lang.model.element.Modifier;
 import java.lang.foreign.Arena;
+import java.util.List;
 
 public class UnionGenerator extends RegisteredTypeGenerator {
 
@@ -53,10 +54,12 @@ public class UnionGenerator extends RegisteredTypeGenerator {
                 .addStaticBlock(staticBlock())
                 .addMethod(memoryAddressConstructor());
 
-        MethodSpec memoryLayout = new MemoryLayoutGenerator()
-                                            .generateMemoryLayout(union);
+        var layoutGenerator = new MemoryLayoutGenerator();
+        MethodSpec memoryLayout = layoutGenerator.generateMemoryLayout(union);
         if (memoryLayout != null) {
             builder.addMethod(memoryLayout);
+            builder.addType(layoutGenerator.generateMemoryLayoutHolder(
+                    union, List.of()));
             builder.addMethod(constructor());
         }
 
@@ -0,0 +1,59 @@
+package io.github.jwharm.javagi.benchmark.gdk;
+
+import org.gnome.gdk.Rectangle;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemoryLayout;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read the {@code x} field of a {@link Rectangle} in a tight loop, with the
+ * generated accessor (that uses a static VarHandle) and by resolving the
+ * field in the memory layout on every read (which is what the generated
+ * accessor did before).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RectangleBenchmark {
+
+    private static final int LOOP = 1000;
+
+    private Arena arena;
+    private Rectangle rectangle;
+
+    @Setup
+    public void setup() {
+        arena = Arena.ofConfined();
+        rectangle = new Rectangle(1, 2, 3, 4, arena);
+    }
+
+    @TearDown
+    public void tearDown() {
+        arena.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOP)
+    public int readX() {
+        int sum = 0;
+        for (int i = 0; i < LOOP; i++)
+            sum += rectangle.readX();
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOP)
+    public int readXWithLayoutPath() {
+        int sum = 0;
+        for (int i = 0; i < LOOP; i++)
+            sum += (int) Rectangle.getMemoryLayout()
+                    .varHandle(MemoryLayout.PathElement.groupElement("x"))
+                    .get(rectangle.handle(), 0L);
+        return sum;
+    }
+}
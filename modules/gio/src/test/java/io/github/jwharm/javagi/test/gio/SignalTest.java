@@ -20,13 +20,17 @@
 package io.github.jwharm.javagi.test.gio;
 
 import io.github.jwharm.javagi.gobject.SignalConnection;
+import io.github.jwharm.javagi.interop.SharedUpcalls;
 import org.gnome.gio.Application;
 import org.gnome.gio.ApplicationFlags;
 import org.gnome.gobject.GObject;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -60,6 +64,26 @@ public class SignalTest {
         assertTrue(success.get());
     }
 
+    @Test
+    public void sharedUpcallStub() {
+        var count = new AtomicInteger();
+        Application app = new Application("test.id1", ApplicationFlags.DEFAULT_FLAGS);
+        int registered = SharedUpcalls.size();
+
+        // All handlers share one upcall stub, and are registered in a table
+        var signals = new ArrayList<SignalConnection<GObject.NotifyCallback>>();
+        for (int i = 0; i < 100; i++)
+            signals.add(app.onNotify("application-id", _ -> count.incrementAndGet()));
+        assertEquals(registered + 100, SharedUpcalls.size());
+
+        app.setApplicationId("test.id2");
+        assertEquals(100, count.get());
+
+        // Disconnected handlers are removed from the table
+        signals.forEach(SignalConnection::disconnect);
+        assertEquals(registered, SharedUpcalls.size());
+    }
+
     @Test
     public void blockUnblockSignal() {
         var success = new AtomicBoolean(true);
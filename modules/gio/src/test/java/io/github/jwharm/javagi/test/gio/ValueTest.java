@@ -19,6 +19,7 @@
 
 package io.github.jwharm.javagi.test.gio;
 
+import io.github.jwharm.javagi.gobject.ValueUtil;
 import io.github.jwharm.javagi.gobject.types.Types;
 import org.gnome.gio.SimpleAction;
 import org.gnome.glib.*;
@@ -27,6 +28,7 @@ import org.gnome.gobject.Value;
 import org.junit.jupiter.api.Test;
 
 import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -94,6 +96,38 @@ public class ValueTest {
         assertEquals(objValue.getObject(), o);
     }
 
+    @Test
+    public void valueUtil() {
+        try (var arena = Arena.ofConfined()) {
+            MemorySegment array = arena.allocate(Value.getMemoryLayout(), 4);
+            Value[] values = new Value[4];
+            for (int i = 0; i < 4; i++)
+                values[i] = new Value(array.asSlice(i * Value.getMemoryLayout().byteSize(),
+                        Value.getMemoryLayout()));
+
+            values[0].init(Types.UINT64);
+            values[1].init(Types.STRING);
+            values[2].init(SimpleAction.getType());
+            values[3].init(Types.LONG);
+
+            GObject o = new SimpleAction("test", null);
+            ValueUtil.objectToValue(Long.MAX_VALUE, values[0]);
+            ValueUtil.objectToValue("abc", values[1]);
+            ValueUtil.objectToValue(o, values[2]);
+            ValueUtil.objectToValue(15, values[3]);
+
+            // Read the values with and without Value proxies
+            assertEquals(Long.MAX_VALUE, ValueUtil.valueToObject(values[0]));
+            Object[] objects = ValueUtil.valuesToObjects(array, 1, 3);
+            assertEquals("abc", objects[0]);
+            assertEquals(o, objects[1]);
+            assertEquals(15L, ((Number) objects[2]).longValue());
+
+            for (Value value : values)
+                value.unset();
+        }
+    }
+
     @Test
     public void boxedValue() {
         // compare a boxed value with its duplicate
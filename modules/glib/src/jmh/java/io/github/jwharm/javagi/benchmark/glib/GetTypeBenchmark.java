@@ -0,0 +1,45 @@
+package io.github.jwharm.javagi.benchmark.glib;
+
+import io.github.jwharm.javagi.interop.Interop;
+import org.gnome.glib.GLib;
+import org.gnome.glib.Type;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare resolving a GType with {@link Interop#getType(String)} (a cached
+ * result, resolved with one shared downcall handle) with linking a new
+ * downcall handle for the get-type function on every call (which is what
+ * Interop.getType did before).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GetTypeBenchmark {
+
+    private static final FunctionDescriptor GET_TYPE =
+            FunctionDescriptor.of(ValueLayout.JAVA_LONG);
+
+    @Setup
+    public void setup() {
+        GLib.javagi$ensureInitialized();
+    }
+
+    @Benchmark
+    public Type sharedResolver() {
+        return Interop.getType("g_date_get_type");
+    }
+
+    @Benchmark
+    public Type linkEveryCall() throws Throwable {
+        MethodHandle handle = Interop.downcallHandle("g_date_get_type", GET_TYPE);
+        return new Type((long) handle.invokeExact());
+    }
+}
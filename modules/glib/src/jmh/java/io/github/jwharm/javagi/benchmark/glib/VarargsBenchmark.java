@@ -0,0 +1,72 @@
+package io.github.jwharm.javagi.benchmark.glib;
+
+import io.github.jwharm.javagi.interop.Interop;
+import org.gnome.glib.GLib;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.foreign.*;
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare calling a variadic function ({@code g_snprintf}) through the cached
+ * VarargsInvoker with linking a new downcall handle for every call (which is
+ * what the VarargsInvoker did before the signatures were cached).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VarargsBenchmark {
+
+    private static final FunctionDescriptor NAMED_ARGS = FunctionDescriptor.of(
+            ValueLayout.JAVA_INT,
+            ValueLayout.ADDRESS,
+            ValueLayout.JAVA_LONG,
+            ValueLayout.ADDRESS);
+
+    private static final FunctionDescriptor ALL_ARGS = FunctionDescriptor.of(
+            ValueLayout.JAVA_INT,
+            ValueLayout.ADDRESS,
+            ValueLayout.JAVA_LONG,
+            ValueLayout.ADDRESS,
+            ValueLayout.JAVA_LONG,
+            ValueLayout.JAVA_DOUBLE);
+
+    private Arena arena;
+    private MemorySegment symbol;
+    private MemorySegment buffer;
+    private MemorySegment format;
+    private MethodHandle cached;
+
+    @Setup
+    public void setup() {
+        GLib.javagi$ensureInitialized();
+        arena = Arena.ofConfined();
+        symbol = Interop.symbolLookup.find("g_snprintf").orElseThrow();
+        buffer = arena.allocate(64);
+        format = arena.allocateFrom("%d %f");
+        cached = Interop.downcallHandle("g_snprintf", NAMED_ARGS, true);
+    }
+
+    @TearDown
+    public void tearDown() {
+        arena.close();
+    }
+
+    @Benchmark
+    public int cachedSignature() throws Throwable {
+        return (int) cached.invokeExact(buffer, buffer.byteSize(), format,
+                new Object[] {42, 3.14});
+    }
+
+    @Benchmark
+    public int linkEveryCall() throws Throwable {
+        MethodHandle mh = Linker.nativeLinker().downcallHandle(symbol, ALL_ARGS,
+                Linker.Option.firstVariadicArg(3));
+        Object[] args = {buffer, buffer.byteSize(), format, 42L, 3.14};
+        return (int) mh.asSpreader(Object[].class, args.length).invoke(args);
+    }
+}
@@ -20,17 +20,139 @@
 package io.github.jwharm.javagi.base;
 
 import io.github.jwharm.javagi.Constants;
+import io.github.jwharm.javagi.interop.Interop;
 import org.gnome.glib.GLib;
 import org.gnome.glib.LogLevelFlags;
 
+import java.lang.foreign.*;
+import java.lang.invoke.MethodHandle;
+
+import static java.lang.foreign.ValueLayout.*;
+
 /**
  * Utility class to call {@link GLib#log} for debug purposes.
+ * <p>
+ * Whether debug messages are enabled, is checked once and cached. (Debug
+ * messages are enabled with the {@code G_MESSAGES_DEBUG} environment
+ * variable.) When debug messages are disabled, calls to {@code debug()} with
+ * up to two arguments return immediately, without any allocations or native
+ * calls. Call {@link #refresh()} to check again, for example after calling
+ * {@code GLib.logSetDebugEnabled()}.
+ * <p>
+ * The check uses the filter of the default GLib log writer. When a custom
+ * log handler (installed with {@code g_log_set_handler}) must receive the
+ * debug messages regardless of {@code G_MESSAGES_DEBUG}, enable them with
+ * {@link #setDebugEnabled(boolean)}.
+ * <p>
+ * Enabled debug messages are logged with {@link GLib#log}, so the format
+ * string uses {@code printf()} syntax, and the messages are passed to the
+ * installed log handlers.
+ * <p>
+ * Only the disabled case is free. Enabled messages still go through the
+ * variadic {@code g_log()} call, which boxes the arguments. They are
+ * deliberately not formatted in Java and passed to the non-variadic
+ * {@code g_log_structured_array()}, for two reasons. That function bypasses
+ * the log handlers that are installed with {@code g_log_set_handler}. It
+ * would also require Java {@link java.util.Formatter} syntax instead of the
+ * {@code printf()} syntax of the existing format strings (such as
+ * {@code %ld}).
  */
 public final class GLibLogger {
 
+    private static final int LEVEL_DEBUG = LogLevelFlags.LEVEL_DEBUG.getValue();
+
+    private static final MemorySegment LOG_DOMAIN;
+    private static final MethodHandle g_log_writer_default_would_drop;
+
+    private static volatile boolean debugEnabled;
+
+    static {
+        GLib.javagi$ensureInitialized();
+
+        LOG_DOMAIN = Arena.global().allocateFrom(Constants.LOG_DOMAIN);
+
+        // Available since GLib 2.68. Will be null on older GLib versions.
+        g_log_writer_default_would_drop = Interop.downcallHandle(
+                "g_log_writer_default_would_drop",
+                FunctionDescriptor.of(JAVA_INT, JAVA_INT, ADDRESS),
+                false);
+
+        refresh();
+    }
+
     // Prevent instantiation
     private GLibLogger() {}
 
+    /**
+     * Check again whether debug messages are enabled for the "java-gi" log
+     * domain, and cache the result.
+     */
+    public static void refresh() {
+        debugEnabled = checkDebugEnabled();
+    }
+
+    /**
+     * Enable or disable debug messages for the "java-gi" log domain,
+     * regardless of the {@code G_MESSAGES_DEBUG} environment variable. This
+     * setting is overwritten by {@link #refresh()}.
+     *
+     * @param enabled whether debug messages are enabled
+     */
+    public static void setDebugEnabled(boolean enabled) {
+        debugEnabled = enabled;
+    }
+
+    /**
+     * Check whether debug messages are enabled for the "java-gi" log domain.
+     * This returns the cached result of the last check.
+     *
+     * @return whether debug messages are enabled
+     */
+    public static boolean isDebugEnabled() {
+        return debugEnabled;
+    }
+
+    /**
+     * Call {@link GLib#log} with log domain "java-gi" and level
+     * {@link LogLevelFlags#LEVEL_DEBUG}.
+     *
+     * @param message the message
+     */
+    public static void debug(String message) {
+        if (debugEnabled)
+            GLib.log(Constants.LOG_DOMAIN, LogLevelFlags.LEVEL_DEBUG,
+                    "%s", message);
+    }
+
+    /**
+     * Call {@link GLib#log} with log domain "java-gi" and level
+     * {@link LogLevelFlags#LEVEL_DEBUG}.
+     *
+     * @param message the message format. See the {@code printf()}
+     *                documentation
+     * @param arg     the parameter to insert into the format string
+     */
+    public static void debug(String message, long arg) {
+        if (debugEnabled)
+            GLib.log(Constants.LOG_DOMAIN, LogLevelFlags.LEVEL_DEBUG,
+                    message, arg);
+    }
+
+    /**
+     * Call {@link GLib#log} with log domain "java-gi" and level
+     * {@link LogLevelFlags#LEVEL_DEBUG}.
+     *
+     * @param message the message format. See the {@code printf()}
+     *                documentation
+     * @param arg1    the first parameter to insert into the format string
+     * @param arg2    the second parameter to insert into the format string
+     */
+    public static void debug(String message, Object arg1, long arg2) {
+        if (debugEnabled)
+            GLib.log(Constants.LOG_DOMAIN, LogLevelFlags.LEVEL_DEBUG,
+                    message, arg1, arg2);
+    }
+
     /**
      * Call {@link GLib#log} with log domain "java-gi" and level
      * {@link LogLevelFlags#LEVEL_DEBUG}.
@@ -40,9 +162,32 @@ public final class GLibLogger {
      * @param varargs the parameters to insert into the format string
      */
     public static void debug(String message, Object... varargs) {
-        GLib.log(Constants.LOG_DOMAIN,
-                LogLevelFlags.LEVEL_DEBUG,
-                message,
-                varargs);
+        if (debugEnabled)
+            GLib.log(Constants.LOG_DOMAIN, LogLevelFlags.LEVEL_DEBUG,
+                    message, varargs);
+    }
+
+    /*
+     * Check with g_log_writer_default_would_drop() whether debug messages in
+     * the "java-gi" log domain are enabled. On older GLib versions, check if
+     * the G_MESSAGES_DEBUG environment variable contains "all" or "java-gi".
+     */
+    private static boolean checkDebugEnabled() {
+        if (g_log_writer_default_would_drop != null) {
+            try {
+                return (int) g_log_writer_default_would_drop.invokeExact(
+                        LEVEL_DEBUG, LOG_DOMAIN) == 0;
+            } catch (Throwable _err) {
+                throw new AssertionError("Unexpected exception occurred: ", _err);
+            }
+        }
+
+        String domains = System.getenv("G_MESSAGES_DEBUG");
+        if (domains == null)
+            return false;
+        for (String domain : domains.split("[ ,]"))
+            if (domain.equals("all") || domain.equals(Constants.LOG_DOMAIN))
+                return true;
+        return false;
     }
 }
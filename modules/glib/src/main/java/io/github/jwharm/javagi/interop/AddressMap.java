@@ -0,0 +1,384 @@
+/* Java-GI - Java language bindings for GObject-Introspection-based libraries
+ * Copyright (C) 2022-2024 Jan-Willem Harmannij
+ *
+ * SPDX-License-Identifier: LGPL-2.1-or-later
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.jwharm.javagi.interop;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A concurrent hash map with native memory addresses as keys. The addresses
+ * are stored as primitive {@code long} values, so they are not boxed.
+ * <p>
+ * The map is divided into a fixed number of stripes, and every stripe is an
+ * open-addressing hash table with linear probing. Lookups are optimistic and
+ * do not block: they only fall back to a read lock when the stripe was
+ * modified during the lookup. Modifications lock one stripe.
+ * <p>
+ * The {@code NULL} address (0) cannot be used as a key: it marks the empty
+ * slots in the tables. Adding it throws an exception, while looking it up or
+ * removing it behaves as if it is not in the map. Null values are not
+ * allowed.
+ *
+ * @param <V> the type of the values
+ */
+public final class AddressMap<V> {
+
+    private static final int STRIPES = 64;
+    private static final int STRIPE_SHIFT = Long.SIZE - Integer.numberOfTrailingZeros(STRIPES);
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Stripe[] stripes;
+
+    /**
+     * Create a new, empty AddressMap.
+     */
+    public AddressMap() {
+        stripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++)
+            stripes[i] = new Stripe();
+    }
+
+    /**
+     * Get the value for the provided address.
+     *
+     * @param  address the memory address
+     * @return the value, or {@code null} if the address is not in the map
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long address) {
+        if (address == 0L)
+            return null;
+
+        long hash = hash(address);
+        Stripe stripe = stripe(hash);
+        StampedLock lock = stripe.lock;
+
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            Object value = stripe.find(address, hash);
+            if (lock.validate(stamp))
+                return (V) value;
+        }
+
+        stamp = lock.readLock();
+        try {
+            return (V) stripe.find(address, hash);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Add the value for the provided address, unless the map already contains
+     * a value for the address.
+     *
+     * @param  address the memory address
+     * @param  value   the value to add
+     * @return the existing value, or {@code null} if the value was added
+     */
+    @SuppressWarnings("unchecked")
+    public V putIfAbsent(long address, V value) {
+        checkKey(address);
+        if (value == null)
+            throw new NullPointerException();
+
+        long hash = hash(address);
+        Stripe stripe = stripe(hash);
+        long stamp = stripe.lock.writeLock();
+        try {
+            return (V) stripe.insert(address, hash, value, false);
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Add the value for the provided address. If the map already contains a
+     * value for the address, it is replaced.
+     *
+     * @param  address the memory address
+     * @param  value   the value to add
+     * @return the previous value, or {@code null} if there was no value for
+     *         this address
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long address, V value) {
+        checkKey(address);
+        if (value == null)
+            throw new NullPointerException();
+
+        long hash = hash(address);
+        Stripe stripe = stripe(hash);
+        long stamp = stripe.lock.writeLock();
+        try {
+            return (V) stripe.insert(address, hash, value, true);
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Remove the value for the provided address.
+     *
+     * @param  address the memory address
+     * @return the removed value, or {@code null} if there was no value for
+     *         this address
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long address) {
+        if (address == 0L)
+            return null;
+
+        long hash = hash(address);
+        Stripe stripe = stripe(hash);
+        long stamp = stripe.lock.writeLock();
+        try {
+            return (V) stripe.delete(address, hash, null);
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Remove the value for the provided address, but only if it is currently
+     * mapped to the provided value.
+     *
+     * @param  address the memory address
+     * @param  value   the expected value
+     * @return whether the value was removed
+     */
+    public boolean remove(long address, V value) {
+        if (address == 0L || value == null)
+            return false;
+
+        long hash = hash(address);
+        Stripe stripe = stripe(hash);
+        long stamp = stripe.lock.writeLock();
+        try {
+            return stripe.delete(address, hash, value) != null;
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Get the number of addresses in the map. The result is only an estimate
+     * when the map is concurrently modified.
+     *
+     * @return the number of addresses in the map
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes)
+            size += stripe.size;
+        return size;
+    }
+
+    /**
+     * Get the number of insertions where the address could not be stored in
+     * its preferred slot, because it was occupied by another address. This
+     * metric can be used to tune the hash function and table size.
+     *
+     * @return the number of collisions since the map was created
+     */
+    public long collisions() {
+        long collisions = 0;
+        for (Stripe stripe : stripes)
+            collisions += stripe.collisions;
+        return collisions;
+    }
+
+    /**
+     * Get the length of the longest probe sequence that was needed to insert
+     * an address in the map.
+     *
+     * @return the longest probe sequence since the map was created
+     */
+    public int maxProbeLength() {
+        int max = 0;
+        for (Stripe stripe : stripes)
+            max = Math.max(max, stripe.maxProbeLength);
+        return max;
+    }
+
+    // Native memory addresses are aligned, so the low bits are mostly zero.
+    // Multiply with a large odd constant to spread the bits.
+    private static long hash(long address) {
+        return address * 0x9E3779B97F4A7C15L;
+    }
+
+    // The highest bits of the hash select the stripe
+    private Stripe stripe(long hash) {
+        return stripes[(int) (hash >>> STRIPE_SHIFT)];
+    }
+
+    private static void checkKey(long address) {
+        if (address == 0L)
+            throw new IllegalArgumentException("Address is NULL");
+    }
+
+    /*
+     * The keys and values of a stripe. A new table is allocated when the
+     * stripe is resized, so optimistic readers always see arrays with the
+     * same length.
+     */
+    private record Table(long[] keys, Object[] values) {
+        Table(int capacity) {
+            this(new long[capacity], new Object[capacity]);
+        }
+    }
+
+    /*
+     * One stripe of the map: an open-addressing hash table with linear
+     * probing. Empty slots have key 0.
+     */
+    private static final class Stripe {
+        private final StampedLock lock = new StampedLock();
+        private volatile Table table = new Table(INITIAL_CAPACITY);
+        private volatile int size;
+        private long collisions;
+        private int maxProbeLength;
+
+        // The lower bits of the hash select the slot
+        private static int slot(long hash, int mask) {
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+
+        /*
+         * Find the value for the address. This can run concurrently with
+         * modifications (during an optimistic read), so it must not loop
+         * forever or throw exceptions when the table is inconsistent.
+         */
+        Object find(long address, long hash) {
+            Table t = table;
+            long[] keys = t.keys;
+            Object[] values = t.values;
+            int mask = keys.length - 1;
+            int i = slot(hash, mask);
+            for (int probes = 0; probes <= mask; probes++) {
+                long key = keys[i];
+                if (key == address)
+                    return values[i];
+                if (key == 0L)
+                    return null;
+                i = (i + 1) & mask;
+            }
+            return null;
+        }
+
+        // Must be called with the write lock held
+        Object insert(long address, long hash, Object value, boolean replace) {
+            Table t = table;
+            long[] keys = t.keys;
+            Object[] values = t.values;
+            int mask = keys.length - 1;
+            int i = slot(hash, mask);
+            int probes = 0;
+            while (keys[i] != 0L) {
+                if (keys[i] == address) {
+                    Object existing = values[i];
+                    if (replace)
+                        values[i] = value;
+                    return existing;
+                }
+                i = (i + 1) & mask;
+                probes++;
+            }
+
+            // Write the value before the key, so a concurrent optimistic
+            // reader never finds the key without a value
+            values[i] = value;
+            keys[i] = address;
+            size++;
+            if (probes > 0)
+                collisions++;
+            if (probes > maxProbeLength)
+                maxProbeLength = probes;
+
+            // Resize when the table is more than 2/3 full
+            if (size * 3 > keys.length * 2)
+                resize(keys.length * 2);
+            return null;
+        }
+
+        /*
+         * Remove the address (if mapped to the expected value, or any value
+         * when expected is null), and shift the following entries in the probe
+         * sequence backwards. Must be called with the write lock held. The
+         * address must not be 0, because that would match an empty slot.
+         */
+        Object delete(long address, long hash, Object expected) {
+            assert address != 0L;
+            Table t = table;
+            long[] keys = t.keys;
+            Object[] values = t.values;
+            int mask = keys.length - 1;
+            int i = slot(hash, mask);
+            while (keys[i] != address) {
+                if (keys[i] == 0L)
+                    return null;
+                i = (i + 1) & mask;
+            }
+
+            Object existing = values[i];
+            if (expected != null && existing != expected)
+                return null;
+
+            // Backward-shift deletion
+            int gap = i;
+            int j = i;
+            while (true) {
+                j = (j + 1) & mask;
+                long key = keys[j];
+                if (key == 0L)
+                    break;
+                int home = slot(hash(key), mask);
+                // Move the entry into the gap, if the gap lies between its
+                // preferred slot and its current slot (cyclically)
+                if (((j - home) & mask) >= ((j - gap) & mask)) {
+                    keys[gap] = key;
+                    values[gap] = values[j];
+                    gap = j;
+                }
+            }
+            keys[gap] = 0L;
+            values[gap] = null;
+            size--;
+            return existing;
+        }
+
+        // Must be called with the write lock held
+        private void resize(int capacity) {
+            Table old = table;
+            Table t = new Table(capacity);
+            int mask = capacity - 1;
+            for (int i = 0; i < old.keys.length; i++) {
+                long key = old.keys[i];
+                if (key == 0L)
+                    continue;
+                int j = slot(hash(key), mask);
+                while (t.keys[j] != 0L)
+                    j = (j + 1) & mask;
+                t.keys[j] = key;
+                t.values[j] = old.values[i];
+            }
+            table = t;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/* Java-GI - Java language bindings for GObject-Introspection-based libraries
+ * Copyright (C) 2022-2024 Jan-Willem Harmannij
+ *
+ * SPDX-License-Identifier: LGPL-2.1-or-later
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.jwharm.javagi.interop;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+
+/**
+ * An allocation scope that is bound to the current thread. While the scope is
+ * open, generated record constructors and field writers that would otherwise
+ * allocate with {@link Arena#ofAuto()} will allocate from this scope (see
+ * {@link Interop#currentArena()}). Small allocations are sliced from larger
+ * slabs of memory. All memory is released in one step when the scope is
+ * closed.
+ * <p>
+ * Open a scope with {@link Interop#scope()} in a try-with-resources
+ * statement:
+ * {@snippet :
+ * try (var scope = Interop.scope()) {
+ *     var rect = new Rectangle(); // allocated in the scope
+ *     ...
+ * } // the memory of rect is released here
+ * }
+ * Scopes can be nested, and must be closed in reverse order, by the thread
+ * that opened them. The memory is confined to the thread, and cannot be
+ * accessed anymore after the scope is closed.
+ */
+public final class AllocationScope implements Arena {
+
+    private static final long SLAB_SIZE = 4096;
+    private static final long SLAB_ALIGNMENT = 16;
+    private static final ThreadLocal<AllocationScope> current = new ThreadLocal<>();
+
+    private final Arena arena = Arena.ofConfined();
+    private final AllocationScope parent;
+    private MemorySegment slab;
+    private long offset;
+
+    /*
+     * Open a new allocation scope for the current thread. Use
+     * Interop.scope() to create a scope.
+     */
+    AllocationScope() {
+        this.parent = current.get();
+        current.set(this);
+    }
+
+    /**
+     * Get the innermost open allocation scope of the current thread.
+     *
+     * @return the current allocation scope, or {@code null} when no scope is
+     *         open
+     */
+    public static AllocationScope current() {
+        return current.get();
+    }
+
+    /**
+     * Allocate a zero-initialized memory segment in this scope.
+     *
+     * @param  byteSize      the size (in bytes) of the memory segment
+     * @param  byteAlignment the alignment (in bytes) of the memory segment
+     * @return the new memory segment
+     */
+    @Override
+    public MemorySegment allocate(long byteSize, long byteAlignment) {
+        // Large allocations are not sliced from a slab
+        if (byteSize > SLAB_SIZE / 4 || byteAlignment > SLAB_ALIGNMENT)
+            return arena.allocate(byteSize, byteAlignment);
+
+        if (byteSize < 0 || byteAlignment <= 0 || Long.bitCount(byteAlignment) != 1)
+            throw new IllegalArgumentException("Invalid allocation size or alignment");
+
+        long start = slab == null ? 0 : align(offset, byteAlignment);
+        if (slab == null || start + byteSize > SLAB_SIZE) {
+            slab = arena.allocate(SLAB_SIZE, SLAB_ALIGNMENT);
+            start = 0;
+        }
+        offset = start + byteSize;
+        return slab.asSlice(start, byteSize);
+    }
+
+    // The slab is aligned to SLAB_ALIGNMENT, so the offset can be aligned
+    private static long align(long offset, long alignment) {
+        return (offset + alignment - 1) & -alignment;
+    }
+
+    @Override
+    public MemorySegment.Scope scope() {
+        return arena.scope();
+    }
+
+    /**
+     * Close this scope and release all memory that was allocated in it.
+     *
+     * @throws IllegalStateException when this is not the innermost open scope
+     *                               of the current thread
+     */
+    @Override
+    public void close() {
+        if (current.get() != this)
+            throw new IllegalStateException(
+                    "Allocation scopes must be closed in reverse order, by the thread that opened them");
+        arena.close();
+        if (parent == null)
+            current.remove();
+        else
+            current.set(parent);
+    }
+}
@@ -0,0 +1,151 @@
+/* Java-GI - Java language bindings for GObject-Introspection-based libraries
+ * Copyright (C) 2022-2024 Jan-Willem Harmannij
+ *
+ * SPDX-License-Identifier: LGPL-2.1-or-later
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.jwharm.javagi.interop;
+
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemorySegment;
+import java.lang.invoke.MethodHandle;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A bounded cache of downcall handles for function pointers, keyed by the
+ * address of the function and its function descriptor.
+ * <p>
+ * Virtual methods and other function pointers are called with a downcall
+ * handle that is created at runtime, because the address of the function is
+ * not known in advance. Linking a downcall handle is expensive, so the handles
+ * are cached and reused when the same function is called again.
+ * <p>
+ * When the cache is full, entries are evicted with the "clock" (second
+ * chance) algorithm: the entries are kept in a queue in insertion order. The
+ * eviction moves through the queue, and removes the first entry that has not
+ * been used since the last time it was visited. Used entries are marked as
+ * unused and moved to the back of the queue. This repeats until the cache
+ * is within its limit again, so frequently used handles stay in the cache.
+ * Lookups never block; only one thread at a time evicts entries.
+ */
+final class DowncallHandleCache {
+
+    // The maximum number of cached downcall handles
+    private static final int MAX_SIZE = 1024;
+
+    private static final Linker LINKER = Linker.nativeLinker();
+    private static final Map<Key, Entry> cache = new ConcurrentHashMap<>();
+    private static final Queue<Entry> clock = new ConcurrentLinkedQueue<>();
+    private static final AtomicBoolean evicting = new AtomicBoolean(false);
+
+    // Prevent instantiation
+    private DowncallHandleCache() {}
+
+    /**
+     * Get a cached downcall handle for the function at the provided memory
+     * address with the provided function descriptor. If the handle is not in
+     * the cache yet, it is created and added to the cache.
+     *
+     * @param  symbol memory address of the native function
+     * @param  fdesc  function descriptor of the native function
+     * @return the (cached) downcall handle
+     */
+    static MethodHandle get(MemorySegment symbol, FunctionDescriptor fdesc) {
+        Key key = new Key(symbol.address(), fdesc);
+        Entry entry = cache.get(key);
+
+        if (entry == null) {
+            Entry[] created = new Entry[1];
+            entry = cache.computeIfAbsent(key, _ -> created[0] =
+                    new Entry(key, LINKER.downcallHandle(symbol, fdesc)));
+
+            // Only the thread that created the entry adds it to the queue
+            if (created[0] != null) {
+                clock.add(created[0]);
+                if (cache.size() > MAX_SIZE)
+                    evict();
+            }
+        } else if (!entry.used) {
+            entry.used = true;
+        }
+
+        return entry.handle;
+    }
+
+    /*
+     * Remove entries from the front of the queue until the cache is within
+     * its limit. Entries that were used since they were last visited get a
+     * second chance: they are marked as unused and moved to the back of the
+     * queue. Every visited entry is either removed or marked as unused, so
+     * two passes through the queue are enough, unless other threads keep
+     * using the entries in the meantime. The number of visits is limited to
+     * two passes to guarantee progress in that case.
+     */
+    private static void evict() {
+        // Another thread is already evicting entries
+        if (!evicting.compareAndSet(false, true))
+            return;
+
+        try {
+            int visits = 2 * cache.size();
+            while (cache.size() > MAX_SIZE && visits-- > 0) {
+                Entry entry = clock.poll();
+                if (entry == null)
+                    break;
+
+                if (entry.used) {
+                    entry.used = false;
+                    clock.add(entry);
+                } else {
+                    cache.remove(entry.key, entry);
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    /**
+     * The key of a cached downcall handle.
+     *
+     * @param address memory address of the native function
+     * @param fdesc   function descriptor of the native function
+     */
+    private record Key(long address, FunctionDescriptor fdesc) {
+    }
+
+    /*
+     * A cached downcall handle, with a flag that is set when the handle is
+     * used. New entries start as unused: they are added to the back of the
+     * queue, so they are only evicted when they are not used again during a
+     * full pass through the queue.
+     */
+    private static final class Entry {
+        private final Key key;
+        private final MethodHandle handle;
+        private volatile boolean used;
+
+        private Entry(Key key, MethodHandle handle) {
+            this.key = key;
+            this.handle = handle;
+        }
+    }
+}
@@ -24,7 +24,6 @@ import java.lang.invoke.*;
 import java.lang.ref.Cleaner;
 import java.lang.reflect.Array;
 import java.util.*;
-import java.util.Arrays;
 import java.util.function.Function;
 
 import io.github.jwharm.javagi.base.Enumeration;
@@ -94,16 +93,18 @@ public class Interop {
     }
 
     /**
-     * Create a method handle that is used to call the native function at the
-     * provided memory address.
+     * Get a method handle that is used to call the native function at the
+     * provided memory address. This is used to call function pointers, for
+     * example virtual methods. The method handles are cached, so repeated
+     * calls to the same function will not link a new downcall handle.
      *
      * @param  symbol memory address of the native function
      * @param  fdesc  function descriptor of the native function
-     * @return the newly created MethodHandle
+     * @return the (cached) MethodHandle
      */
     public static MethodHandle downcallHandle(MemorySegment symbol,
                                               FunctionDescriptor fdesc) {
-        return LINKER.downcallHandle(symbol, fdesc);
+        return DowncallHandleCache.get(symbol, fdesc);
     }
 
     /**
@@ -155,6 +156,30 @@ public class Interop {
         return arena;
     }
 
+    /**
+     * Open a new {@link AllocationScope} for the current thread. Until the
+     * scope is closed, records that are allocated without an explicit arena
+     * are allocated in this scope, and are released when the scope is
+     * closed.
+     *
+     * @return the new allocation scope
+     */
+    public static AllocationScope scope() {
+        return new AllocationScope();
+    }
+
+    /**
+     * Get the arena that is used to allocate records without an explicit
+     * arena: the current {@link AllocationScope} of this thread, or a new
+     * {@link Arena#ofAuto()} when no scope is open.
+     *
+     * @return the arena for the allocation
+     */
+    public static Arena currentArena() {
+        AllocationScope scope = AllocationScope.current();
+        return scope != null ? scope : Arena.ofAuto();
+    }
+
     /**
      * Reinterpret {@code address} to {@code newSize} iff {@code newSize} is
      * larger than the current size of {@code address}.
@@ -173,7 +198,10 @@ public class Interop {
     }
 
     /**
-     * Get a GType by executing the provided get-type function.
+     * Get a GType by executing the provided get-type function. All get-type
+     * functions are called with one shared downcall handle, and the result is
+     * cached, so repeated calls for the same function do not call into native
+     * code again.
      *
      * @return the gtype from the provided get-type function
      */
@@ -182,16 +210,7 @@ public class Interop {
         if (getTypeFunction == null)
             return null;
 
-        FunctionDescriptor fdesc = FunctionDescriptor.of(ValueLayout.JAVA_LONG);
-
-        try {
-            MethodHandle handle = downcallHandle(getTypeFunction, fdesc, false);
-            if (handle == null)
-                return null;
-            return new Type((long) handle.invokeExact());
-        } catch (Throwable err) {
-            throw new AssertionError("Unexpected exception occurred: ", err);
-        }
+        return TypeResolver.get(getTypeFunction);
     }
 
     /**
@@ -417,11 +436,15 @@ public class Interop {
                                                 Arena arena,
                                                 boolean free) {
 
-        int[] intArray = getIntegerArrayFrom(address, length, arena, free);
-        boolean[] array = new boolean[intArray.length];
+        long size = ValueLayout.JAVA_INT.byteSize();
+        MemorySegment segment = address.reinterpret(length * size, arena, null);
+        boolean[] array = new boolean[(int) length];
+
+        for (int c = 0; c < array.length; c++)
+            array[c] = segment.getAtIndex(ValueLayout.JAVA_INT, c) != 0;
 
-        for (int c = 0; c < intArray.length; c++)
-            array[c] = (intArray[c] != 0);
+        if (free)
+            GLib.free(address);
 
         return array;
     }
@@ -758,6 +781,43 @@ public class Interop {
         return result;
     }
 
+    /*
+     * Allocate a native array with one extra element, and copy the elements
+     * of a primitive Java array into it in one bulk copy. The allocated
+     * memory is zero-initialized, so the terminating zero is already in place.
+     */
+    private static MemorySegment allocateZeroTerminated(ValueLayout layout,
+                                                        Object array,
+                                                        int length,
+                                                        SegmentAllocator allocator) {
+        MemorySegment segment = allocator.allocate(layout, length + 1L);
+        MemorySegment.copy(array, 0, segment, layout, 0, length);
+        return segment;
+    }
+
+    /**
+     * Get a view of a native array with the requested length, without copying
+     * the array contents into a Java array. This is useful for large buffers,
+     * for example pixel or audio data. The view can be converted to a
+     * primitive buffer with {@link MemorySegment#asByteBuffer()}.
+     *
+     * @param  address address of the native array
+     * @param  layout  the memory layout of an array element
+     * @param  length  number of elements in the array
+     * @param  arena   the memory scope of the view
+     * @return a memory segment that spans the native array, or
+     *         {@link MemorySegment#NULL} when the address is {@code NULL}
+     */
+    public static MemorySegment getArraySegment(MemorySegment address,
+                                                MemoryLayout layout,
+                                                long length,
+                                                Arena arena) {
+        if (address == null || NULL.equals(address))
+            return NULL;
+
+        return address.reinterpret(layout.byteSize() * length, arena, null);
+    }
+
     /**
      * Allocate and initialize an (optionally {@code NULL}-terminated) array of
      * strings ({@code NULL}-terminated utf8 {@code char*}).
@@ -786,8 +846,8 @@ public class Interop {
     }
 
     /**
-     * Convert a boolean[] array into an int[] array, and calls
-     * {@link #allocateNativeArray(int[], boolean, Arena)}.
+     * Allocate and initialize an (optionally {@code NULL}-terminated) array of
+     * integers from a boolean[] array.
      * Each boolean value "true" is converted 1, boolean value "false" to 0.
      *
      * @param  array          array of booleans
@@ -798,12 +858,13 @@ public class Interop {
     public static MemorySegment allocateNativeArray(boolean[] array,
                                                     boolean zeroTerminated,
                                                     Arena arena) {
-        int[] intArray = new int[array.length];
-        for (int i = 0; i < array.length; i++) {
-            intArray[i] = array[i] ? 1 : 0;
-        }
+        int length = zeroTerminated ? array.length + 1 : array.length;
+        MemorySegment segment = arena.allocate(ValueLayout.JAVA_INT, length);
+        for (int i = 0; i < array.length; i++)
+            if (array[i])
+                segment.setAtIndex(ValueLayout.JAVA_INT, i, 1);
 
-        return allocateNativeArray(intArray, zeroTerminated, arena);
+        return segment;
     }
 
     /**
@@ -818,11 +879,9 @@ public class Interop {
     public static MemorySegment allocateNativeArray(byte[] array,
                                                     boolean zeroTerminated,
                                                     Arena arena) {
-        byte[] copy = zeroTerminated ?
-                Arrays.copyOf(array, array.length + 1)
-                : array;
-
-        return arena.allocateFrom(ValueLayout.JAVA_BYTE, copy);
+        return zeroTerminated
+                ? allocateZeroTerminated(ValueLayout.JAVA_BYTE, array, array.length, arena)
+                : arena.allocateFrom(ValueLayout.JAVA_BYTE, array);
     }
 
     /**
@@ -837,11 +896,9 @@ public class Interop {
     public static MemorySegment allocateNativeArray(char[] array,
                                                     boolean zeroTerminated,
                                                     Arena arena) {
-        char[] copy = zeroTerminated ?
-                Arrays.copyOf(array, array.length + 1)
-                : array;
-
-        return arena.allocateFrom(ValueLayout.JAVA_CHAR, copy);
+        return zeroTerminated
+                ? allocateZeroTerminated(ValueLayout.JAVA_CHAR, array, array.length, arena)
+                : arena.allocateFrom(ValueLayout.JAVA_CHAR, array);
     }
 
     /**
@@ -856,11 +913,9 @@ public class Interop {
     public static MemorySegment allocateNativeArray(double[] array,
                                                     boolean zeroTerminated,
                                                     Arena arena) {
-        double[] copy = zeroTerminated ?
-                Arrays.copyOf(array, array.length + 1)
-                : array;
-
-        return arena.allocateFrom(ValueLayout.JAVA_DOUBLE, copy);
+        return zeroTerminated
+                ? allocateZeroTerminated(ValueLayout.JAVA_DOUBLE, array, array.length, arena)
+                : arena.allocateFrom(ValueLayout.JAVA_DOUBLE, array);
     }
 
     /**
@@ -875,11 +930,9 @@ public class Interop {
     public static MemorySegment allocateNativeArray(float[] array,
                                                     boolean zeroTerminated,
                                                     Arena arena) {
-        float[] copy = zeroTerminated ?
-                Arrays.copyOf(array, array.length + 1)
-                : array;
-
-        return arena.allocateFrom(ValueLayout.JAVA_FLOAT, copy);
+        return zeroTerminated
+                ? allocateZeroTerminated(ValueLayout.JAVA_FLOAT, array, array.length, arena)
+                : arena.allocateFrom(ValueLayout.JAVA_FLOAT, array);
     }
 
     /**
@@ -894,10 +947,9 @@ public class Interop {
     public static MemorySegment allocateNativeArray(int[] array,
                                                     boolean zeroTerminated,
                                                     Arena arena) {
-        int[] copy = zeroTerminated ?
-                Arrays.copyOf(array, array.length + 1)
-                : array;
-        return arena.allocateFrom(ValueLayout.JAVA_INT, copy);
+        return zeroTerminated
+                ? allocateZeroTerminated(ValueLayout.JAVA_INT, array, array.length, arena)
+                : arena.allocateFrom(ValueLayout.JAVA_INT, array);
     }
 
     /**
@@ -912,11 +964,9 @@ public class Interop {
     public static MemorySegment allocateNativeArray(long[] array,
                                                     boolean zeroTerminated,
                                                     Arena arena) {
-        long[] copy = zeroTerminated ?
-                Arrays.copyOf(array, array.length + 1)
-                : array;
-
-        return arena.allocateFrom(ValueLayout.JAVA_LONG, copy);
+        return zeroTerminated
+                ? allocateZeroTerminated(ValueLayout.JAVA_LONG, array, array.length, arena)
+                : arena.allocateFrom(ValueLayout.JAVA_LONG, array);
     }
 
     /**
@@ -931,11 +981,9 @@ public class Interop {
     public static MemorySegment allocateNativeArray(short[] array,
                                                     boolean zeroTerminated,
                                                     Arena arena) {
-        short[] copy = zeroTerminated ?
-                Arrays.copyOf(array, array.length + 1)
-                : array;
-
-        return arena.allocateFrom(ValueLayout.JAVA_SHORT, copy);
+        return zeroTerminated
+                ? allocateZeroTerminated(ValueLayout.JAVA_SHORT, array, array.length, arena)
+                : arena.allocateFrom(ValueLayout.JAVA_SHORT, array);
     }
 
     /**
@@ -1,5 +1,5 @@
 /* Java-GI - Java language bindings for GObject-Introspection-based libraries
- * Copyright (C) 2022-2023 Jan-Willem Harmannij
+ * Copyright (C) 2022-2024 Jan-Willem Harmannij
  *
  * SPDX-License-Identifier: LGPL-2.1-or-later
  *
@@ -28,9 +28,13 @@ import java.lang.foreign.FunctionDescriptor;
 import java.lang.foreign.MemorySegment;
 import java.lang.foreign.ValueLayout;
 import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.VarHandle;
 import java.lang.ref.Cleaner;
-import java.util.HashMap;
+import java.lang.ref.WeakReference;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static java.util.Objects.requireNonNull;
 
@@ -48,11 +52,21 @@ import static java.util.Objects.requireNonNull;
  * will not free the memory. Ownership is enabled/disabled with
  * {@link #takeOwnership(Proxy)} and
  * {@link #yieldOwnership(Proxy)}.
+ * <p>
+ * The cache is an {@link AddressMap} keyed by the raw memory address. The
+ * state of a cached address is updated in-place, so the methods in this class
+ * do not allocate (except when a new Proxy object is registered) and do not
+ * need a global lock.
  */
 public class MemoryCleaner {
 
     private static final Cleaner CLEANER = Cleaner.create();
-    private static final Map<MemorySegment, Cached> cache = new HashMap<>();
+    private static final AddressMap<Cached> cache = new AddressMap<>();
+
+    // Method handles for the specialized free functions, by function name
+    private static final Map<String, MethodHandle> freeFuncs = new ConcurrentHashMap<>();
+    private static final FunctionDescriptor FREE_FUNC_DESCRIPTOR =
+            FunctionDescriptor.ofVoid(ValueLayout.ADDRESS);
 
     /**
      * Register the memory address of this proxy to be cleaned when the proxy
@@ -62,24 +76,25 @@ public class MemoryCleaner {
      */
     private static @NotNull Cached getOrRegister(@NotNull Proxy proxy) {
         MemorySegment address = proxy.handle();
-        synchronized (cache) {
-            Cached cached = cache.get(address);
+        long key = address.address();
+        while (true) {
+            Cached cached = cache.get(key);
             if (cached == null) {
                 // Put the address in the cache
-                var finalizer = new StructFinalizer(address);
-                var cleanable = CLEANER.register(proxy, finalizer);
-                cached = new Cached(false, 1, null, null, cleanable);
-                cache.put(address, cached);
-            } else {
-                // Already in the cache: increase the refcount
-                cached = new Cached(false,
-                        cached.references + 1,
-                        cached.freeFunc,
-                        cached.boxedType,
-                        cached.cleanable);
-                cache.put(address, cached);
+                Cached created = new Cached(address);
+                cached = cache.putIfAbsent(key, created);
+                if (cached == null)
+                    cached = created;
             }
-            return cached;
+
+            // Increase the refcount
+            if (cached.register(proxy))
+                return cached;
+
+            // The last reference was released concurrently, but the finalizer
+            // has not yet removed the address from the cache. Remove it, and
+            // try again.
+            cache.remove(key, cached);
         }
     }
 
@@ -94,14 +109,19 @@ public class MemoryCleaner {
                                    @NotNull String freeFunc) {
         requireNonNull(proxy);
         requireNonNull(freeFunc);
-        synchronized (cache) {
-            Cached cached = getOrRegister(proxy);
-            cache.put(proxy.handle(), new Cached(cached.owned,
-                                               cached.references,
-                                               freeFunc,
-                                               cached.boxedType,
-                                               cached.cleanable));
-        }
+        getOrRegister(proxy).freeFunc = freeFuncs.computeIfAbsent(
+                freeFunc, MemoryCleaner::lookupFreeFunc);
+    }
+
+    /*
+     * Create a method handle for the free function with the provided name.
+     * When the function does not exist, the memory cannot be released, so a
+     * method handle is returned that does nothing.
+     */
+    private static MethodHandle lookupFreeFunc(String name) {
+        MethodHandle handle = Interop.downcallHandle(name, FREE_FUNC_DESCRIPTOR, false);
+        return handle != null ? handle : MethodHandles.empty(
+                MethodType.methodType(void.class, MemorySegment.class));
     }
 
     /**
@@ -115,14 +135,7 @@ public class MemoryCleaner {
                                     @NotNull Type boxedType) {
         requireNonNull(proxy);
         requireNonNull(boxedType);
-        synchronized (cache) {
-            Cached cached = getOrRegister(proxy);
-            cache.put(proxy.handle(), new Cached(cached.owned,
-                                                cached.references,
-                                                cached.freeFunc,
-                                                boxedType,
-                                                cached.cleanable));
-        }
+        getOrRegister(proxy).boxedType = boxedType;
     }
 
     /**
@@ -133,14 +146,7 @@ public class MemoryCleaner {
      */
     public static void takeOwnership(@NotNull Proxy proxy) {
         requireNonNull(proxy);
-        synchronized (cache) {
-            Cached cached = getOrRegister(proxy);
-            cache.put(proxy.handle(), new Cached(true,
-                                               cached.references,
-                                               cached.freeFunc,
-                                               cached.boxedType,
-                                               cached.cleanable));
-        }
+        getOrRegister(proxy).owned = true;
     }
 
     /**
@@ -151,51 +157,142 @@ public class MemoryCleaner {
      */
     public static void yieldOwnership(@NotNull Proxy proxy) {
         requireNonNull(proxy);
-        synchronized (cache) {
-            Cached cached = getOrRegister(proxy);
-            cache.put(proxy.handle(), new Cached(false,
-                                               cached.references,
-                                               cached.freeFunc,
-                                               cached.boxedType,
-                                               cached.cleanable));
-        }
+        getOrRegister(proxy).owned = false;
     }
 
     /**
-     * Run the {@link StructFinalizer} associated with this memory address, by
-     * invoking {@link Cleaner.Cleanable#clean()}.
+     * Immediately release the memory address (if it is owned), regardless of
+     * the number of proxy objects that still refer to it. The address is
+     * removed from the cache, so the memory will not be released again when
+     * the proxy objects are garbage-collected.
      *
      * @param address the memory address to free
      */
     public static void free(MemorySegment address) {
-        synchronized (cache) {
-            Cached cached = cache.get(address);
-            if (cached != null)
-                cached.cleanable.clean();
-        }
+        Cached cached = cache.get(address.address());
+        if (cached != null && cached.kill())
+            cached.release();
     }
 
     /**
-     * This record type is cached for each memory address.
-     *
-     * @param owned      whether this address is owned (should be cleaned)
-     * @param references the number of references (active Proxy objects) for
-     *                   this address
-     * @param freeFunc   an (optional) specialized function that will release
-     *                   the native memory
+     * The state that is cached for each memory address. The state is updated
+     * in-place: the reference count is changed with atomic operations, and
+     * the other fields are volatile.
      */
-    private record Cached(boolean owned,
-                          int references,
-                          String freeFunc,
-                          Type boxedType,
-                          Cleaner.Cleanable cleanable) {
+    private static final class Cached {
+
+        private static final VarHandle REFERENCES;
+
+        static {
+            try {
+                REFERENCES = MethodHandles.lookup().findVarHandle(
+                        Cached.class, "references", int.class);
+            } catch (NoSuchFieldException | IllegalAccessException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        // The memory address
+        final MemorySegment address;
+
+        // The number of references (active Proxy objects) for this address.
+        // When the last reference is released, it is set to -1, and the
+        // entry cannot be used anymore.
+        @SuppressWarnings("unused") // accessed with the REFERENCES VarHandle
+        private int references;
+
+        // The most recently registered Proxy object. When a Proxy object is
+        // used multiple times (for example, takeOwnership() followed by
+        // setFreeFunc()), it is only counted once.
+        private volatile WeakReference<Proxy> registered;
+
+        // Whether this address is owned (should be cleaned)
+        volatile boolean owned;
+
+        // An (optional) specialized function that will release the memory
+        volatile MethodHandle freeFunc;
+
+        // For boxed types, g_boxed_free() will release the memory
+        volatile Type boxedType;
+
+        Cached(MemorySegment address) {
+            this.address = address;
+        }
+
+        /*
+         * Increase the reference count and register a cleaner for the proxy,
+         * unless the proxy has already been registered. Returns false when
+         * the entry has already been released.
+         */
+        boolean register(Proxy proxy) {
+            WeakReference<Proxy> ref = registered;
+            if (ref != null && ref.get() == proxy)
+                return (int) REFERENCES.getVolatile(this) > 0;
+
+            int refs;
+            do {
+                refs = (int) REFERENCES.getVolatile(this);
+                if (refs < 0)
+                    return false;
+            } while (!REFERENCES.compareAndSet(this, refs, refs + 1));
+
+            CLEANER.register(proxy, new StructFinalizer(this));
+            registered = new WeakReference<>(proxy);
+            return true;
+        }
+
+        /*
+         * Decrease the reference count. Returns true when this was the last
+         * reference.
+         */
+        boolean unregister() {
+            int refs = (int) REFERENCES.getAndAdd(this, -1) - 1;
+            return refs == 0 && REFERENCES.compareAndSet(this, 0, -1);
+        }
+
+        /*
+         * Mark the entry as released. Returns false when it was already
+         * released.
+         */
+        boolean kill() {
+            return (int) REFERENCES.getAndSet(this, -1) >= 0;
+        }
+
+        /*
+         * Remove the address from the cache and free the memory.
+         */
+        void release() {
+            cache.remove(address.address(), this);
+
+            // if we don't have ownership, we must not run free()
+            if (!owned)
+                return;
+
+            Type type = boxedType;
+            MethodHandle func = freeFunc;
+            try {
+                if (type != null) {
+                    // free boxed type
+                    long gtype = type.getValue();
+                    StructFinalizer.g_boxed_free.invokeExact(gtype, address);
+                } else if (func != null) {
+                    // Run specialized free function
+                    func.invokeExact(address);
+                } else {
+                    // run g_free
+                    GLib.free(address);
+                }
+            } catch (Throwable err) {
+                throw new AssertionError(err);
+            }
+        }
     }
 
     /**
      * This callback is run by the {@link Cleaner} when a struct or union
      * instance has become unreachable, to free the native memory.
      */
-    private record StructFinalizer(MemorySegment address) implements Runnable {
+    private record StructFinalizer(Cached cached) implements Runnable {
 
         private static final MethodHandle g_boxed_free = Interop.downcallHandle(
                 "g_boxed_free",
@@ -205,56 +302,14 @@ public class MemoryCleaner {
         );
 
         /**
-         * This method is run by the {@link Cleaner} when the last Proxy object
-         * for this memory address is garbage-collected.
+         * This method is run by the {@link Cleaner} when a Proxy object for
+         * this memory address is garbage-collected. When no other references
+         * exist, the address is removed from the cache and the memory is
+         * released.
          */
         public void run() {
-            Cached cached;
-            synchronized (cache) {
-                cached = cache.get(address);
-
-                // When other references exist, decrease the refcount
-                if (cached.references > 1) {
-                    cache.put(address, new Cached(cached.owned,
-                                                       cached.references - 1,
-                                                       cached.freeFunc,
-                                                       cached.boxedType,
-                                                       cached.cleanable));
-                    return;
-                }
-
-                // When no other references exist, remove the address from the
-                // cache and free the memory
-                cache.remove(address);
-            }
-
-            // if we don't have ownership, we must not run free()
-            if (!cached.owned) {
-                return;
-            }
-
-            // run g_free
-            if (cached.freeFunc == null) {
-                GLib.free(address);
-                return;
-            }
-
-            try {
-                if (cached.boxedType != null) {
-                    // free boxed type
-                    long gtype = cached.boxedType.getValue();
-                    g_boxed_free.invokeExact(gtype, address);
-                } else {
-                    // Run specialized free function
-                    Interop.downcallHandle(
-                            cached.freeFunc,
-                            FunctionDescriptor.ofVoid(ValueLayout.ADDRESS),
-                            false
-                    ).invokeExact(address);
-                }
-            } catch (Throwable err) {
-                throw new AssertionError(err);
-            }
+            if (cached.unregister())
+                cached.release();
         }
     }
 }
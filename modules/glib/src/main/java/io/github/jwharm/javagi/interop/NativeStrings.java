@@ -0,0 +1,134 @@
+/* Java-GI - Java language bindings for GObject-Introspection-based libraries
+ * Copyright (C) 2022-2024 Jan-Willem Harmannij
+ *
+ * SPDX-License-Identifier: LGPL-2.1-or-later
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.jwharm.javagi.interop;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.lang.foreign.MemorySegment.NULL;
+
+/**
+ * Caches for native UTF-8 strings.
+ * <p>
+ * Many strings that are passed to native functions (property names, signal
+ * names, action names, CSS classes) are the same few hundred literals. This
+ * class has caches for native strings that are used repeatedly:
+ * <ul>
+ *   <li>{@link #constant(String)} encodes a string once into the global
+ *       arena. It is used by generated code for string literals.
+ *   <li>{@link #intern(String)} returns a native string from a bounded
+ *       cache. Evicted native strings are released when they are no longer
+ *       reachable.
+ * </ul>
+ * Native strings that are returned from these caches are shared, and must
+ * not be modified or freed.
+ */
+public final class NativeStrings {
+
+    // Maximum number of strings in the intern cache
+    private static final int MAX_INTERNED = 1024;
+
+    // Longer strings are not interned
+    private static final int MAX_INTERNED_LENGTH = 256;
+
+    private static final ConcurrentHashMap<String, MemorySegment> constants
+            = new ConcurrentHashMap<>();
+
+    private static final ConcurrentHashMap<String, MemorySegment> interned
+            = new ConcurrentHashMap<>();
+
+    private NativeStrings() {
+    }
+
+    /**
+     * Get a native copy of a string that never changes, for example a string
+     * literal in generated code. The native string is allocated in the global
+     * arena the first time this method is called for the string, and is never
+     * released.
+     *
+     * @param  string a constant string
+     * @return the native string
+     */
+    public static MemorySegment constant(String string) {
+        MemorySegment segment = constants.get(string);
+        if (segment != null)
+            return segment;
+        return constants.computeIfAbsent(string,
+                s -> Arena.global().allocateFrom(s));
+    }
+
+    /**
+     * Get a native copy of a string from the intern cache. When the string is
+     * not in the cache, it is added to the cache. The cache is bounded: when
+     * it is full, another string is evicted. An evicted native string is
+     * released by the garbage collector when it is no longer reachable, so a
+     * MemorySegment returned by this method remains valid as long as it is
+     * referenced.
+     * <p>
+     * Long strings are not added to the cache.
+     *
+     * @param  string the string to intern (can be {@code null})
+     * @return the native string, or {@link MemorySegment#NULL} when the string
+     *         is {@code null}
+     */
+    public static MemorySegment intern(String string) {
+        if (string == null)
+            return NULL;
+
+        MemorySegment segment = interned.get(string);
+        if (segment != null)
+            return segment;
+
+        segment = Arena.ofAuto().allocateFrom(string);
+        if (string.length() > MAX_INTERNED_LENGTH)
+            return segment;
+
+        MemorySegment existing = interned.putIfAbsent(string, segment);
+        if (existing != null)
+            return existing;
+
+        // Concurrent threads can add strings at the same time, so evict
+        // until the cache is within its bound again
+        while (interned.size() > MAX_INTERNED)
+            evict();
+        return segment;
+    }
+
+    /**
+     * Get the number of strings in the intern cache.
+     *
+     * @return the number of interned strings
+     */
+    public static int internedCount() {
+        return interned.size();
+    }
+
+    // Remove an arbitrary entry from the intern cache. The removed native
+    // string remains valid while it is referenced.
+    private static void evict() {
+        Iterator<String> it = interned.keySet().iterator();
+        if (it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/* Java-GI - Java language bindings for GObject-Introspection-based libraries
+ * Copyright (C) 2022-2024 Jan-Willem Harmannij
+ *
+ * SPDX-License-Identifier: LGPL-2.1-or-later
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.jwharm.javagi.interop;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+
+/**
+ * A short-lived arena for the transient memory allocations of a native
+ * function call: strings, out-parameters, GError pointers and similar.
+ * <p>
+ * Every thread has a scratch buffer. An opened ScratchArena allocates from
+ * this buffer by bumping a pointer, and resets the pointer when it is closed.
+ * ScratchArenas can be nested (for example, during an upcall that performs
+ * another native function call), and must be closed in reverse order.
+ * <p>
+ * Every ScratchArena has a confined arena that is closed together with the
+ * ScratchArena. When the buffer is full, or for large requests, memory is
+ * allocated from this confined arena. Segments that are sliced from the
+ * scratch buffer, upcall stubs and reinterpreted segments are bound to its
+ * scope as well, so they cannot be accessed after the ScratchArena is closed
+ * (and the buffer is reused). Use it in a try-with-resources statement:
+ * {@snippet :
+ * try (var arena = ScratchArena.open()) {
+ *     MemorySegment str = arena.allocateFrom("abc");
+ *     ...
+ * }
+ * }
+ */
+public final class ScratchArena implements Arena {
+
+    private static final long BUFFER_SIZE = 8192;
+    private static final long MAX_ALIGNMENT = 16;
+
+    /*
+     * The scratch buffer of a thread. The buffer itself is allocated with
+     * Arena.ofAuto(), so it is released when the thread has ended.
+     */
+    private static final class Buffer {
+        final MemorySegment segment = Arena.ofAuto().allocate(BUFFER_SIZE, MAX_ALIGNMENT);
+        long offset;
+        ScratchArena top;
+    }
+
+    private static final ThreadLocal<Buffer> buffers = ThreadLocal.withInitial(Buffer::new);
+
+    private final Buffer buffer;
+    private final Thread owner;
+    private final ScratchArena parent;
+    private final long mark;
+    private Arena session;
+    private boolean closed;
+
+    private ScratchArena(Buffer buffer) {
+        this.buffer = buffer;
+        this.owner = Thread.currentThread();
+        this.parent = buffer.top;
+        this.mark = buffer.offset;
+        buffer.top = this;
+    }
+
+    /**
+     * Open a new ScratchArena for the current thread.
+     *
+     * @return the new ScratchArena
+     */
+    public static ScratchArena open() {
+        return new ScratchArena(buffers.get());
+    }
+
+    /**
+     * Allocate a zero-initialized memory segment. The memory is released when
+     * this ScratchArena is closed.
+     *
+     * @param  byteSize      the size (in bytes) of the memory segment
+     * @param  byteAlignment the alignment (in bytes) of the memory segment
+     * @return the new memory segment
+     */
+    @Override
+    public MemorySegment allocate(long byteSize, long byteAlignment) {
+        checkOpen();
+        if (byteSize < 0 || byteAlignment <= 0 || Long.bitCount(byteAlignment) != 1)
+            throw new IllegalArgumentException("Invalid allocation size or alignment");
+
+        // Only the innermost ScratchArena can allocate from the buffer
+        if (buffer.top == this && byteAlignment <= MAX_ALIGNMENT) {
+            long start = (buffer.offset + byteAlignment - 1) & -byteAlignment;
+            if (start + byteSize <= BUFFER_SIZE) {
+                buffer.offset = start + byteSize;
+                return buffer.segment.asSlice(start, byteSize)
+                        .reinterpret(session(), null)
+                        .fill((byte) 0);
+            }
+        }
+
+        // Fallback for large requests, or when the buffer is full
+        return session().allocate(byteSize, byteAlignment);
+    }
+
+    /**
+     * The scope of a ScratchArena is the scope of a confined arena that is
+     * closed together with the ScratchArena. All segments that are allocated
+     * from this ScratchArena, and upcall stubs and reinterpreted memory
+     * segments, are bound to this scope.
+     *
+     * @return the scope of this ScratchArena
+     */
+    @Override
+    public MemorySegment.Scope scope() {
+        checkOpen();
+        return session().scope();
+    }
+
+    /**
+     * Close this ScratchArena. The memory that was allocated from the scratch
+     * buffer becomes available for the next call.
+     *
+     * @throws IllegalStateException when this is not the innermost open
+     *                               ScratchArena of the current thread
+     */
+    @Override
+    public void close() {
+        checkOpen();
+        if (buffer.top != this)
+            throw new IllegalStateException(
+                    "ScratchArenas must be closed in reverse order, by the thread that opened them");
+        closed = true;
+        buffer.offset = mark;
+        buffer.top = parent;
+        if (session != null)
+            session.close();
+    }
+
+    // The confined arena is created when it is first needed
+    private Arena session() {
+        if (session == null)
+            session = Arena.ofConfined();
+        return session;
+    }
+
+    private void checkOpen() {
+        if (closed)
+            throw new IllegalStateException("ScratchArena is already closed");
+        if (Thread.currentThread() != owner)
+            throw new WrongThreadException("ScratchArena is confined to another thread");
+    }
+}
@@ -0,0 +1,169 @@
+/* Java-GI - Java language bindings for GObject-Introspection-based libraries
+ * Copyright (C) 2022-2024 Jan-Willem Harmannij
+ *
+ * SPDX-License-Identifier: LGPL-2.1-or-later
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.jwharm.javagi.interop;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Upcall stubs that are shared by all instances of a callback interface.
+ * <p>
+ * Creating an upcall stub for every callback instance is expensive: it
+ * generates executable code, and needs an arena to release it. When a native
+ * function accepts a {@code user_data} pointer that is passed back to the
+ * callback, one static upcall stub per callback interface is enough. The
+ * Java callback instance is registered in a handler table, and its key is
+ * passed as the {@code user_data} pointer. The shared upcall method looks up
+ * the callback instance in the table and calls it.
+ * <p>
+ * A callback interface that supports shared upcall stubs declares a static
+ * method {@code sharedUpcall} with the native parameter types of the callback
+ * and a trailing {@code MemorySegment} for the {@code user_data} pointer.
+ */
+public final class SharedUpcalls {
+
+    private static final AddressMap<Object> handlers = new AddressMap<>();
+    private static final AtomicLong nextKey = new AtomicLong(1);
+    private static final ConcurrentHashMap<Class<?>, MemorySegment> stubs
+            = new ConcurrentHashMap<>();
+
+    private SharedUpcalls() {
+    }
+
+    /**
+     * Get the shared upcall stub for the provided callback interface. The
+     * stub is created the first time this method is called for the class,
+     * and is never released.
+     *
+     * @param  cls        the callback interface
+     * @param  lookup     a lookup object with access to the static
+     *                    {@code sharedUpcall} method in the interface
+     * @param  descriptor the function descriptor of the callback, including
+     *                    the {@code user_data} parameter
+     * @return the shared upcall stub
+     */
+    public static MemorySegment stub(Class<?> cls,
+                                     MethodHandles.Lookup lookup,
+                                     FunctionDescriptor descriptor) {
+        MemorySegment stub = stubs.get(cls);
+        if (stub != null)
+            return stub;
+
+        return stubs.computeIfAbsent(cls, c -> {
+            try {
+                MethodHandle handle = lookup.findStatic(c, "sharedUpcall",
+                        descriptor.toMethodType());
+                return Linker.nativeLinker().upcallStub(handle, descriptor,
+                        Arena.global());
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    /**
+     * Register a callback instance in the handler table.
+     *
+     * @param  handler the callback instance
+     * @return the key of the callback instance, to be used as the
+     *         {@code user_data} pointer
+     */
+    public static MemorySegment register(Object handler) {
+        long key = nextKey.getAndIncrement();
+        handlers.put(key, handler);
+        return MemorySegment.ofAddress(key);
+    }
+
+    /**
+     * Get the callback instance for the provided {@code user_data} pointer.
+     *
+     * @param  userData the key of the callback instance
+     * @return the callback instance
+     * @throws IllegalStateException when no callback instance is registered
+     *                               for the key
+     */
+    public static Object get(MemorySegment userData) {
+        Object handler = handlers.get(userData.address());
+        if (handler == null)
+            throw new IllegalStateException(
+                    "No callback registered for key " + userData.address());
+        return handler;
+    }
+
+    /**
+     * Remove a callback instance from the handler table.
+     *
+     * @param userData the key of the callback instance
+     */
+    public static void unregister(MemorySegment userData) {
+        handlers.remove(userData.address());
+    }
+
+    /**
+     * Get the number of registered callback instances.
+     *
+     * @return the number of registered callback instances
+     */
+    public static int size() {
+        return handlers.size();
+    }
+
+    /**
+     * Get a function pointer to a {@code GClosureNotify} (or
+     * {@code GDestroyNotify}) function that removes the callback instance
+     * from the handler table. The {@code user_data} pointer is the first
+     * parameter of both function types.
+     *
+     * @return the function pointer
+     */
+    public static MemorySegment destroyNotify() {
+        return DestroyNotify.STUB;
+    }
+
+    // The upcall stub is created when it is used for the first time
+    private static final class DestroyNotify {
+        private static final MemorySegment STUB;
+
+        static {
+            var descriptor = FunctionDescriptor.ofVoid(
+                    ValueLayout.ADDRESS, ValueLayout.ADDRESS);
+            try {
+                MethodHandle handle = MethodHandles.lookup().findStatic(
+                        DestroyNotify.class, "destroy",
+                        descriptor.toMethodType());
+                STUB = Linker.nativeLinker().upcallStub(handle, descriptor,
+                        Arena.global());
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private static void destroy(MemorySegment data, MemorySegment closure) {
+            unregister(data);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/* Java-GI - Java language bindings for GObject-Introspection-based libraries
+ * Copyright (C) 2024 Jan-Willem Harmannij
+ *
+ * SPDX-License-Identifier: LGPL-2.1-or-later
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.github.jwharm.javagi.interop;
+
+import org.gnome.glib.Type;
+
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves GTypes by calling get-type functions, for example
+ * {@code gtk_widget_get_type}.
+ * <p>
+ * All get-type functions have the same signature ({@code GType (*)(void)}),
+ * so one downcall handle is linked for all of them, and the address of the
+ * function is passed as the first argument. The resolved GTypes are cached by
+ * the name of the get-type function: a get-type function always returns the
+ * same GType once the type is registered, and the generated bindings call
+ * the get-type function every time the GType is requested. A new
+ * {@link Type} instance is returned for every call, because Type is mutable.
+ */
+final class TypeResolver {
+
+    private static final Map<String, Long> cache = new ConcurrentHashMap<>();
+
+    // Prevent instantiation
+    private TypeResolver() {}
+
+    /*
+     * The downcall handle with type (MemorySegment)long is linked when the
+     * first GType is resolved.
+     */
+    private static final class Holder {
+        private static final MethodHandle GET_TYPE = Linker.nativeLinker()
+                .downcallHandle(FunctionDescriptor.of(ValueLayout.JAVA_LONG));
+    }
+
+    /**
+     * Get the GType that is returned by the provided get-type function.
+     *
+     * @param  getTypeFunction name of the get-type function
+     * @return the (cached) GType, or {@code null} if the function is not found
+     */
+    static Type get(String getTypeFunction) {
+        Long gtype = cache.get(getTypeFunction);
+        if (gtype != null)
+            return new Type(gtype);
+
+        MemorySegment symbol = Interop.symbolLookup.find(getTypeFunction)
+                .orElse(null);
+        if (symbol == null)
+            return null;
+
+        try {
+            gtype = (long) Holder.GET_TYPE.invokeExact(symbol);
+        } catch (Throwable err) {
+            throw new AssertionError("Unexpected exception occurred: ", err);
+        }
+
+        cache.putIfAbsent(getTypeFunction, gtype);
+        return new Type(gtype);
+    }
+}
@@ -27,27 +27,57 @@ import java.lang.foreign.*;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static io.github.jwharm.javagi.interop.Interop.*;
 
 /**
  * Generate a MethodHandle for a variadic function.
+ * <p>
+ * The native function is linked separately for every combination of variadic
+ * argument types (the "signature" of the variadic arguments). The linked
+ * method handles are cached by signature, so a variadic function that is
+ * called again with the same types of arguments, will not be linked again.
+ *
+ * @param symbol   the native function
+ * @param function the function descriptor of the named arguments
+ * @param handles  the cache of linked method handles, by signature
  */
-record VarargsInvoker(MemorySegment symbol, FunctionDescriptor function) {
+record VarargsInvoker(MemorySegment symbol,
+                      FunctionDescriptor function,
+                      Map<Long, MethodHandle> handles) {
 
+    private static final Linker LINKER = Linker.nativeLinker();
     private static final MethodHandle METHOD_HANDLE;
     private static final SegmentAllocator THROW = (_, _) -> {
         throw new AssertionError("should not reach here");
     };
 
+    /*
+     * The signature of the variadic arguments is encoded in a long, with 2
+     * bits per argument, so signatures with more arguments are not cached.
+     */
+    private static final int MAX_CACHED_ARGS = 31;
+
+    // The maximum number of cached signatures for one variadic function
+    private static final int MAX_CACHED_SIGNATURES = 256;
+
+    // Signature codes for the variadic argument layouts
+    private static final int SIG_LONG = 1;
+    private static final int SIG_DOUBLE = 2;
+    private static final int SIG_ADDRESS = 3;
+
+    // The type of the specialized method handles
+    private static final MethodType SPECIALIZED_TYPE = MethodType.methodType(
+            Object.class, SegmentAllocator.class, Object[].class, Object[].class);
+
     static {
         try {
             METHOD_HANDLE = MethodHandles.lookup().findVirtual(
                     VarargsInvoker.class,
                     "invoke",
-                    MethodType.methodType(Object.class,
-                            SegmentAllocator.class,
-                            Object[].class)
+                    SPECIALIZED_TYPE
             );
         } catch (ReflectiveOperationException e) {
             throw new InteropException(e);
@@ -59,10 +89,11 @@ record VarargsInvoker(MemorySegment symbol, FunctionDescriptor function) {
      */
     static MethodHandle create(MemorySegment symbol,
                                FunctionDescriptor function) {
-        VarargsInvoker invoker = new VarargsInvoker(symbol, function);
-        int arrayLength = function.argumentLayouts().size() + 1;
+        VarargsInvoker invoker = new VarargsInvoker(symbol, function,
+                new ConcurrentHashMap<>());
+        int nNamedArgs = function.argumentLayouts().size();
         MethodHandle handle = METHOD_HANDLE.bindTo(invoker)
-                .asCollector(Object[].class, arrayLength);
+                .asCollector(1, Object[].class, nNamedArgs);
 
         MethodType mtype = MethodType.methodType(
                 function.returnLayout().isPresent()
@@ -73,10 +104,7 @@ record VarargsInvoker(MemorySegment symbol, FunctionDescriptor function) {
         }
         mtype = mtype.appendParameterTypes(Object[].class);
 
-        boolean needsAllocator = function.returnLayout().isPresent()
-                && function.returnLayout().get() instanceof GroupLayout;
-
-        if (needsAllocator)
+        if (invoker.needsAllocator())
             mtype = mtype.insertParameterTypes(0, SegmentAllocator.class);
         else
             handle = MethodHandles.insertArguments(handle, 0, THROW);
@@ -102,28 +130,59 @@ record VarargsInvoker(MemorySegment symbol, FunctionDescriptor function) {
      * This method is used from a MethodHandle (INVOKE_MH).
      */
     @SuppressWarnings("unused")
-    private Object invoke(SegmentAllocator allocator, Object[] args)
+    private Object invoke(SegmentAllocator allocator,
+                          Object[] namedArgs,
+                          Object[] unnamedArgs)
             throws Throwable {
 
-        // one trailing Object[]
-        int nNamedArgs = function.argumentLayouts().size();
-        // The last argument is the array of vararg collector
-        Object[] unnamedArgs = (Object[]) args[args.length - 1];
+        // Unwrap the Java-GI types to their address or primitive value, and
+        // calculate the signature of the variadic arguments
+        Object[] unwrappedArgs = new Object[unnamedArgs.length];
+        long signature = 1;
+        for (int i = 0; i < unnamedArgs.length; i++) {
+            unwrappedArgs[i] = unwrapJavagiTypes(unnamedArgs[i]);
+            signature = (signature << 2)
+                    | layoutCode(normalize(unwrappedArgs[i].getClass()));
+        }
+
+        // Get the method handle for this signature from the cache
+        MethodHandle mh;
+        if (unnamedArgs.length > MAX_CACHED_ARGS) {
+            mh = specialize(unwrappedArgs);
+        } else {
+            mh = handles.get(signature);
+            if (mh == null) {
+                mh = specialize(unwrappedArgs);
+                if (handles.size() < MAX_CACHED_SIGNATURES)
+                    handles.putIfAbsent(signature, mh);
+            }
+        }
+
+        return (Object) mh.invokeExact(allocator, namedArgs, unwrappedArgs);
+    }
 
-        int argsCount = nNamedArgs + unnamedArgs.length;
-        MemoryLayout[] argLayouts = new MemoryLayout[argsCount];
+    private boolean needsAllocator() {
+        return function.returnLayout().isPresent()
+                && function.returnLayout().get() instanceof GroupLayout;
+    }
+
+    /*
+     * Link the native function for the types of the provided variadic
+     * arguments. The returned method handle has type
+     * (SegmentAllocator, Object[], Object[])Object: it takes the allocator,
+     * the named arguments and the (unwrapped) variadic arguments, and spreads
+     * the arrays over the parameters of the downcall handle.
+     */
+    private MethodHandle specialize(Object[] unwrappedArgs) {
+        int nNamedArgs = function.argumentLayouts().size();
+        int nUnnamedArgs = unwrappedArgs.length;
+        MemoryLayout[] argLayouts = new MemoryLayout[nNamedArgs + nUnnamedArgs];
 
         int pos;
         for (pos = 0; pos < nNamedArgs; pos++) {
             argLayouts[pos] = function.argumentLayouts().get(pos);
         }
 
-        // Unwrap the Java-GI types to their address or primitive value
-        Object[] unwrappedArgs = new Object[unnamedArgs.length];
-        for (int i = 0; i < unnamedArgs.length; i++) {
-            unwrappedArgs[i] = unwrapJavagiTypes(unnamedArgs[i]);
-        }
-
         for (Object o : unwrappedArgs) {
             argLayouts[pos] = variadicLayout(normalize(o.getClass()));
             pos++;
@@ -132,23 +191,17 @@ record VarargsInvoker(MemorySegment symbol, FunctionDescriptor function) {
         FunctionDescriptor f = function.returnLayout().map(
                 layout -> FunctionDescriptor.of(layout, argLayouts)).orElseGet(
                 ()     -> FunctionDescriptor.ofVoid(argLayouts));
-        MethodHandle mh = Interop.downcallHandle(symbol, f);
-        boolean needsAllocator = function.returnLayout().isPresent()
-                && function.returnLayout().get() instanceof GroupLayout;
-
-        if (needsAllocator)
-            mh = mh.bindTo(allocator);
+        MethodHandle mh = LINKER.downcallHandle(symbol, f,
+                Linker.Option.firstVariadicArg(nNamedArgs));
 
-        /*
-         * Flatten argument list so that it can be passed to an asSpreader
-         * MethodHandle.
-         */
-        int length = unwrappedArgs.length;
-        Object[] allArgs = new Object[nNamedArgs + length];
-        System.arraycopy(args, 0, allArgs, 0, nNamedArgs);
-        System.arraycopy(unwrappedArgs, 0, allArgs, nNamedArgs, length);
+        int offset = needsAllocator() ? 1 : 0;
+        mh = mh.asType(mh.type().generic())
+                .asSpreader(Object[].class, nUnnamedArgs)
+                .asSpreader(offset, Object[].class, nNamedArgs);
 
-        return mh.asSpreader(Object[].class, argsCount).invoke(allArgs);
+        return needsAllocator()
+                ? mh.asType(SPECIALIZED_TYPE)
+                : MethodHandles.dropArguments(mh, 0, SegmentAllocator.class);
     }
 
     private static Class<?> unboxIfNeeded(Class<?> c) {
@@ -194,40 +247,56 @@ record VarargsInvoker(MemorySegment symbol, FunctionDescriptor function) {
         throw new IllegalArgumentException("Unhandled variadic argument class: " + c);
     }
 
+    private int layoutCode(Class<?> c) {
+        if (c == long.class)
+            return SIG_LONG;
+        if (c == double.class)
+            return SIG_DOUBLE;
+        if (MemorySegment.class.isAssignableFrom(c))
+            return SIG_ADDRESS;
+        throw new IllegalArgumentException("Unhandled variadic argument class: " + c);
+    }
+
     /*
      * Unwrap the Java-GI types to their memory address or primitive value.
      * Arrays are allocated to native memory as-is (no additional NULL is
      * appended: the caller must do this).
+     *
+     * Strings and arrays are returned as a MemorySegment, not as a raw
+     * address, so the native memory remains reachable until the downcall
+     * has returned. Strings are not interned: variadic string arguments are
+     * often arbitrary values (such as property values), and would fill the
+     * intern cache.
      */
     private Object unwrapJavagiTypes(Object o) {
         return switch(o) {
             case null -> MemorySegment.NULL;
             case MemorySegment[] arr ->
-                    allocateNativeArray(arr, false, Arena.ofAuto()).address();
+                    allocateNativeArray(arr, false, Arena.ofAuto());
             case boolean[] arr ->
-                    allocateNativeArray(arr, false, Arena.ofAuto()).address();
+                    allocateNativeArray(arr, false, Arena.ofAuto());
             case byte[] arr ->
-                    allocateNativeArray(arr, false, Arena.ofAuto()).address();
+                    allocateNativeArray(arr, false, Arena.ofAuto());
             case char[] arr ->
-                    allocateNativeArray(arr, false, Arena.ofAuto()).address();
+                    allocateNativeArray(arr, false, Arena.ofAuto());
             case double[] arr ->
-                    allocateNativeArray(arr, false, Arena.ofAuto()).address();
+                    allocateNativeArray(arr, false, Arena.ofAuto());
             case float[] arr ->
-                    allocateNativeArray(arr, false, Arena.ofAuto()).address();
+                    allocateNativeArray(arr, false, Arena.ofAuto());
             case int[] arr ->
-                    allocateNativeArray(arr, false, Arena.ofAuto()).address();
+                    allocateNativeArray(arr, false, Arena.ofAuto());
             case long[] arr ->
-                    allocateNativeArray(arr, false, Arena.ofAuto()).address();
+                    allocateNativeArray(arr, false, Arena.ofAuto());
             case short[] arr ->
-                    allocateNativeArray(arr, false, Arena.ofAuto()).address();
+                    allocateNativeArray(arr, false, Arena.ofAuto());
             case Proxy[] arr ->
-                    allocateNativeArray(arr, false, Arena.ofAuto()).address();
+                    allocateNativeArray(arr, false, Arena.ofAuto());
             case String[] arr ->
-                    allocateNativeArray(arr, false, Arena.ofAuto()).address();
+                    allocateNativeArray(arr, false, Arena.ofAuto());
             case Boolean bool ->
                     bool ? 1 : 0;
             case String string ->
-                    allocateNativeString(string, Arena.ofAuto()).address();
+                    allocateNativeString(string, Arena.ofAuto());
             case Alias<?> alias ->
                     alias.getValue();
             case Enumeration enumeration ->
@@ -0,0 +1,205 @@
+/* Java-GI - Java language bindings for GObject-Introspection-based libraries
+ * Copyright (C) 2022-2024 Jan-Willem Harmannij
+ *
+ * SPDX-License-Identifier: LGPL-2.1-or-later
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gnome.glib;
+
+import io.github.jwharm.javagi.interop.Interop;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+
+/**
+ * An immutable, random-access snapshot of a {@link List} or {@link SList}.
+ * <p>
+ * The {@code data} pointers of all list elements are read in one pass when
+ * the snapshot is created. {@link #size()} and {@link #get(int)} are O(1),
+ * and the Java instances for the elements are only constructed when they are
+ * accessed. Use {@link #forEachAddress(LongConsumer)} or
+ * {@link #addressSpliterator()} when only the memory addresses are needed.
+ * <p>
+ * The snapshot does not change when the native list is modified afterwards.
+ * It does not keep the elements alive: the caller must make sure they are not
+ * freed while the snapshot is used.
+ * <p>
+ * The {@link #spliterator()} can be split for parallel streams. When elements
+ * are accessed from multiple threads at the same time, the element
+ * constructor may be called more than once for the same element.
+ *
+ * @param <E> the element type
+ */
+public final class ListSnapshot<E> extends AbstractList<E> implements RandomAccess {
+
+    private static final long NEXT_OFFSET = ValueLayout.ADDRESS.byteSize();
+
+    private final long[] addresses;
+    private final Function<MemorySegment, E> make;
+    private final Object[] elements;
+
+    private ListSnapshot(long[] addresses, Function<MemorySegment, E> make) {
+        this.addresses = addresses;
+        this.make = make;
+        this.elements = new Object[addresses.length];
+    }
+
+    /*
+     * Read the data pointers of a GList or GSList. Both structs start with
+     * the data and next fields.
+     */
+    static <E> ListSnapshot<E> of(MemorySegment head,
+                                  Function<MemorySegment, E> make) {
+        long[] addresses = new long[16];
+        int size = 0;
+        MemorySegment node = head;
+        while (!MemorySegment.NULL.equals(node)) {
+            node = Interop.reinterpret(node, NEXT_OFFSET * 2);
+            if (size == addresses.length)
+                addresses = Arrays.copyOf(addresses, size * 2);
+            addresses[size++] = node.get(ValueLayout.ADDRESS, 0).address();
+            node = node.get(ValueLayout.ADDRESS, NEXT_OFFSET);
+        }
+        return new ListSnapshot<>(Arrays.copyOf(addresses, size), make);
+    }
+
+    /**
+     * Get the element at the specified position. The Java instance is
+     * constructed the first time it is accessed.
+     *
+     * @param  index index of the element to return
+     * @return the element at the specified position
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        Objects.checkIndex(index, addresses.length);
+        Object element = elements[index];
+        if (element == null) {
+            element = make.apply(MemorySegment.ofAddress(addresses[index]));
+            elements[index] = element;
+        }
+        return (E) element;
+    }
+
+    /**
+     * Get the memory address of the element at the specified position,
+     * without constructing a Java instance.
+     *
+     * @param  index index of the element
+     * @return the memory address of the element
+     */
+    public long getAddress(int index) {
+        Objects.checkIndex(index, addresses.length);
+        return addresses[index];
+    }
+
+    /**
+     * Get the number of elements in the snapshot.
+     *
+     * @return the number of elements
+     */
+    @Override
+    public int size() {
+        return addresses.length;
+    }
+
+    /**
+     * Perform the given action for the memory address of every element,
+     * without constructing Java instances.
+     *
+     * @param action the action to perform
+     */
+    public void forEachAddress(LongConsumer action) {
+        Objects.requireNonNull(action);
+        for (long address : addresses)
+            action.accept(address);
+    }
+
+    /**
+     * Create a spliterator over the memory addresses of the elements.
+     *
+     * @return a spliterator over the memory addresses
+     */
+    public Spliterator.OfLong addressSpliterator() {
+        return Arrays.spliterator(addresses);
+    }
+
+    /**
+     * Create a spliterator over the elements. It splits in halves, so it
+     * can be used for parallel streams over large lists.
+     *
+     * @return a spliterator over the elements
+     */
+    @Override
+    public Spliterator<E> spliterator() {
+        return new ElementSpliterator(0, addresses.length);
+    }
+
+    private final class ElementSpliterator implements Spliterator<E> {
+        private int index;
+        private final int fence;
+
+        ElementSpliterator(int origin, int fence) {
+            this.index = origin;
+            this.fence = fence;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super E> action) {
+            Objects.requireNonNull(action);
+            if (index >= fence)
+                return false;
+            action.accept(get(index++));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super E> action) {
+            Objects.requireNonNull(action);
+            while (index < fence)
+                action.accept(get(index++));
+        }
+
+        @Override
+        public Spliterator<E> trySplit() {
+            int mid = (index + fence) >>> 1;
+            if (mid <= index)
+                return null;
+            var prefix = new ElementSpliterator(index, mid);
+            index = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | IMMUTABLE;
+        }
+    }
+}
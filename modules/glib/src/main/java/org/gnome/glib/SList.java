@@ -205,6 +205,18 @@ public class SList<E> extends AbstractSequentialList<E> implements Proxy {
         return SListNode.length(head);
     }
 
+    /**
+     * Create an immutable snapshot of this list. The memory addresses of all
+     * elements are read in one pass, so the snapshot has constant-time
+     * {@code get} and {@code size} operations. The Java instances for the
+     * elements are constructed when they are accessed.
+     *
+     * @return a random-access snapshot of this list
+     */
+    public ListSnapshot<E> snapshot() {
+        return ListSnapshot.of(handle(), make);
+    }
+
     /**
      * Checks if the list has no elements (the head of the list is
      * {@code null}).
@@ -0,0 +1,68 @@
+package io.github.jwharm.javagi.test.glib;
+
+import io.github.jwharm.javagi.interop.AllocationScope;
+import io.github.jwharm.javagi.interop.Interop;
+import org.junit.jupiter.api.Test;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test allocating memory in a thread-bound allocation scope
+ */
+public class AllocationScopeTest {
+
+    @Test
+    void testScope() {
+        assertNull(AllocationScope.current());
+        MemorySegment first;
+        MemorySegment large;
+        try (var scope = Interop.scope()) {
+            assertSame(scope, Interop.currentArena());
+
+            // Small allocations are zero-initialized and correctly aligned
+            first = Interop.currentArena().allocate(ValueLayout.JAVA_LONG);
+            for (int i = 0; i < 1000; i++) {
+                MemorySegment segment = Interop.currentArena().allocate(ValueLayout.JAVA_INT);
+                assertEquals(0, segment.get(ValueLayout.JAVA_INT, 0));
+                assertEquals(0, segment.address() % ValueLayout.JAVA_INT.byteAlignment());
+                segment.set(ValueLayout.JAVA_INT, 0, i);
+            }
+            large = scope.allocate(100_000);
+            assertTrue(first.scope().isAlive());
+        }
+
+        // The memory is released when the scope is closed
+        assertFalse(first.scope().isAlive());
+        assertFalse(large.scope().isAlive());
+        assertNull(AllocationScope.current());
+        assertNotNull(Interop.currentArena());
+    }
+
+    @Test
+    void testNestedScopes() {
+        try (var outer = Interop.scope()) {
+            MemorySegment segment = Interop.currentArena().allocate(8);
+            try (var inner = Interop.scope()) {
+                assertSame(inner, AllocationScope.current());
+
+                // The outer scope cannot be closed before the inner scope
+                assertThrows(IllegalStateException.class, outer::close);
+            }
+            assertSame(outer, AllocationScope.current());
+            assertTrue(segment.scope().isAlive());
+        }
+    }
+
+    @Test
+    void testUpcallArena() {
+        // An allocation scope can be used where an Arena is expected
+        try (Arena arena = Interop.scope()) {
+            MemorySegment str = arena.allocateFrom("abc");
+            assertEquals("abc", str.getString(0));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package io.github.jwharm.javagi.test.glib;
+
+import io.github.jwharm.javagi.interop.Interop;
+import org.gnome.glib.GLib;
+import org.junit.jupiter.api.Test;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test that downcall handles for function pointers are cached
+ */
+public class DowncallHandleTest {
+
+    @Test
+    void testCachedHandle() throws Throwable {
+        GLib.javagi$ensureInitialized();
+        MemorySegment func = Interop.symbolLookup.find("g_str_hash").orElseThrow();
+        var fdesc = FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS);
+
+        // Equal function descriptors for the same function return the same handle
+        MethodHandle first = Interop.downcallHandle(func, fdesc);
+        MethodHandle second = Interop.downcallHandle(func,
+                FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS));
+        assertSame(first, second);
+
+        // A different function descriptor returns another handle
+        MethodHandle other = Interop.downcallHandle(func,
+                FunctionDescriptor.of(ValueLayout.JAVA_LONG, ValueLayout.ADDRESS));
+        assertNotSame(first, other);
+
+        // The cached handle can be invoked
+        try (var arena = Arena.ofConfined()) {
+            MemorySegment str = arena.allocateFrom("abc");
+            int hash1 = (int) first.invokeExact(str);
+            int hash2 = (int) second.invokeExact(str);
+            assertEquals(hash1, hash2);
+        }
+    }
+
+    @Test
+    void testHotHandlesSurviveEviction() {
+        GLib.javagi$ensureInitialized();
+        MemorySegment func = Interop.symbolLookup.find("g_str_hash").orElseThrow();
+        var fdesc = FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS);
+
+        // A small set of frequently used handles. The handles for the other
+        // (fake) function addresses are linked, but never invoked.
+        MethodHandle[] hot = new MethodHandle[16];
+        for (int i = 0; i < hot.length; i++)
+            hot[i] = Interop.downcallHandle(
+                    MemorySegment.ofAddress(func.address() + i), fdesc);
+
+        // Add many more handles than the cache can hold, and keep using the
+        // hot handles in the meantime
+        MethodHandle cold = null;
+        for (int i = 0; i < 4096; i++) {
+            MethodHandle handle = Interop.downcallHandle(
+                    MemorySegment.ofAddress(func.address() + 0x10000 + i), fdesc);
+            if (i == 0)
+                cold = handle;
+
+            for (int j = 0; j < hot.length; j++)
+                assertSame(hot[j], Interop.downcallHandle(
+                        MemorySegment.ofAddress(func.address() + j), fdesc));
+        }
+
+        // The first cold handle was never used again, so it was evicted
+        assertNotSame(cold, Interop.downcallHandle(
+                MemorySegment.ofAddress(func.address() + 0x10000), fdesc));
+    }
+}
@@ -0,0 +1,33 @@
+package io.github.jwharm.javagi.test.glib;
+
+import io.github.jwharm.javagi.interop.Interop;
+import org.gnome.glib.GLib;
+import org.gnome.glib.Type;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test resolving GTypes with get-type functions
+ */
+public class GetTypeTest {
+
+    @Test
+    void testGetType() {
+        GLib.javagi$ensureInitialized();
+
+        // The GType is resolved once, and a new Type instance is returned
+        // for every call
+        Type first = Interop.getType("g_date_get_type");
+        Type second = Interop.getType("g_date_get_type");
+        assertNotNull(first);
+        assertEquals(first, second);
+        assertNotSame(first, second);
+
+        // Different get-type functions return different GTypes
+        assertNotEquals(first, Interop.getType("g_strv_get_type"));
+
+        // Unknown get-type functions return null
+        assertNull(Interop.getType("javagi_nonexistent_get_type"));
+    }
+}
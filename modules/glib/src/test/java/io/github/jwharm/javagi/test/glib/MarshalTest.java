@@ -9,6 +9,7 @@ import org.junit.jupiter.api.Test;
 
 import java.lang.foreign.Arena;
 import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
 import java.util.Arrays;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -140,6 +141,45 @@ public class MarshalTest {
         }
     }
 
+    @Test
+    void testZeroTerminatedArray() {
+        try (Arena arena = Arena.ofConfined()) {
+            long[] input = {1L, 2L, 3L};
+            MemorySegment allocation = Interop.allocateNativeArray(input, true, arena);
+            assertEquals(4 * ValueLayout.JAVA_LONG.byteSize(), allocation.byteSize());
+            assertEquals(0L, allocation.getAtIndex(ValueLayout.JAVA_LONG, 3));
+
+            boolean[] bools = {true, true, true};
+            allocation = Interop.allocateNativeArray(bools, true, arena);
+            int[] output = Interop.getIntegerArrayFrom(allocation, arena, false);
+            assertEquals("[1, 1, 1]", Arrays.toString(output));
+
+            // Known limitation: the terminator of a zero-terminated gboolean
+            // array is FALSE, so reading it back stops at the first FALSE
+            // element. Only the explicit length recovers the full array.
+            bools = new boolean[] {true, false, true};
+            allocation = Interop.allocateNativeArray(bools, true, arena);
+            assertEquals("[1, 0, 1]", Arrays.toString(Interop.getIntegerArrayFrom(allocation, 3, arena, false)));
+            assertEquals("[1]", Arrays.toString(Interop.getIntegerArrayFrom(allocation, arena, false)));
+        }
+    }
+
+    @Test
+    void testArraySegment() {
+        try (Arena arena = Arena.ofConfined()) {
+            float[] input = {1f, 2f, 3f, 4f};
+            MemorySegment allocation = Interop.allocateNativeArray(input, false, arena);
+            MemorySegment view = Interop.getArraySegment(
+                    MemorySegment.ofAddress(allocation.address()),
+                    ValueLayout.JAVA_FLOAT, input.length, arena);
+            assertEquals(allocation.address(), view.address());
+            assertEquals(input.length * ValueLayout.JAVA_FLOAT.byteSize(), view.byteSize());
+            assertEquals(3f, view.getAtIndex(ValueLayout.JAVA_FLOAT, 2));
+            assertEquals(MemorySegment.NULL, Interop.getArraySegment(
+                    MemorySegment.NULL, ValueLayout.JAVA_FLOAT, 4, arena));
+        }
+    }
+
     @Test
     void testShortArray() {
         try (Arena arena = Arena.ofConfined()) {
@@ -0,0 +1,143 @@
+package io.github.jwharm.javagi.test.glib;
+
+import io.github.jwharm.javagi.base.Proxy;
+import io.github.jwharm.javagi.interop.AddressMap;
+import io.github.jwharm.javagi.interop.Interop;
+import io.github.jwharm.javagi.interop.MemoryCleaner;
+import org.gnome.glib.GLib;
+import org.junit.jupiter.api.Test;
+
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Stress test the MemoryCleaner and its address map from multiple threads
+ */
+public class MemoryCleanerTest {
+
+    private static final int THREADS = 8;
+    private static final int ITERATIONS = 20_000;
+
+    @Test
+    void testAddressMap() throws Throwable {
+        AddressMap<Long> map = new AddressMap<>();
+        run(thread -> {
+            // Every thread uses its own range of (aligned) addresses
+            long base = (thread + 1L) << 32;
+            for (int i = 0; i < ITERATIONS; i++) {
+                long address = base + (i % 1000) * 16L;
+                Long value = map.get(address);
+                if (value == null) {
+                    assertNull(map.putIfAbsent(address, address));
+                } else {
+                    assertEquals(address, value);
+                    assertTrue(map.remove(address, value));
+                }
+            }
+            // Remove everything that is left
+            for (int i = 0; i < 1000; i++)
+                map.remove(base + i * 16L);
+        });
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    void testAddressMapNullKey() {
+        AddressMap<Long> map = new AddressMap<>();
+        map.put(16L, 16L);
+
+        // The NULL address is never in the map, and cannot be added
+        assertNull(map.get(0L));
+        assertNull(map.remove(0L));
+        assertFalse(map.remove(0L, 16L));
+        assertThrows(IllegalArgumentException.class, () -> map.put(0L, 0L));
+        assertThrows(IllegalArgumentException.class, () -> map.putIfAbsent(0L, 0L));
+
+        // Removing it does not affect the other entries
+        assertEquals(1, map.size());
+        assertEquals(16L, map.get(16L));
+    }
+
+    @Test
+    void testSharedAddresses() throws Throwable {
+        GLib.javagi$ensureInitialized();
+        MethodHandle g_malloc0 = Interop.downcallHandle("g_malloc0",
+                FunctionDescriptor.of(ValueLayout.ADDRESS, ValueLayout.JAVA_LONG),
+                false);
+
+        // A small set of addresses, shared by all threads. Ownership is never
+        // taken, so the MemoryCleaner never releases the memory, and it is
+        // freed exactly once at the end of the test.
+        MemorySegment[] addresses = new MemorySegment[64];
+        for (int i = 0; i < addresses.length; i++)
+            addresses[i] = (MemorySegment) g_malloc0.invokeExact(16L);
+
+        run(_ -> {
+            var random = ThreadLocalRandom.current();
+            for (int i = 0; i < ITERATIONS; i++) {
+                MemorySegment address = addresses[random.nextInt(addresses.length)];
+                Proxy proxy = () -> address;
+                MemoryCleaner.yieldOwnership(proxy);
+                MemoryCleaner.setFreeFunc(proxy, "g_free");
+            }
+        });
+
+        System.gc();
+        for (MemorySegment address : addresses)
+            GLib.free(address);
+    }
+
+    @Test
+    void testOwnedAddresses() throws Throwable {
+        GLib.javagi$ensureInitialized();
+        MethodHandle g_malloc0 = Interop.downcallHandle("g_malloc0",
+                FunctionDescriptor.of(ValueLayout.ADDRESS, ValueLayout.JAVA_LONG),
+                false);
+
+        // Every proxy owns a new allocation, that is released (exactly once)
+        // when the proxy is garbage-collected or explicitly freed.
+        run(_ -> {
+            for (int i = 0; i < ITERATIONS; i++) {
+                MemorySegment address = (MemorySegment) g_malloc0.invokeExact(16L);
+                Proxy proxy = () -> address;
+                MemoryCleaner.takeOwnership(proxy);
+                MemoryCleaner.setFreeFunc(proxy, "g_free");
+                if (i % 2 == 0)
+                    MemoryCleaner.free(address);
+            }
+        });
+        System.gc();
+    }
+
+    private interface Task {
+        void run(int thread) throws Throwable;
+    }
+
+    // Run the task in multiple threads and rethrow the first failure
+    private static void run(Task task) throws Throwable {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            threads.add(Thread.ofPlatform().start(() -> {
+                try {
+                    task.run(thread);
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }));
+        }
+        for (Thread thread : threads)
+            thread.join();
+        if (failure.get() != null)
+            throw failure.get();
+    }
+}
@@ -0,0 +1,49 @@
+package io.github.jwharm.javagi.test.glib;
+
+import io.github.jwharm.javagi.interop.Interop;
+import io.github.jwharm.javagi.interop.NativeStrings;
+import org.junit.jupiter.api.Test;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test encoding, decoding and caching of native strings
+ */
+public class NativeStringsTest {
+
+    @Test
+    void testRoundTrip() {
+        try (var arena = Arena.ofConfined()) {
+            for (String str : new String[] {"", "notify::label", "ÄÖÜ €", "日本語 ✓"}) {
+                MemorySegment segment = Interop.allocateNativeString(str, arena);
+                assertEquals(str, segment.getString(0));
+                assertEquals(str, Interop.getStringFrom(segment));
+            }
+        }
+        assertNull(Interop.getStringFrom(MemorySegment.NULL));
+    }
+
+    @Test
+    void testConstant() {
+        MemorySegment first = NativeStrings.constant("clicked");
+        MemorySegment second = NativeStrings.constant("clicked");
+        assertSame(first, second);
+        assertEquals("clicked", Interop.getStringFrom(first));
+    }
+
+    @Test
+    void testIntern() {
+        MemorySegment first = NativeStrings.intern("css-class");
+        MemorySegment second = NativeStrings.intern("css-class");
+        assertEquals(first.address(), second.address());
+        assertEquals(MemorySegment.NULL, NativeStrings.intern(null));
+
+        // The cache is bounded
+        for (int i = 0; i < 5000; i++)
+            assertEquals("str" + i, Interop.getStringFrom(NativeStrings.intern("str" + i)));
+        assertTrue(NativeStrings.internedCount() <= 1024);
+    }
+}
@@ -0,0 +1,87 @@
+package io.github.jwharm.javagi.test.glib;
+
+import io.github.jwharm.javagi.interop.ScratchArena;
+import org.junit.jupiter.api.Test;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test allocating memory from a ScratchArena
+ */
+public class ScratchArenaTest {
+
+    @Test
+    void testReuse() {
+        MemorySegment first;
+        try (var arena = ScratchArena.open()) {
+            first = arena.allocate(ValueLayout.JAVA_LONG);
+            first.set(ValueLayout.JAVA_LONG, 0, -1L);
+        }
+
+        // The buffer is reused, and the memory is zero-initialized again
+        try (var arena = ScratchArena.open()) {
+            MemorySegment second = arena.allocate(ValueLayout.JAVA_LONG);
+            assertEquals(first.address(), second.address());
+            assertEquals(0L, second.get(ValueLayout.JAVA_LONG, 0));
+        }
+    }
+
+    @Test
+    void testUseAfterClose() {
+        MemorySegment segment;
+        try (var arena = ScratchArena.open()) {
+            segment = arena.allocate(ValueLayout.JAVA_LONG);
+            assertTrue(segment.scope().isAlive());
+        }
+
+        // Memory from the scratch buffer cannot be accessed after the
+        // ScratchArena is closed
+        assertFalse(segment.scope().isAlive());
+        assertThrows(IllegalStateException.class,
+                () -> segment.get(ValueLayout.JAVA_LONG, 0));
+        assertThrows(IllegalStateException.class,
+                () -> segment.set(ValueLayout.JAVA_LONG, 0, -1L));
+    }
+
+    @Test
+    void testNesting() {
+        try (var outer = ScratchArena.open()) {
+            MemorySegment a = outer.allocateFrom("outer");
+            try (var inner = ScratchArena.open()) {
+                MemorySegment b = inner.allocateFrom("inner");
+                assertNotEquals(a.address(), b.address());
+
+                // The outer arena cannot allocate from the buffer while the
+                // inner arena is open, and cannot be closed yet
+                MemorySegment c = outer.allocate(8);
+                assertNotEquals(b.address(), c.address());
+                assertThrows(IllegalStateException.class, outer::close);
+            }
+            assertEquals("outer", a.getString(0));
+        }
+    }
+
+    @Test
+    void testLargeAllocation() {
+        MemorySegment large;
+        try (var arena = ScratchArena.open()) {
+            large = arena.allocate(1024 * 1024);
+            assertEquals(1024 * 1024, large.byteSize());
+            assertTrue(large.scope().isAlive());
+        }
+        assertFalse(large.scope().isAlive());
+    }
+
+    @Test
+    void testScope() {
+        var arena = ScratchArena.open();
+        MemorySegment.Scope scope = arena.scope();
+        assertTrue(scope.isAlive());
+        arena.close();
+        assertFalse(scope.isAlive());
+        assertThrows(IllegalStateException.class, arena::close);
+    }
+}
@@ -0,0 +1,50 @@
+package io.github.jwharm.javagi.test.glib;
+
+import io.github.jwharm.javagi.interop.Interop;
+import org.gnome.glib.GLib;
+import org.junit.jupiter.api.Test;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test calling a variadic function with different variadic arguments
+ */
+public class VarargsTest {
+
+    @Test
+    void testSignatures() throws Throwable {
+        GLib.javagi$ensureInitialized();
+        MethodHandle snprintf = Interop.downcallHandle("g_snprintf",
+                FunctionDescriptor.of(ValueLayout.JAVA_INT,
+                        ValueLayout.ADDRESS,
+                        ValueLayout.JAVA_LONG,
+                        ValueLayout.ADDRESS),
+                true);
+
+        try (var arena = Arena.ofConfined()) {
+            MemorySegment buffer = arena.allocate(64);
+
+            // Call the function twice with the same signature, and then with
+            // a different signature
+            for (int i = 0; i < 2; i++) {
+                int len = (int) snprintf.invokeExact(buffer, 64L,
+                        arena.allocateFrom("%d-%s"),
+                        new Object[] {i, "abc"});
+                assertEquals(i + "-abc", Interop.getStringFrom(buffer));
+                assertEquals(5, len);
+            }
+
+            int len = (int) snprintf.invokeExact(buffer, 64L,
+                    arena.allocateFrom("%.1f %s %d"),
+                    new Object[] {1.5, "x", 7L});
+            assertEquals("1.5 x 7", Interop.getStringFrom(buffer));
+            assertEquals(7, len);
+        }
+    }
+}
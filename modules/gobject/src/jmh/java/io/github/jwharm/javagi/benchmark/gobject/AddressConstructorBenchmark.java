@@ -0,0 +1,84 @@
+package io.github.jwharm.javagi.benchmark.gobject;
+
+import io.github.jwharm.javagi.gobject.types.Types;
+import org.gnome.gobject.GObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.reflect.Constructor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Compare the cost of wrapping a native object in a new proxy instance, with
+ * the memory address constructor from {@link Types#getAddressConstructor}
+ * and with {@link Constructor#newInstance} (which is what
+ * getAddressConstructor returned before).
+ * <p>
+ * This is measured for {@code GObject} itself and for a user-defined
+ * subclass. The benchmarks run on the classpath, where every package is open
+ * to org.gnome.gobject. In a modular application, the fast path is only used
+ * for packages that are opened to org.gnome.gobject; other classes use a
+ * method handle.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AddressConstructorBenchmark {
+
+    private Arena arena;
+    private MemorySegment address;
+    private Function<MemorySegment, GObject> addressConstructor;
+    private Constructor<GObject> reflectiveConstructor;
+    private Function<MemorySegment, UserObject> userAddressConstructor;
+    private Constructor<UserObject> userReflectiveConstructor;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        arena = Arena.ofConfined();
+        address = arena.allocate(GObject.getMemoryLayout());
+        addressConstructor = Types.getAddressConstructor(GObject.class);
+        reflectiveConstructor = GObject.class.getConstructor(MemorySegment.class);
+        userAddressConstructor = Types.getAddressConstructor(UserObject.class);
+        userReflectiveConstructor = UserObject.class.getConstructor(MemorySegment.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        arena.close();
+    }
+
+    @Benchmark
+    public GObject addressConstructor() {
+        return addressConstructor.apply(address);
+    }
+
+    @Benchmark
+    public GObject reflectiveConstructor() throws ReflectiveOperationException {
+        return reflectiveConstructor.newInstance(address);
+    }
+
+    @Benchmark
+    public UserObject userAddressConstructor() {
+        return userAddressConstructor.apply(address);
+    }
+
+    @Benchmark
+    public UserObject userReflectiveConstructor() throws ReflectiveOperationException {
+        return userReflectiveConstructor.newInstance(address);
+    }
+
+    /**
+     * A user-defined GObject subclass (it is not registered as a GType,
+     * because only the Java constructor is measured)
+     */
+    public static class UserObject extends GObject {
+        public UserObject(MemorySegment address) {
+            super(address);
+        }
+    }
+}
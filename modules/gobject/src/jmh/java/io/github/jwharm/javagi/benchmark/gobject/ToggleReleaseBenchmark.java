@@ -0,0 +1,61 @@
+package io.github.jwharm.javagi.benchmark.gobject;
+
+import io.github.jwharm.javagi.gobject.InstanceCache;
+import org.gnome.glib.MainContext;
+import org.gnome.gobject.GObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the time it takes to release the toggle references of 10.000
+ * garbage-collected GObject proxies, when they are removed immediately by the
+ * Cleaner thread, and when they are removed in batches by an idle source on
+ * the default main context.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ToggleReleaseBenchmark {
+
+    private static final int OBJECTS = 10_000;
+
+    @Param({"false", "true"})
+    public boolean batched;
+
+    private MainContext context;
+    private int baseline;
+
+    @Setup
+    public void setup() {
+        InstanceCache.setBatchedRelease(batched);
+        context = MainContext.default_();
+        baseline = InstanceCache.size();
+    }
+
+    @TearDown
+    public void tearDown() {
+        InstanceCache.setBatchedRelease(false);
+    }
+
+    @Benchmark
+    public int createAndRelease() throws InterruptedException {
+        for (int i = 0; i < OBJECTS; i++)
+            GObject.newInstance(GObject.getType());
+
+        // Wait until all proxies are garbage-collected and all toggle
+        // references are removed
+        while (InstanceCache.size() > baseline
+                || InstanceCache.getPendingReleaseCount() > 0) {
+            System.gc();
+            if (batched)
+                while (context.iteration(false)) ;
+            else
+                Thread.sleep(1);
+        }
+        return InstanceCache.size();
+    }
+}
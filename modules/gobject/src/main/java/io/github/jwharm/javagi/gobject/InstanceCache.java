@@ -24,14 +24,16 @@ import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.ref.Cleaner;
 import java.lang.ref.WeakReference;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 
 import io.github.jwharm.javagi.base.Floating;
 import io.github.jwharm.javagi.base.GLibLogger;
 import io.github.jwharm.javagi.gobject.types.TypeCache;
 import io.github.jwharm.javagi.gobject.types.Types;
+import io.github.jwharm.javagi.interop.AddressMap;
 import io.github.jwharm.javagi.interop.Interop;
 import org.gnome.glib.Type;
 import org.gnome.gobject.*;
@@ -41,13 +43,27 @@ import io.github.jwharm.javagi.base.Proxy;
 /**
  * Caches Proxy instances so the same instance is used for the same memory
  * address.
+ * <p>
+ * The cache is keyed by the raw memory address. Every cached instance has one
+ * entry, that holds a weak reference to the instance, and a strong reference
+ * while native code holds other references to the object (as signaled by the
+ * GObject toggle reference). Toggling between a strong and a weak reference
+ * updates the entry in-place.
+ * <p>
+ * When a Proxy object is garbage-collected, its toggle reference is removed.
+ * By default, this happens immediately on the {@link Cleaner} thread. When
+ * batched release is enabled (with {@link #setBatchedRelease(boolean)} or the
+ * system property {@code javagi.batchedRelease}), the Cleaner thread only
+ * enqueues the memory address, and the toggle references are removed in
+ * batches by an idle source on the default {@link org.gnome.glib.MainContext}.
+ * This keeps the unrefs on the thread that runs the main loop. Batched
+ * release must only be enabled when the default main context is running.
+ * Pending toggle references can be removed immediately with
+ * {@link #flushReleases()}.
  */
 public class InstanceCache {
 
-    private final static Map<MemorySegment, Proxy> strongReferences
-            = new ConcurrentHashMap<>();
-    private final static Map<MemorySegment, WeakReference<Proxy>> weakReferences
-            = new ConcurrentHashMap<>();
+    private final static AddressMap<Entry> references = new AddressMap<>();
     private static final Cleaner CLEANER = Cleaner.create();
 
     private static final MethodHandle g_object_add_toggle_ref =
@@ -72,6 +88,14 @@ public class InstanceCache {
 
     private static final MemorySegment toggle_notify;
 
+    // Batched release of toggle references
+    private static final int MAX_BATCH_SIZE = 1024;
+    private static final Queue<MemorySegment> pendingReleases =
+            new ConcurrentLinkedQueue<>();
+    private static final AtomicBoolean releaseScheduled = new AtomicBoolean();
+    private static volatile boolean batchedRelease =
+            Boolean.getBoolean("javagi.batchedRelease");
+
     private static final Type GOBJECT = GObject.getType();
 
     static {
@@ -109,16 +133,33 @@ public class InstanceCache {
             return null;
 
         // Get instance from cache
-        Proxy instance = strongReferences.get(address);
-        if (instance != null)
-            return instance;
+        Entry entry = references.get(address.address());
+        if (entry == null)
+            return null;
 
-        WeakReference<Proxy> weakRef = weakReferences.get(address);
-        if (weakRef != null && weakRef.get() != null)
-            return weakRef.get();
+        Proxy instance = entry.strong;
+        return instance != null ? instance : entry.get();
+    }
 
-        // Not found
-        return null;
+    /**
+     * Get the number of instances in the cache. The result is only an
+     * estimate when the cache is concurrently modified.
+     *
+     * @return the number of cached instances
+     */
+    public static int size() {
+        return references.size();
+    }
+
+    /**
+     * Get the number of hash collisions while adding instances to the cache.
+     * This can be used together with {@link #size()} to monitor the cache in
+     * applications with a very large number of objects.
+     *
+     * @return the number of collisions since the cache was created
+     */
+    public static long collisions() {
+        return references.collisions();
     }
 
     /**
@@ -181,7 +222,7 @@ public class InstanceCache {
                                         boolean ignored) {
         // Null check
         if (address == null || MemorySegment.NULL.equals(address)) {
-            GLibLogger.debug("InstanceCache.getForTypeClass: address is NULL\n");
+            GLibLogger.debug("InstanceCache.getForTypeClass: address is NULL");
             return null;
         }
 
@@ -264,20 +305,23 @@ public class InstanceCache {
      */
     public static Proxy put(MemorySegment address, Proxy object) {
         // Do not put a new instance if it already exists
-        if (strongReferences.containsKey(address)
-                || weakReferences.containsKey(address))
+        long key = address.address();
+        if (references.get(key) != null)
             return object;
 
-        GLibLogger.debug("New %s %ld",
-                object.getClass().getName(),
-                address == null ? 0L : address.address());
+        GLibLogger.debug("New %s %ld", object.getClass().getName(), key);
 
         // Put the instance in the cache. If another thread did this (while we
         // were creating a new instance), putIfAbsent() will return that
         // instance.
-        Proxy existingInstance = strongReferences.putIfAbsent(address, object);
-        if (existingInstance != null)
-            return existingInstance;
+        Entry entry = new Entry(object);
+        Entry existing = references.putIfAbsent(key, entry);
+        if (existing != null) {
+            Proxy existingInstance = existing.strong;
+            if (existingInstance == null)
+                existingInstance = existing.get();
+            return existingInstance != null ? existingInstance : object;
+        }
 
         // Sink floating references
         if (object instanceof Floating floatingReference)
@@ -290,12 +334,54 @@ public class InstanceCache {
         unref(object);
 
         // Register a cleaner that will remove the toggle reference
-        CLEANER.register(object, new ToggleRefFinalizer(address));
+        CLEANER.register(object, new ToggleRefFinalizer(address, entry));
 
         // Return the new instance.
         return object;
     }
 
+    /**
+     * Enable or disable batched release of toggle references. When enabled,
+     * the toggle references of garbage-collected Proxy objects are removed in
+     * batches, by an idle source on the default main context. The default
+     * value is read from the system property {@code javagi.batchedRelease}.
+     *
+     * @param enabled whether to release toggle references in batches
+     */
+    public static void setBatchedRelease(boolean enabled) {
+        batchedRelease = enabled;
+        if (! enabled)
+            flushReleases();
+    }
+
+    /**
+     * Get the number of toggle references that are waiting to be removed in
+     * a batch. This is always 0 when batched release is disabled.
+     *
+     * @return the number of pending toggle reference removals
+     */
+    public static int getPendingReleaseCount() {
+        return pendingReleases.size();
+    }
+
+    /**
+     * Remove all pending toggle references immediately, on the calling
+     * thread. Call this when the main loop stops, so pending toggle
+     * references are not lost. Disabling batched release with
+     * {@link #setBatchedRelease(boolean)} also flushes the pending toggle
+     * references.
+     */
+    public static void flushReleases() {
+        MemorySegment address;
+        int count = 0;
+        while ((address = pendingReleases.poll()) != null) {
+            removeToggleRef(address);
+            count++;
+        }
+        if (count > 0)
+            GLibLogger.debug("Unref %ld objects", count);
+    }
+
     // Calls g_object_add_toggle_ref
     private static void addToggleRef(Proxy object) {
         try {
@@ -319,16 +405,56 @@ public class InstanceCache {
     private static void handleToggleNotify(MemorySegment ignored,
                                            MemorySegment object,
                                            int isLastRef) {
+        Entry entry = references.get(object.address());
+        if (entry == null)
+            return;
+
         if (isLastRef != 0) {
-            Proxy proxy = strongReferences.remove(object);
             GLibLogger.debug("Toggle %ld to weak reference (is last ref)",
-                    object == null ? 0 : object.address());
-            weakReferences.put(object, new WeakReference<>(proxy));
+                    object.address());
+            entry.toWeak();
         } else {
-            WeakReference<Proxy> proxy = weakReferences.remove(object);
             GLibLogger.debug("Toggle %ld to strong reference",
-                    object == null ? 0 : object.address());
-            strongReferences.put(object, proxy.get());
+                    object.address());
+            entry.toStrong();
+        }
+    }
+
+    /**
+     * The cache entry for a GObject instance: a weak reference to the
+     * instance, and a strong reference that is only set while the entry is in
+     * the strong state.
+     * <p>
+     * The state and the strong reference are changed together while holding
+     * the lock of the entry, so a toggle is never observed half-way. Readers
+     * do not lock: they read the volatile strong reference, and fall back to
+     * the weak reference.
+     */
+    private static final class Entry extends WeakReference<Proxy> {
+
+        volatile Proxy strong;
+        private boolean weak = false; // guarded by this
+
+        Entry(Proxy instance) {
+            super(instance);
+            this.strong = instance;
+        }
+
+        // Release the strong reference
+        synchronized void toWeak() {
+            if (! weak) {
+                weak = true;
+                strong = null;
+            }
+        }
+
+        // Restore the strong reference (if the instance was not yet
+        // garbage-collected)
+        synchronized void toStrong() {
+            if (weak) {
+                weak = false;
+                strong = get();
+            }
         }
     }
 
@@ -338,20 +464,119 @@ public class InstanceCache {
      * remove the toggle reference.
      *
      * @param address memory address of the object instance to be cleaned
+     * @param entry   the cache entry of the object instance
      */
-    private record ToggleRefFinalizer(MemorySegment address)
+    private record ToggleRefFinalizer(MemorySegment address, Entry entry)
             implements Runnable {
 
+        /*
+         * With batched release, the cache entry is removed immediately, and
+         * the toggle reference later. When native code returns the same
+         * object in the meantime, a new Proxy object is created with its own
+         * toggle reference. The old Proxy object is unreachable, so the
+         * two are never observed together. The native object briefly has two
+         * toggle references (GObject does not toggle while there is more than
+         * one), and the pending removal removes one of them (they are
+         * identical), so the new Proxy object ends up with the only toggle
+         * reference.
+         *
+         * This order is deliberate: if the stale entry were kept until the
+         * toggle reference is removed, put() would find it and return the new
+         * Proxy object without a toggle reference.
+         */
         public void run() {
-            GLibLogger.debug("Unref %ld",
-                    address == null ? 0L : address.address());
+            if (batchedRelease) {
+                InstanceCache.references.remove(address.address(), entry);
+                pendingReleases.add(address);
+                if (releaseScheduled.compareAndSet(false, true))
+                    ReleaseSource.schedule();
+                return;
+            }
+
+            GLibLogger.debug("Unref %ld", address.address());
+            removeToggleRef(address);
+            InstanceCache.references.remove(address.address(), entry);
+        }
+    }
+
+    // Calls g_object_remove_toggle_ref
+    private static void removeToggleRef(MemorySegment address) {
+        try {
+            g_object_remove_toggle_ref.invokeExact(
+                    address, toggle_notify, MemorySegment.NULL);
+        } catch (Throwable _err) {
+            throw new AssertionError("Unexpected exception occurred: ", _err);
+        }
+    }
+
+    /**
+     * An idle source on the default main context that removes the pending
+     * toggle references in batches. The upcall stub is only created when
+     * batched release is used.
+     */
+    private static final class ReleaseSource {
+
+        private static final int SOURCE_REMOVE = 0;
+        private static final int SOURCE_CONTINUE = 1;
+
+        private static final MethodHandle g_idle_add =
+                Interop.downcallHandle(
+                        "g_idle_add",
+                        FunctionDescriptor.of(ValueLayout.JAVA_INT,
+                                ValueLayout.ADDRESS, ValueLayout.ADDRESS),
+                        false);
+
+        private static final MemorySegment dispatch;
+
+        static {
+            try {
+                FunctionDescriptor fdesc = FunctionDescriptor.of(
+                        ValueLayout.JAVA_INT,
+                        ValueLayout.ADDRESS);
+                var handle = MethodHandles.lookup().findStatic(
+                        ReleaseSource.class,
+                        "dispatch",
+                        fdesc.toMethodType()
+                );
+                dispatch = Linker.nativeLinker()
+                        .upcallStub(handle, fdesc, Arena.global());
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        // Calls g_idle_add
+        static void schedule() {
             try {
-                g_object_remove_toggle_ref.invokeExact(
-                        address, toggle_notify, MemorySegment.NULL);
+                int _ = (int) g_idle_add.invokeExact(dispatch, MemorySegment.NULL);
             } catch (Throwable _err) {
                 throw new AssertionError("Unexpected exception occurred: ", _err);
             }
-            InstanceCache.weakReferences.remove(address);
+        }
+
+        // Callback function, triggered by the idle source
+        private static int dispatch(MemorySegment ignored) {
+            int count = 0;
+            MemorySegment address;
+            while (count < MAX_BATCH_SIZE
+                    && (address = pendingReleases.poll()) != null) {
+                removeToggleRef(address);
+                count++;
+            }
+            GLibLogger.debug("Unref %ld objects", count);
+
+            // Continue in the next iteration of the main loop when the batch
+            // was full
+            if (!pendingReleases.isEmpty())
+                return SOURCE_CONTINUE;
+
+            // Addresses that were added after the queue was drained, but
+            // before the flag is reset, need a new dispatch.
+            releaseScheduled.set(false);
+            if (!pendingReleases.isEmpty()
+                    && releaseScheduled.compareAndSet(false, true))
+                return SOURCE_CONTINUE;
+            return SOURCE_REMOVE;
         }
     }
 }
@@ -20,23 +20,29 @@
 package io.github.jwharm.javagi.gobject;
 
 import java.lang.foreign.MemorySegment;
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.function.BooleanSupplier;
 
+import io.github.jwharm.javagi.gobject.types.Types;
+import io.github.jwharm.javagi.interop.Interop;
 import io.github.jwharm.javagi.interop.MemoryCleaner;
 import org.gnome.glib.GLib;
 import org.gnome.glib.LogLevelFlags;
 import org.gnome.gobject.Closure;
+import org.gnome.gobject.ClosureMarshal;
 import org.gnome.gobject.Value;
 
 import static io.github.jwharm.javagi.Constants.LOG_DOMAIN;
 
 /**
  * An implementation of {@link Closure} that can be used with Java callbacks.
- * In most cases, the callback will be invoked using reflection. For two common 
- * cases (Runnable and BooleanSupplier), the callback will be invoked directly.
+ * In most cases, the callback will be invoked using a method handle. For two
+ * common cases (Runnable and BooleanSupplier), the callback will be invoked
+ * directly.
  */
 public class JavaClosure extends Closure {
 
@@ -122,57 +128,136 @@ public class JavaClosure extends Closure {
     }
 
     /**
-     * Construct a {@link Closure} that will invoke the provided Java method
-     * using reflection. The Closure function arguments are read from the
+     * Construct a {@link Closure} that will invoke the provided Java method.
+     * The method is compiled into a method handle when the Closure is
+     * constructed. The Closure function arguments are read directly from the
      * argument-{@link Value} containers and passed to the method. The return
      * value of the method is put in the Closure return-{@link Value}.
+     * <p>
+     * The method may declare fewer parameters than the Closure receives
+     * (for example, a signal handler that does not use the signal
+     * arguments). The remaining arguments are ignored.
      *
      * @param instance a class instance on which the provided method will be
      *                 invoked. When the method is static, this parameter is
      *                 ignored and and may be {@code null}.
      * @param method   the method to invoke.
      *                 See {@link Method#invoke(Object, Object...)}
+     * @throws IllegalArgumentException if the method is not accessible
      */
     public JavaClosure(Object instance, Method method) {
         this(simple((int) getMemoryLayout().byteSize(), null).handle());
-        setMarshal((closure, returnValue, paramValues, hint, data) -> {
+        setMarshal(new MethodMarshal(instance, method));
+    }
+
+    /*
+     * A ClosureMarshal that invokes a method handle. The upcall method is
+     * overridden, so the GValue arrays are read directly from native memory,
+     * without creating Value proxy objects.
+     */
+    private static final class MethodMarshal implements ClosureMarshal {
+
+        private final MethodHandle handle;
+        private final int parameterCount;
+        private final String methodName;
+        private final String className;
+
+        MethodMarshal(Object instance, Method method) {
+            this.handle = compile(instance, method);
+            this.parameterCount = method.getParameterCount();
+            this.methodName = method.getName();
+            this.className = instance == null ? "null" : instance.getClass().getName();
+        }
+
+        /*
+         * Create a method handle with type (MemorySegment, MemorySegment)void.
+         * The arguments are the return-GValue and the array of parameter
+         * GValues. The first parameter GValue is the instance, and is skipped.
+         * Every method parameter is read from its GValue by an adapter that
+         * is chosen by the declared parameter type.
+         */
+        private static MethodHandle compile(Object instance, Method method) {
+            MethodHandle target;
             try {
-                Object[] parameterObjects;
-                if (paramValues == null || paramValues.length == 0) {
-                    parameterObjects = new Object[0];
-                } else {
-                    // Convert the parameter Values into Java Objects
-                    parameterObjects = new Object[paramValues.length - 1];
-                    for (int v = 1; v < paramValues.length; v++) {
-                        Object o = ValueUtil.valueToObject(paramValues[v]);
-                        parameterObjects[v - 1] = o;
-                    }
-                }
-                // Invoke the method
+                Types.addReads(method.getDeclaringClass());
                 method.setAccessible(true);
-                Object result = method.invoke(instance, parameterObjects);
+                target = MethodHandles.lookup().unreflect(method);
+            } catch (IllegalAccessException | RuntimeException e) {
+                throw new IllegalArgumentException("Cannot access method " + method, e);
+            }
+            if (!Modifier.isStatic(method.getModifiers()))
+                target = target.bindTo(instance);
+
+            Class<?>[] types = method.getParameterTypes();
+            MethodHandle[] readers = new MethodHandle[types.length];
+            for (int i = 0; i < types.length; i++)
+                readers[i] = MethodHandles.insertArguments(
+                        ValueUtil.reader(types[i]), 1,
+                        ValueUtil.GVALUE_SIZE * (i + 1));
+            target = MethodHandles.filterArguments(target, 0, readers);
+
+            // All readers receive the same array of parameter GValues
+            Class<?> returnType = target.type().returnType();
+            target = MethodHandles.permuteArguments(target,
+                    MethodType.methodType(returnType, MemorySegment.class),
+                    new int[types.length]);
 
-                // Convert the returned Object to a GValue
-                ValueUtil.objectToValue(result, returnValue);
-            } catch (InvocationTargetException e) {
+            if (returnType == void.class)
+                return MethodHandles.dropArguments(target, 0, MemorySegment.class);
+
+            target = target.asType(target.type().changeReturnType(Object.class));
+            return MethodHandles.collectArguments(ValueUtil.writer(), 1, target);
+        }
+
+        @Override
+        public void run(Closure closure,
+                        Value returnValue,
+                        Value[] paramValues,
+                        MemorySegment invocationHint,
+                        MemorySegment marshalData) {
+            MemorySegment params = MemorySegment.NULL;
+            if (paramValues != null && paramValues.length > 0)
+                params = paramValues[0].handle();
+            upcall(closure.handle(),
+                    returnValue == null ? MemorySegment.NULL : returnValue.handle(),
+                    paramValues == null ? 0 : paramValues.length,
+                    params, invocationHint, marshalData);
+        }
+
+        @Override
+        public void upcall(MemorySegment closure,
+                           MemorySegment returnValue,
+                           int nParamValues,
+                           MemorySegment paramValues,
+                           MemorySegment invocationHint,
+                           MemorySegment marshalData) {
+            if (Math.max(nParamValues - 1, 0) < parameterCount) {
                 GLib.log(
                     LOG_DOMAIN,
                     LogLevelFlags.LEVEL_CRITICAL,
-                    "JavaClosure: Exception in method %s in class %s: %s\n",
-                    method.getName(),
-                    instance == null ? "null" : instance.getClass().getName(),
-                    e.getCause().toString()
+                    "JavaClosure: Method %s in class %s expects %d parameters, got %d\n",
+                    methodName,
+                    className,
+                    parameterCount,
+                    Math.max(nParamValues - 1, 0)
                 );
-            } catch (Exception e) {
+                return;
+            }
+
+            try {
+                MemorySegment params = parameterCount == 0 ? paramValues
+                        : Interop.reinterpret(paramValues, ValueUtil.GVALUE_SIZE * nParamValues);
+                handle.invokeExact(returnValue, params);
+            } catch (Throwable e) {
                 GLib.log(
                     LOG_DOMAIN,
                     LogLevelFlags.LEVEL_CRITICAL,
-                    "JavaClosure: Cannot invoke method %s in class %s: %s\n",
-                    method == null ? "null" : method.getName(),
-                    instance == null ? "null" : instance.getClass().getName(),
+                    "JavaClosure: Exception in method %s in class %s: %s\n",
+                    methodName,
+                    className,
                     e.toString()
                 );
             }
-        });
+        }
     }
 }
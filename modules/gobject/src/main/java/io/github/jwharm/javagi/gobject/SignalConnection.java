@@ -40,6 +40,22 @@ public class SignalConnection<T> {
     private final Arena arena;
     private final Closure closure;
 
+    /**
+     * Create a SignalConnection instance for the provided GObject instance and
+     * handler ID. The signal callback is a shared upcall stub, that is not
+     * bound to an arena.
+     *
+     * @param instance  the native memory address of the GObject instance
+     * @param handlerId the handler ID of the signal
+     */
+    public SignalConnection(MemorySegment instance, long handlerId) {
+        this.instance = (GObject) InstanceCache.getForType(
+                instance, GObject::new, true);
+        this.handlerId = (int) handlerId;
+        this.arena = null;
+        this.closure = null;
+    }
+
     /**
      * Create a SignalConnection instance for the provided GObject instance and
      * handler ID.
@@ -109,7 +125,8 @@ public class SignalConnection<T> {
      */
     public void disconnect() {
         GObjects.signalHandlerDisconnect(instance, handlerId);
-        arena.close();
+        if (arena != null)
+            arena.close();
     }
 
     /**
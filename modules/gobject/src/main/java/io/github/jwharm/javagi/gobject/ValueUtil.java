@@ -19,13 +19,22 @@
 
 package io.github.jwharm.javagi.gobject;
 
+import java.lang.foreign.FunctionDescriptor;
 import java.lang.foreign.MemorySegment;
-import java.lang.reflect.Method;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.VarHandle;
 
-import io.github.jwharm.javagi.gobject.types.Types;
+import io.github.jwharm.javagi.base.Proxy;
+
+import io.github.jwharm.javagi.interop.Interop;
+import io.github.jwharm.javagi.interop.Platform;
 import org.gnome.glib.GLib;
 import org.gnome.glib.LogLevelFlags;
 import org.gnome.glib.Type;
+import org.gnome.glib.Variant;
 import org.gnome.gobject.*;
 
 import io.github.jwharm.javagi.base.Enumeration;
@@ -34,9 +43,63 @@ import static io.github.jwharm.javagi.Constants.LOG_DOMAIN;
 
 /**
  * Utility functions to convert a {@link Value} to and from a Java Object.
+ * <p>
+ * The conversion switches on the fundamental type of the GValue, that is read
+ * from native memory as a primitive {@code long}. Values of primitive types
+ * are read and written directly in the data union of the GValue. Only strings,
+ * objects, boxed types, GParamSpecs and GVariants are converted with the
+ * methods of the {@link Value} proxy class.
  */
 public class ValueUtil {
-    
+
+    // Fundamental type numbers, see <gobject/gtype.h>
+    private static final int FUNDAMENTAL_SHIFT = 2;
+    private static final long FUNDAMENTAL_MAX = 255L << FUNDAMENTAL_SHIFT;
+    private static final int NONE = 1;
+    private static final int CHAR = 3;
+    private static final int UCHAR = 4;
+    private static final int BOOLEAN = 5;
+    private static final int INT = 6;
+    private static final int UINT = 7;
+    private static final int LONG = 8;
+    private static final int ULONG = 9;
+    private static final int INT64 = 10;
+    private static final int UINT64 = 11;
+    private static final int ENUM = 12;
+    private static final int FLAGS = 13;
+    private static final int FLOAT = 14;
+    private static final int DOUBLE = 15;
+    private static final int STRING = 16;
+    private static final int POINTER = 17;
+    private static final int PARAM = 19;
+    private static final int OBJECT = 20;
+    private static final int VARIANT = 21;
+
+    // struct GValue { GType g_type; union { ... } data[2]; }
+    static final long GVALUE_SIZE = Value.getMemoryLayout().byteSize();
+    private static final long DATA_OFFSET = ValueLayout.JAVA_LONG.byteSize();
+
+    // A glong is 32 bits on Windows, and 64 bits on Linux and macOS
+    private static final boolean LONG_IS_INT =
+            "windows".equals(Platform.getRuntimePlatform());
+
+    private static final VarHandle GTYPE_HANDLE = ValueLayout.JAVA_LONG.varHandle();
+    private static final VarHandle INT_HANDLE = ValueLayout.JAVA_INT.varHandle();
+    private static final VarHandle LONG_HANDLE = ValueLayout.JAVA_LONG.varHandle();
+    private static final VarHandle FLOAT_HANDLE = ValueLayout.JAVA_FLOAT.varHandle();
+    private static final VarHandle DOUBLE_HANDLE = ValueLayout.JAVA_DOUBLE.varHandle();
+    private static final VarHandle ADDRESS_HANDLE = ValueLayout.ADDRESS.varHandle();
+
+    private static final MethodHandle g_type_fundamental = Interop.downcallHandle(
+            "g_type_fundamental",
+            FunctionDescriptor.of(ValueLayout.JAVA_LONG, ValueLayout.JAVA_LONG),
+            false);
+
+    // The GType of G_TYPE_GTYPE is not a fundamental type
+    private static final class GTypeHolder {
+        static final long GTYPE = GObjects.gtypeGetType().getValue();
+    }
+
     /**
      * Read the GType from the GValue, call the corresponding getter (using the
      * methods defined in the {@link Value} proxy class), and return the result.
@@ -50,28 +113,83 @@ public class ValueUtil {
         if (src == null) {
             return null;
         }
-        
-        Type type = src.readGType();
-        
-        if (type == null || type.equals(Types.NONE)) {
+        return valueToObject(src.handle(), src);
+    }
+
+    /**
+     * Read the GType from the GValue at the provided memory address, and
+     * return its value as a Java object. A {@link Value} proxy object is only
+     * created for strings, objects, boxed types, GParamSpecs and GVariants.
+     *
+     * @param  address the memory address of a GValue
+     * @return a Java object (or boxed primitive value) that has been
+     *         marshaled from the GValue, or {@code null} if {@code address}
+     *         is {@code NULL}.
+     */
+    public static Object valueToObject(MemorySegment address) {
+        if (address == null || MemorySegment.NULL.equals(address)) {
             return null;
         }
+        return valueToObject(Interop.reinterpret(address, GVALUE_SIZE), null);
+    }
 
-        if (type.equals(Types.BOOLEAN))           return src.getBoolean();
-        if (type.equals(Types.CHAR))              return src.getSchar();
-        if (type.equals(Types.DOUBLE))            return src.getDouble();
-        if (type.equals(Types.FLOAT))             return src.getFloat();
-        if (type.equals(Types.INT))               return src.getInt();
-        if (type.equals(Types.LONG))              return src.getLong();
-        if (type.equals(Types.STRING))            return src.getString();
-        if (type.equals(Types.ENUM))              return src.getEnum();
-        if (type.equals(Types.FLAGS))             return src.getFlags();
-        if (type.equals(Types.OBJECT))            return src.getObject();
-        if (type.equals(GObjects.gtypeGetType())) return src.getGtype();
-        if (type.equals(Types.POINTER))           return src.getPointer();
-        if (type.equals(Types.PARAM))             return src.getParam();
+    /**
+     * Read the values of a native array of GValues, for example the parameter
+     * values of a closure invocation.
+     *
+     * @param  address the memory address of the first GValue
+     * @param  offset  the index of the first GValue to read
+     * @param  count   the number of GValues to read
+     * @return the values of the GValues, marshaled to Java objects
+     */
+    public static Object[] valuesToObjects(MemorySegment address,
+                                           int offset,
+                                           int count) {
+        Object[] result = new Object[count];
+        if (count == 0)
+            return result;
 
-        return src.getBoxed();
+        MemorySegment array = Interop.reinterpret(address,
+                GVALUE_SIZE * (offset + count));
+        for (int i = 0; i < count; i++)
+            result[i] = valueToObject(
+                    array.asSlice(GVALUE_SIZE * (offset + i), GVALUE_SIZE),
+                    null);
+        return result;
+    }
+
+    private static Object valueToObject(MemorySegment gvalue, Value src) {
+        long gtype = (long) GTYPE_HANDLE.get(gvalue, 0L);
+        if (gtype == 0L)
+            return null;
+        if (gtype == GTypeHolder.GTYPE)
+            return proxy(gvalue, src).getGtype();
+
+        return switch (fundamental(gtype)) {
+            case NONE    -> null;
+            case BOOLEAN -> (int) INT_HANDLE.get(gvalue, DATA_OFFSET) != 0;
+            case CHAR,
+                 UCHAR   -> (byte) (int) INT_HANDLE.get(gvalue, DATA_OFFSET);
+            case INT,
+                 UINT    -> (int) INT_HANDLE.get(gvalue, DATA_OFFSET);
+            case LONG,
+                 ULONG   -> LONG_IS_INT
+                    ? (Object) (int) INT_HANDLE.get(gvalue, DATA_OFFSET)
+                    : (Object) (long) LONG_HANDLE.get(gvalue, DATA_OFFSET);
+            case INT64,
+                 UINT64  -> (long) LONG_HANDLE.get(gvalue, DATA_OFFSET);
+            case ENUM,
+                 FLAGS   -> (int) readGLong(gvalue, 0L);
+            case FLOAT   -> (float) FLOAT_HANDLE.get(gvalue, DATA_OFFSET);
+            case DOUBLE  -> (double) DOUBLE_HANDLE.get(gvalue, DATA_OFFSET);
+            case STRING  -> Interop.getStringFrom(
+                    (MemorySegment) ADDRESS_HANDLE.get(gvalue, DATA_OFFSET));
+            case POINTER -> (MemorySegment) ADDRESS_HANDLE.get(gvalue, DATA_OFFSET);
+            case PARAM   -> proxy(gvalue, src).getParam();
+            case OBJECT  -> proxy(gvalue, src).getObject();
+            case VARIANT -> proxy(gvalue, src).getVariant();
+            default      -> proxy(gvalue, src).getBoxed();
+        };
     }
 
     /**
@@ -87,47 +205,39 @@ public class ValueUtil {
         if (src == null || dest == null)
             return;
 
-        Type type = dest.readGType();
-        if (type == null)
+        MemorySegment gvalue = dest.handle();
+        long gtype = (long) GTYPE_HANDLE.get(gvalue, 0L);
+        if (gtype == 0L)
             return;
 
         try {
-            if (type.equals(Types.BOOLEAN)) {
-                dest.setBoolean((Boolean) src);
-            } else if (type.equals(Types.CHAR)) {
-                dest.setSchar((Byte) src);
-            } else if (type.equals(Types.DOUBLE)) {
-                dest.setDouble((Double) src);
-            } else if (type.equals(Types.FLOAT)) {
-                dest.setFloat((Float) src);
-            } else if (type.equals(Types.INT)) {
-                dest.setInt((Integer) src);
-            } else if (type.equals(Types.LONG)) {
-                // On Linux: Value.setLong(long), on Windows: Value.setLong(int)
-                // Use reflection to bypass the type checker
-                for (Method m : Value.class.getDeclaredMethods()) {
-                    if ("setLong".equals(m.getName())) {
-                        m.invoke(dest, src);
-                        break;
-                    }
-                }
-            } else if (type.equals(Types.STRING)) {
-                dest.setString((String) src);
-            } else if (type.equals(Types.ENUM)) {
-                dest.setEnum(((Enumeration) src).getValue());
-            } else if (type.equals(Types.FLAGS)) {
-                dest.setFlags(((Enumeration) src).getValue());
-            } else if (type.equals(Types.OBJECT)) {
-                dest.setObject((GObject) src);
-            } else if (type.equals(GObjects.gtypeGetType())) {
+            if (gtype == GTypeHolder.GTYPE) {
                 dest.setGtype((Type) src);
-            } else if (type.equals(Types.POINTER)) {
-                dest.setPointer((MemorySegment) src);
-            } else if (type.equals(Types.PARAM)) {
-                dest.setParam((ParamSpec) src);
-            } else {
-                // Boxed value
-                dest.setBoxed((MemorySegment) src);
+                return;
+            }
+
+            switch (fundamental(gtype)) {
+                case BOOLEAN -> INT_HANDLE.set(gvalue, DATA_OFFSET, (Boolean) src ? 1 : 0);
+                case CHAR    -> INT_HANDLE.set(gvalue, DATA_OFFSET, (int) (Byte) src);
+                case UCHAR   -> INT_HANDLE.set(gvalue, DATA_OFFSET, ((Byte) src) & 0xFF);
+                case INT,
+                     UINT    -> INT_HANDLE.set(gvalue, DATA_OFFSET, ((Number) src).intValue());
+                case LONG,
+                     ULONG   -> writeGLong(gvalue, ((Number) src).longValue());
+                case INT64,
+                     UINT64  -> LONG_HANDLE.set(gvalue, DATA_OFFSET, ((Number) src).longValue());
+                case ENUM,
+                     FLAGS   -> writeGLong(gvalue, src instanceof Enumeration e
+                                        ? e.getValue()
+                                        : ((Number) src).intValue());
+                case FLOAT   -> FLOAT_HANDLE.set(gvalue, DATA_OFFSET, (float) (Float) src);
+                case DOUBLE  -> DOUBLE_HANDLE.set(gvalue, DATA_OFFSET, (double) (Double) src);
+                case STRING  -> dest.setString((String) src);
+                case POINTER -> ADDRESS_HANDLE.set(gvalue, DATA_OFFSET, (MemorySegment) src);
+                case PARAM   -> dest.setParam((ParamSpec) src);
+                case OBJECT  -> dest.setObject((GObject) src);
+                case VARIANT -> dest.setVariant((Variant) src);
+                default      -> dest.setBoxed((MemorySegment) src); // Boxed value
             }
         } catch (Exception e) {
             GLib.log(
@@ -135,9 +245,200 @@ public class ValueUtil {
                     LogLevelFlags.LEVEL_CRITICAL,
                     "ValueUtil: Cannot set Object with Class %s to GValue with GType %s: %s\n",
                     src.getClass().getSimpleName(),
-                    GObjects.typeName(type),
+                    GObjects.typeName(new Type(gtype)),
                     e.toString()
             );
         }
     }
+
+    // Get the fundamental type number: 1 for G_TYPE_NONE, 2 for
+    // G_TYPE_INTERFACE, etc.
+    private static int fundamental(long gtype) {
+        if (gtype > FUNDAMENTAL_MAX) {
+            try {
+                gtype = (long) g_type_fundamental.invokeExact(gtype);
+            } catch (Throwable _err) {
+                throw new AssertionError(_err);
+            }
+        }
+        return (int) (gtype >>> FUNDAMENTAL_SHIFT);
+    }
+
+    // glong, gulong, enum and flags values are stored in a glong
+    private static long readGLong(MemorySegment values, long offset) {
+        return LONG_IS_INT
+                ? (int) INT_HANDLE.get(values, offset + DATA_OFFSET)
+                : (long) LONG_HANDLE.get(values, offset + DATA_OFFSET);
+    }
+
+    private static void writeGLong(MemorySegment gvalue, long value) {
+        if (LONG_IS_INT)
+            INT_HANDLE.set(gvalue, DATA_OFFSET, (int) value);
+        else
+            LONG_HANDLE.set(gvalue, DATA_OFFSET, value);
+    }
+
+    /**
+     * Get a method handle that reads a GValue from an array of GValues, and
+     * returns its value as the requested Java type. The method handle has
+     * type {@code (MemorySegment, long)T}, where the long is the byte offset
+     * of the GValue in the array. Primitive values, strings and GObjects are
+     * read without allocating a Value proxy.
+     *
+     * @param  type the Java type of the value
+     * @return a method handle that reads a GValue
+     */
+    public static MethodHandle reader(Class<?> type) {
+        MethodHandle reader;
+        if (type == int.class)                         reader = find("readInt", int.class);
+        else if (type == boolean.class)                reader = find("readBoolean", boolean.class);
+        else if (type == long.class)                   reader = find("readLong", long.class);
+        else if (type == float.class)                  reader = find("readFloat", float.class);
+        else if (type == double.class)                 reader = find("readDouble", double.class);
+        else if (type == byte.class)                   reader = find("readByte", byte.class);
+        else if (type == String.class)                 reader = find("readString", String.class);
+        else if (GObject.class.isAssignableFrom(type)) reader = find("readInstance", Proxy.class);
+        else                                           reader = find("readObject", Object.class);
+        return reader.asType(MethodType.methodType(type, MemorySegment.class, long.class));
+    }
+
+    /*
+     * Get a method handle that writes a Java object into a GValue. The method
+     * handle has type (MemorySegment, Object)void, where the MemorySegment is
+     * the address of the GValue, which may be NULL.
+     */
+    static MethodHandle writer() {
+        try {
+            return MethodHandles.lookup().findStatic(ValueUtil.class, "writeObject",
+                    MethodType.methodType(void.class, MemorySegment.class, Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Get a method handle that writes a value of the requested Java type into
+     * a GValue. The method handle has type {@code (MemorySegment, T)void},
+     * where the MemorySegment is the address of an initialized GValue.
+     * Primitive values are written directly into the GValue, without boxing.
+     * A {@code null} value is ignored.
+     *
+     * @param  type the Java type of the value
+     * @return a method handle that writes a GValue
+     */
+    public static MethodHandle writer(Class<?> type) {
+        MethodHandle writer;
+        if (type == int.class)            writer = find("writeInt", void.class, int.class);
+        else if (type == boolean.class)   writer = find("writeBoolean", void.class, boolean.class);
+        else if (type == long.class)      writer = find("writeLong", void.class, long.class);
+        else if (type == float.class)     writer = find("writeFloat", void.class, float.class);
+        else if (type == double.class)    writer = find("writeDouble", void.class, double.class);
+        else if (type == String.class)    writer = find("writeString", void.class, String.class);
+        else                              writer = writer();
+        return writer.asType(MethodType.methodType(void.class, MemorySegment.class, type));
+    }
+
+    private static MethodHandle find(String name, Class<?> returnType) {
+        return find(name, returnType, long.class);
+    }
+
+    private static MethodHandle find(String name, Class<?> returnType, Class<?> argType) {
+        try {
+            return MethodHandles.lookup().findStatic(ValueUtil.class, name,
+                    MethodType.methodType(returnType, MemorySegment.class, argType));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static int readInt(MemorySegment values, long offset) {
+        return (int) INT_HANDLE.get(values, offset + DATA_OFFSET);
+    }
+
+    private static boolean readBoolean(MemorySegment values, long offset) {
+        return (int) INT_HANDLE.get(values, offset + DATA_OFFSET) != 0;
+    }
+
+    private static long readLong(MemorySegment values, long offset) {
+        int fundamental = fundamental((long) GTYPE_HANDLE.get(values, offset));
+        return switch (fundamental) {
+            case INT64, UINT64 -> (long) LONG_HANDLE.get(values, offset + DATA_OFFSET);
+            case LONG, ULONG, ENUM, FLAGS -> readGLong(values, offset);
+            default -> (int) INT_HANDLE.get(values, offset + DATA_OFFSET);
+        };
+    }
+
+    private static float readFloat(MemorySegment values, long offset) {
+        return (float) FLOAT_HANDLE.get(values, offset + DATA_OFFSET);
+    }
+
+    private static double readDouble(MemorySegment values, long offset) {
+        return (double) DOUBLE_HANDLE.get(values, offset + DATA_OFFSET);
+    }
+
+    private static byte readByte(MemorySegment values, long offset) {
+        return (byte) (int) INT_HANDLE.get(values, offset + DATA_OFFSET);
+    }
+
+    private static String readString(MemorySegment values, long offset) {
+        return Interop.getStringFrom(
+                (MemorySegment) ADDRESS_HANDLE.get(values, offset + DATA_OFFSET));
+    }
+
+    // The GValue holds a borrowed reference, so no extra ref is added
+    private static Proxy readInstance(MemorySegment values, long offset) {
+        var address = (MemorySegment) ADDRESS_HANDLE.get(values, offset + DATA_OFFSET);
+        if (MemorySegment.NULL.equals(address))
+            return null;
+        return InstanceCache.getForType(address, GObject::new, true);
+    }
+
+    private static Object readObject(MemorySegment values, long offset) {
+        return valueToObject(values.asSlice(offset, GVALUE_SIZE), null);
+    }
+
+    private static void writeObject(MemorySegment gvalue, Object result) {
+        if (result == null || MemorySegment.NULL.equals(gvalue))
+            return;
+        objectToValue(result, new Value(Interop.reinterpret(gvalue, GVALUE_SIZE)));
+    }
+
+    private static void writeInt(MemorySegment gvalue, int value) {
+        switch (fundamental((long) GTYPE_HANDLE.get(gvalue, 0L))) {
+            case INT64, UINT64 -> LONG_HANDLE.set(gvalue, DATA_OFFSET, (long) value);
+            case LONG, ULONG, ENUM, FLAGS -> writeGLong(gvalue, value);
+            default -> INT_HANDLE.set(gvalue, DATA_OFFSET, value);
+        }
+    }
+
+    private static void writeBoolean(MemorySegment gvalue, boolean value) {
+        INT_HANDLE.set(gvalue, DATA_OFFSET, value ? 1 : 0);
+    }
+
+    private static void writeLong(MemorySegment gvalue, long value) {
+        switch (fundamental((long) GTYPE_HANDLE.get(gvalue, 0L))) {
+            case INT64, UINT64 -> LONG_HANDLE.set(gvalue, DATA_OFFSET, value);
+            case LONG, ULONG, ENUM, FLAGS -> writeGLong(gvalue, value);
+            default -> INT_HANDLE.set(gvalue, DATA_OFFSET, (int) value);
+        }
+    }
+
+    private static void writeFloat(MemorySegment gvalue, float value) {
+        FLOAT_HANDLE.set(gvalue, DATA_OFFSET, value);
+    }
+
+    private static void writeDouble(MemorySegment gvalue, double value) {
+        DOUBLE_HANDLE.set(gvalue, DATA_OFFSET, value);
+    }
+
+    // g_value_set_string copies the string
+    private static void writeString(MemorySegment gvalue, String value) {
+        if (value != null)
+            new Value(gvalue).setString(value);
+    }
+
+    // Use the existing Value proxy, or create one
+    private static Value proxy(MemorySegment gvalue, Value src) {
+        return src != null ? src : new Value(gvalue);
+    }
 }
@@ -0,0 +1,275 @@
+/* Java-GI - Java language bindings for GObject-Introspection-based libraries
+ * Copyright (C) 2024 Jan-Willem Harmannij
+ *
+ * SPDX-License-Identifier: LGPL-2.1-or-later
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.jwharm.javagi.gobject.types;
+
+import io.github.jwharm.javagi.interop.Interop;
+import org.gnome.glib.Type;
+
+/**
+ * GType constants of the GLib boxed types, adapted from
+ * {@code <gobject/glib-types.h>}. The constants are available as
+ * {@code Types.DATE}, {@code Types.REGEX} etc.
+ * <p>
+ * The constants are declared in this interface (and not in {@link Types}) so
+ * they are resolved lazily: initializing the Types class does not initialize
+ * its superinterfaces, so the get-type functions are only called the first
+ * time one of these constants is used.
+ */
+interface BoxedTypes {
+
+    /**
+     * The {@code GType} for {@code GDate}.
+     */
+    Type DATE = Interop.getType("g_date_get_type");
+
+    /**
+     * The {@code GType} for a boxed type holding a {@code null}-terminated
+     * array of strings.
+     *
+     * @since 2.4
+     */
+    Type STRV = Interop.getType("g_strv_get_type");
+
+    /**
+     * The {@code GType} for {@code GString}.
+     */
+    Type GSTRING = Interop.getType("g_gstring_get_type");
+
+    /**
+     * The {@code GType} for a boxed type holding a {@code GHashTable}
+     * reference.
+     *
+     * @since 2.10
+     */
+    Type HASH_TABLE =
+            Interop.getType("g_hash_table_get_type");
+
+    /**
+     * The {@code GType} for a boxed type holding a {@code GRegex} reference.
+     *
+     * @since 2.14
+     */
+    Type REGEX = Interop.getType("g_regex_get_type");
+
+    /**
+     * The {@code GType} for a boxed type holding a {@code GMatchInfo}
+     * reference.
+     *
+     * @since 2.30
+     */
+    Type MATCH_INFO =
+            Interop.getType("g_match_info_get_type");
+
+    /**
+     * The {@code GType} for a boxed type holding a {@code GArray} reference.
+     *
+     * @since 2.22
+     */
+    Type ARRAY = Interop.getType("g_array_get_type");
+
+    /**
+     * The {@code GType} for a boxed type holding a {@code GByteArray}
+     * reference.
+     *
+     * @since 2.22
+     */
+    Type BYTE_ARRAY =
+            Interop.getType("g_byte_array_get_type");
+
+    /**
+     * The {@code GType} for a boxed type holding a {@code GPtrArray}
+     * reference.
+     *
+     * @since 2.22
+     */
+    Type PTR_ARRAY =
+            Interop.getType("g_ptr_array_get_type");
+
+    /**
+     * The {@code GType} for {@code GBytes}.
+     *
+     * @since 2.32
+     */
+    Type BYTES = Interop.getType("g_bytes_get_type");
+
+    /**
+     * The {@code GType} for a boxed type holding a {@code GVariantType}.
+     *
+     * @since 2.24
+     */
+    Type VARIANT_TYPE =
+            Interop.getType("g_variant_type_get_gtype");
+
+    /**
+     * The {@code GType} for a boxed type holding a {@code GError}.
+     *
+     * @since 2.26
+     */
+    Type ERROR = Interop.getType("g_error_get_type");
+
+    /**
+     * The {@code GType} for a boxed type holding a {@code GDateTime}.
+     *
+     * @since 2.26
+     */
+    Type DATE_TIME =
+            Interop.getType("g_date_time_get_type");
+
+    /**
+     * The {@code GType} for a boxed type holding a {@code GTimeZone}.
+     *
+     * @since 2.34
+     */
+    Type TIME_ZONE =
+            Interop.getType("g_time_zone_get_type");
+
+    /**
+     * The {@code GType} for {@code GIOChannel}.
+     */
+    Type IO_CHANNEL =
+            Interop.getType("g_io_channel_get_type");
+
+    /**
+     * The {@code GType} for {@code GIOCondition}.
+     */
+    Type IO_CONDITION =
+            Interop.getType("g_io_condition_get_type");
+
+    /**
+     * The {@code GType} for a boxed type holding a {@code GVariantBuilder}.
+     *
+     * @since 2.30
+     */
+    Type VARIANT_BUILDER =
+            Interop.getType("g_variant_builder_get_type");
+
+    /**
+     * The {@code GType} for a boxed type holding a {@code GVariantDict}.
+     *
+     * @since 2.40
+     */
+    Type VARIANT_DICT =
+            Interop.getType("g_variant_dict_get_type");
+
+    /**
+     * The {@code GType} for a boxed type holding a {@code GMainLoop}.
+     *
+     * @since 2.30
+     */
+    Type MAIN_LOOP =
+            Interop.getType("g_main_loop_get_type");
+
+    /**
+     * The {@code GType} for a boxed type holding a {@code GMainContext}.
+     *
+     * @since 2.30
+     */
+    Type MAIN_CONTEXT =
+            Interop.getType("g_main_context_get_type");
+
+    /**
+     * The {@code GType} for a boxed type holding a {@code GSource}.
+     *
+     * @since 2.30
+     */
+    Type SOURCE = Interop.getType("g_source_get_type");
+
+    /**
+     * The {@code GType} for a boxed type holding a {@code GPollFD}.
+     *
+     * @since 2.36
+     */
+    Type POLLFD = Interop.getType("g_pollfd_get_type");
+
+    /**
+     * The {@code GType} for a boxed type holding a {@code GMarkupParseContext}.
+     *
+     * @since 2.36
+     */
+    Type MARKUP_PARSE_CONTEXT =
+            Interop.getType("g_markup_parse_context_get_type");
+
+    /**
+     * The {@code GType} for a boxed type holding a {@code GKeyFile}.
+     *
+     * @since 2.32
+     */
+    Type KEY_FILE = Interop.getType("g_key_file_get_type");
+
+    /**
+     * The {@code GType} for a boxed type holding a {@code GMappedFile}.
+     *
+     * @since 2.40
+     */
+    Type MAPPED_FILE =
+            Interop.getType("g_mapped_file_get_type");
+
+    /**
+     * The {@code GType} for a boxed type holding a {@code GThread}.
+     *
+     * @since 2.36
+     */
+    Type THREAD = Interop.getType("g_thread_get_type");
+
+    /**
+     * The {@code GType} for a boxed type holding a {@code GChecksum}.
+     *
+     * @since 2.36
+     */
+    Type CHECKSUM = Interop.getType("g_checksum_get_type");
+
+    /**
+     * The {@code GType} for a boxed type holding a {@code GOptionGroup}.
+     *
+     * @since 2.44
+     */
+    Type OPTION_GROUP =
+            Interop.getType("g_option_group_get_type");
+
+    /**
+     * The {@code GType} for a boxed type holding a {@code GUri}.
+     *
+     * @since 2.66
+     */
+    Type URI = Interop.getType("g_uri_get_type");
+
+    /**
+     * The {@code GType} for {@code GTree}.
+     *
+     * @since 2.68
+     */
+    Type TREE = Interop.getType("g_tree_get_type");
+
+    /**
+     * The {@code GType} for {@code GPatternSpec}.
+     *
+     * @since 2.70
+     */
+    Type PATTERN_SPEC =
+            Interop.getType("g_pattern_spec_get_type");
+
+    /**
+     * The {@code GType} for a boxed type holding a {@code GBookmarkFile}.
+     *
+     * @since 2.76
+     */
+    Type BOOKMARK_FILE =
+            Interop.getType("g_bookmark_file_get_type");
+}
@@ -20,6 +20,7 @@
 package io.github.jwharm.javagi.gobject.types;
 
 import io.github.jwharm.javagi.base.Proxy;
+import io.github.jwharm.javagi.interop.AddressMap;
 import io.github.jwharm.javagi.interop.Interop;
 import io.github.jwharm.javagi.interop.InteropException;
 import org.gnome.glib.GLib;
@@ -76,6 +77,12 @@ public class Overrides {
                         ValueLayout.ADDRESS),
                 false);
 
+    /*
+     * Parent TypeClasses, by the address of the TypeClass.
+     */
+    private static final AddressMap<MemorySegment> PARENT_CLASSES =
+            new AddressMap<>();
+
     /*
      * Convert "methodName" to "overrideMethodName"
      */
@@ -266,11 +273,15 @@ public class Overrides {
     public static MemorySegment lookupVirtualMethod(MemorySegment address,
                                                     MemoryLayout classLayout,
                                                     String name) {
-        var path = MemoryLayout.PathElement.groupElement(name);
-        return address
-                .get(ValueLayout.ADDRESS.withTargetLayout(classLayout), 0)
-                .get(ValueLayout.ADDRESS,
-                     classLayout.byteOffset(path));
+        return lookupVirtualMethod(address, VirtualMethodTable.of(classLayout), name);
+    }
+
+    private static MemorySegment lookupVirtualMethod(MemorySegment address,
+                                                     VirtualMethodTable table,
+                                                     String name) {
+        var myClass = typeClass(address);
+        return myClass.reinterpret(table.byteSize())
+                .get(ValueLayout.ADDRESS, table.offset(name));
     }
 
     /**
@@ -286,22 +297,19 @@ public class Overrides {
     public static MemorySegment lookupVirtualMethodParent(MemorySegment address,
                                                           MemoryLayout layout,
                                                           String name) {
-        try {
-            // Get the TypeClass
-            var myClass = address.get(ValueLayout.ADDRESS, 0);
-
-            // Get the parent TypeClass
-            var parentClass = (MemorySegment) g_type_class_peek_parent
-                    .invoke(myClass);
-
-            // Return a pointer to the requested virtual method address in the
-            // dispatch table
-            var path = MemoryLayout.PathElement.groupElement(name);
-            return parentClass.reinterpret(layout.byteSize())
-                    .get(ValueLayout.ADDRESS, layout.byteOffset(path));
-        } catch (Throwable t) {
-            throw new InteropException(t);
-        }
+        return lookupVirtualMethodParent(address, VirtualMethodTable.of(layout), name);
+    }
+
+    private static MemorySegment lookupVirtualMethodParent(MemorySegment address,
+                                                           VirtualMethodTable table,
+                                                           String name) {
+        // Get the parent TypeClass
+        var parentClass = parentClass(typeClass(address));
+
+        // Return a pointer to the requested virtual method address in the
+        // dispatch table
+        return parentClass.reinterpret(table.byteSize())
+                .get(ValueLayout.ADDRESS, table.offset(name));
     }
 
     /**
@@ -320,22 +328,21 @@ public class Overrides {
                                                     MemoryLayout classLayout,
                                                     String name,
                                                     Type ifaceType) {
-        try {
-            // Get the TypeClass
-            MemorySegment myClass = address.get(ValueLayout.ADDRESS, 0);
-
-            // Get the TypeInterface implemented by the TypeClass
-            MemorySegment iface = (MemorySegment) g_type_interface_peek
-                    .invokeExact(myClass,ifaceType.getValue().longValue());
-
-            // Return a pointer to the requested virtual method address in the
-            // dispatch table
-            var path = MemoryLayout.PathElement.groupElement(name);
-            return iface.reinterpret(classLayout.byteSize())
-                    .get(ValueLayout.ADDRESS, classLayout.byteOffset(path));
-        } catch (Throwable t) {
-            throw new InteropException(t);
-        }
+        return lookupVirtualMethod(address, VirtualMethodTable.of(classLayout),
+                name, ifaceType);
+    }
+
+    private static MemorySegment lookupVirtualMethod(MemorySegment address,
+                                                     VirtualMethodTable table,
+                                                     String name,
+                                                     Type ifaceType) {
+        // Get the TypeInterface implemented by the TypeClass
+        var iface = typeInterface(typeClass(address), table, ifaceType);
+
+        // Return a pointer to the requested virtual method address in the
+        // dispatch table
+        return iface.reinterpret(table.byteSize())
+                .get(ValueLayout.ADDRESS, table.offset(name));
     }
 
     /**
@@ -355,25 +362,71 @@ public class Overrides {
                                                           MemoryLayout layout,
                                                           String name,
                                                           Type ifaceType) {
+        return lookupVirtualMethodParent(address, VirtualMethodTable.of(layout),
+                name, ifaceType);
+    }
+
+    private static MemorySegment lookupVirtualMethodParent(MemorySegment address,
+                                                           VirtualMethodTable table,
+                                                           String name,
+                                                           Type ifaceType) {
+        // Get the parent TypeClass
+        var parentClass = parentClass(typeClass(address));
+
+        // Get the TypeInterface implemented by the parent TypeClass
+        var parentIface = typeInterface(parentClass, table, ifaceType);
+
+        // Return a pointer to the requested virtual method address in the
+        // dispatch table
+        return parentIface.reinterpret(table.byteSize())
+                .get(ValueLayout.ADDRESS, table.offset(name));
+    }
+
+    // Read the TypeClass pointer from the first field of the instance
+    private static MemorySegment typeClass(MemorySegment address) {
+        return address.get(ValueLayout.ADDRESS, 0);
+    }
+
+    /*
+     * Get the parent TypeClass. The TypeClass of a static type is never
+     * freed, so the result of g_type_class_peek_parent is cached by the
+     * address of the TypeClass.
+     */
+    private static MemorySegment parentClass(MemorySegment myClass) {
+        MemorySegment parentClass = PARENT_CLASSES.get(myClass.address());
+        if (parentClass != null)
+            return parentClass;
+
+        try {
+            parentClass = (MemorySegment) g_type_class_peek_parent
+                    .invokeExact(myClass);
+        } catch (Throwable t) {
+            throw new InteropException(t);
+        }
+        if (! MemorySegment.NULL.equals(parentClass))
+            PARENT_CLASSES.putIfAbsent(myClass.address(), parentClass);
+        return parentClass;
+    }
+
+    /*
+     * Get the TypeInterface implemented by the TypeClass. The result of
+     * g_type_interface_peek is cached in the virtual method table of the
+     * interface.
+     */
+    private static MemorySegment typeInterface(MemorySegment typeClass,
+                                               VirtualMethodTable table,
+                                               Type ifaceType) {
+        MemorySegment iface = table.getInterface(typeClass);
+        if (iface != null)
+            return iface;
+
         try {
-            // Get the TypeClass
-            var myClass = address.get(ValueLayout.ADDRESS, 0);
-
-            // Get the parent TypeClass
-            var parentClass = (MemorySegment) g_type_class_peek_parent
-                    .invoke(myClass);
-
-            // Get the TypeInterface implemented by the parent TypeClass
-            var parentIface = (MemorySegment) g_type_interface_peek.invokeExact(
-                    parentClass,ifaceType.getValue().longValue());
-
-            // Return a pointer to the requested virtual method address in the
-            // dispatch table
-            var path = MemoryLayout.PathElement.groupElement(name);
-            return parentIface.reinterpret(layout.byteSize())
-                    .get(ValueLayout.ADDRESS, layout.byteOffset(path));
+            iface = (MemorySegment) g_type_interface_peek.invokeExact(
+                    typeClass, ifaceType.getValue().longValue());
         } catch (Throwable t) {
             throw new InteropException(t);
         }
+        table.putInterface(typeClass, iface);
+        return iface;
     }
 }
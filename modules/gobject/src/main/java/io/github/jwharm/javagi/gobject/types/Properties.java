@@ -23,17 +23,24 @@ import io.github.jwharm.javagi.gobject.annotations.Property;
 import io.github.jwharm.javagi.base.Proxy;
 import io.github.jwharm.javagi.base.ProxyInstance;
 import io.github.jwharm.javagi.gobject.ValueUtil;
+import io.github.jwharm.javagi.interop.Interop;
 import org.gnome.glib.GLib;
 import org.gnome.glib.LogLevelFlags;
 import org.gnome.glib.Type;
 import org.gnome.gobject.*;
 
 import java.lang.foreign.Arena;
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.function.Consumer;
 
@@ -44,6 +51,18 @@ import static io.github.jwharm.javagi.Constants.LOG_DOMAIN;
  */
 public class Properties {
 
+    private static final long GVALUE_SIZE = Value.getMemoryLayout().byteSize();
+
+    private static final MethodHandle IS_NULL;
+    static {
+        try {
+            IS_NULL = MethodHandles.lookup().findStatic(Objects.class, "isNull",
+                    MethodType.methodType(boolean.class, Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new AssertionError(e);
+        }
+    }
+
     /**
      * Read the GType of the GParamSpec of a GObject property.
      *
@@ -203,24 +222,9 @@ public class Properties {
      * Infer the ParamSpec class from the Java class that is used in the
      * getter/setter method.
      */
-    private static Class<? extends ParamSpec> inferType(Method method) {
-        // Determine the Java class of the property
-        Class<?> cls;
-        if ((! method.getReturnType().equals(void.class))
-                && method.getParameterCount() == 0) {
-            // Getter
-            cls = method.getReturnType();
-        } else if (method.getReturnType().equals(void.class)
-                && method.getParameterCount() == 1) {
-            // Setter
-            cls = method.getParameterTypes()[0];
-        } else {
-            GLib.log(LOG_DOMAIN, LogLevelFlags.LEVEL_CRITICAL,
-                    "Invalid property getter/setter %s in class %s\n",
-                    method.getName(), method.getDeclaringClass().getName());
-            return null;
-        }
-
+    private static Class<? extends ParamSpec> inferType(Class<?> cls,
+                                                        String propertyName,
+                                                        Class<?> declaringClass) {
         // Infer the ParamSpec from the Java class.
         if (cls.equals(boolean.class) || cls.equals(Boolean.class))
             return ParamSpecBoolean.class;
@@ -262,13 +266,55 @@ public class Properties {
             return ParamSpecObject.class;
 
         GLib.log(LOG_DOMAIN, LogLevelFlags.LEVEL_CRITICAL,
-                "Invalid property type %s in method %s in class %s\n",
+                "Invalid property type %s of property %s in class %s\n",
                 cls.getName(),
-                method.getName(),
-                method.getDeclaringClass().getName());
+                propertyName,
+                declaringClass.getName());
         return null;
     }
 
+    /*
+     * Check that the method is a getter (no parameters and a return value) or
+     * a setter (one parameter and no return value).
+     */
+    private static boolean isGetterOrSetter(Method method) {
+        boolean isVoid = method.getReturnType().equals(void.class);
+        return (! isVoid && method.getParameterCount() == 0)
+                || (isVoid && method.getParameterCount() == 1);
+    }
+
+    /*
+     * Combine a getter method handle with type (T)R into a method handle with
+     * type (MemorySegment gvalue, GObject)void that writes the returned value
+     * into the GValue.
+     */
+    private static MethodHandle getter(MethodHandle getter) {
+        Class<?> type = getter.type().returnType();
+        getter = getter.asType(MethodType.methodType(type, GObject.class));
+        return MethodHandles.filterArguments(
+                ValueUtil.writer(type), 1, getter);
+    }
+
+    /*
+     * Combine a setter method handle with type (T, P)void into a method
+     * handle with type (GObject, MemorySegment gvalue)void that reads the
+     * value from the GValue. The setter is not called with a null value.
+     */
+    private static MethodHandle setter(MethodHandle setter) {
+        Class<?> type = setter.type().parameterType(1);
+        setter = setter.asType(MethodType.methodType(void.class, GObject.class, type));
+        if (! type.isPrimitive()) {
+            MethodHandle isNull = MethodHandles.dropArguments(
+                    IS_NULL.asType(MethodType.methodType(boolean.class, type)),
+                    0, GObject.class);
+            setter = MethodHandles.guardWithTest(
+                    isNull, MethodHandles.empty(setter.type()), setter);
+        }
+        MethodHandle reader = MethodHandles.insertArguments(
+                ValueUtil.reader(type), 1, 0L);
+        return MethodHandles.filterArguments(setter, 1, reader);
+    }
+
     /*
      * Create a GParamFlags based on {@code @Property} annotation parameters.
      */
@@ -283,6 +329,26 @@ public class Properties {
         return flags;
     }
 
+    /**
+     * The definition of a property: the name, ParamSpec class and flags, and
+     * method handles for the getter and setter method.
+     *
+     * @param name   the name of the property
+     * @param type   the ParamSpec class, or {@code ParamSpec.class} to infer it
+     *               from the type of the getter or setter
+     * @param flags  the flags of the property
+     * @param getter method handle with type {@code (T)R} that returns the
+     *               property value, or {@code null}
+     * @param setter method handle with type {@code (T,P)void} that sets the
+     *               property value, or {@code null}
+     */
+    public record PropertyDefinition(String name,
+                                     Class<? extends ParamSpec> type,
+                                     Set<ParamFlags> flags,
+                                     MethodHandle getter,
+                                     MethodHandle setter) {
+    }
+
     /**
      * If the provided class defines {@code @Property}-annotated getter and/or
      * setter methods, this function will return a class initializer that
@@ -298,16 +364,11 @@ public class Properties {
      */
     public static <T extends GObject, TC extends GObject.ObjectClass>
     Consumer<TC> installProperties(Class<T> cls) {
+        var lookup = MethodHandles.lookup();
+        Types.addReads(cls);
 
-        List<ParamSpec> propertySpecs = new ArrayList<>();
-        propertySpecs.add(null); // Index 0 is reserved
-
-        /*
-         * Create an index of property names. The list is used to obtain a
-         * property id using `list.indexOf(property.name())`
-         */
-        List<String> propertyNames = new ArrayList<>();
-        propertyNames.add(null); // index 0 is reserved
+        // Properties by name, in the order in which they are found
+        Map<String, PropertyDefinition> definitions = new LinkedHashMap<>();
 
         for (Method method : cls.getDeclaredMethods()) {
 
@@ -316,25 +377,111 @@ public class Properties {
             if (p == null)
                 continue;
 
+            if (! isGetterOrSetter(method)) {
+                GLib.log(LOG_DOMAIN, LogLevelFlags.LEVEL_CRITICAL,
+                        "Invalid property getter/setter %s in class %s\n",
+                        method.getName(), cls.getName());
+                continue;
+            }
+
             // Name is specified with the annotation, or infer it from the
             // method name
             String name = p.name().isEmpty()
                     ? getPropertyName(method.getName())
                     : p.name();
 
-            // Check if this property has already been added from another method
-            if (propertyNames.contains(name))
+            MethodHandle handle;
+            try {
+                handle = lookup.unreflect(method);
+            } catch (IllegalAccessException e) {
+                // Tried to use a private method
+                GLib.log(LOG_DOMAIN, LogLevelFlags.LEVEL_CRITICAL,
+                        "IllegalAccessException accessing %s.%s for property '%s'\n",
+                        cls.getName(), method.getName(), name);
                 continue;
+            }
 
-            Class<? extends ParamSpec> paramspec = p.type();
+            // A static getter or setter ignores the instance. The
+            // definition expects a method handle with an instance parameter.
+            if (Modifier.isStatic(method.getModifiers()))
+                handle = MethodHandles.dropArguments(handle, 0, cls);
 
             /*
-             * Check if the type is set on this method. It can be set on either
-             * the getter or setter. If the type is not set, it defaults to
-             * ParamSpec.class
+             * The flags are read from the first method that is found for the
+             * property. The type can be set on either the getter or setter.
+             * Returns void -> setter, else -> getter.
              */
-            if (paramspec.equals(ParamSpec.class))
-                paramspec = inferType(method);
+            boolean isSetter = method.getReturnType().equals(void.class);
+            var existing = definitions.get(name);
+            definitions.put(name, new PropertyDefinition(
+                    name,
+                    existing == null || existing.type().equals(ParamSpec.class)
+                            ? p.type() : existing.type(),
+                    existing == null ? getFlags(p) : existing.flags(),
+                    isSetter ? (existing == null ? null : existing.getter()) : handle,
+                    isSetter ? handle : (existing == null ? null : existing.setter())));
+        }
+
+        return installProperties(cls, List.copyOf(definitions.values()));
+    }
+
+    /**
+     * Return a class initializer that registers the provided properties as
+     * GObject properties and overrides the {@code GObject.getProperty} and
+     * {@code setProperty} methods to call the getters and setters.
+     *
+     * @param  cls         the class that declares the properties
+     * @param  definitions the property definitions
+     * @param  <T>         the class must extend {@link org.gnome.gobject.GObject}
+     * @param  <TC>        the returned lambda expects a
+     *                     {@link GObject.ObjectClass} parameter
+     * @return a class initializer that registers the properties, or
+     *         {@code null} if there are no properties
+     */
+    public static <T extends GObject, TC extends GObject.ObjectClass>
+    Consumer<TC> installProperties(Class<T> cls,
+                                   List<PropertyDefinition> definitions) {
+
+        List<ParamSpec> propertySpecs = new ArrayList<>();
+        propertySpecs.add(null); // Index 0 is reserved
+
+        /*
+         * Create an index of property names. The list is used to obtain a
+         * property id using `list.indexOf(property.name())`
+         */
+        List<String> propertyNames = new ArrayList<>();
+        propertyNames.add(null); // index 0 is reserved
+
+        /*
+         * Create arrays of getter and setter method handles. The getters have
+         * type (MemorySegment gvalue, GObject)void and the setters have type
+         * (GObject, MemorySegment gvalue)void. They read and write the GValue
+         * directly, so primitive values are not boxed.
+         */
+        List<MethodHandle> getterList = new ArrayList<>();
+        List<MethodHandle> setterList = new ArrayList<>();
+        getterList.add(null);
+        setterList.add(null);
+
+        for (PropertyDefinition definition : definitions) {
+            String name = definition.name();
+            Set<ParamFlags> flags = definition.flags();
+            Class<? extends ParamSpec> paramspec = definition.type();
+
+            // Check if this property has already been added
+            if (propertyNames.contains(name))
+                continue;
+
+            /*
+             * Check if the type is set. If the type is not set, it defaults
+             * to ParamSpec.class, and is inferred from the getter or setter.
+             */
+            if (paramspec.equals(ParamSpec.class)) {
+                Class<?> javaType = definition.getter() != null
+                        ? definition.getter().type().returnType()
+                        : definition.setter().type().parameterType(1);
+                paramspec = inferType(javaType, name, cls);
+            }
 
             if (paramspec == null)
                 continue;
@@ -342,63 +489,63 @@ public class Properties {
             ParamSpec ps;
             if (paramspec.equals(ParamSpecBoolean.class))
                 ps = GObjects.paramSpecBoolean(name, name, name,
-                        false, getFlags(p));
+                        false, flags);
 
             else if (paramspec.equals(ParamSpecChar.class))
                 ps = GObjects.paramSpecChar(name, name, name,
-                        Byte.MIN_VALUE, Byte.MAX_VALUE, (byte) 0, getFlags(p));
+                        Byte.MIN_VALUE, Byte.MAX_VALUE, (byte) 0, flags);
 
             else if (paramspec.equals(ParamSpecDouble.class))
                 ps = GObjects.paramSpecDouble(name, name, name,
-                        -Double.MAX_VALUE, Double.MAX_VALUE, 0.0d, getFlags(p));
+                        -Double.MAX_VALUE, Double.MAX_VALUE, 0.0d, flags);
 
             else if (paramspec.equals(ParamSpecFloat.class))
                 ps = GObjects.paramSpecFloat(name, name, name,
-                        -Float.MAX_VALUE, Float.MAX_VALUE, 0.0f, getFlags(p));
+                        -Float.MAX_VALUE, Float.MAX_VALUE, 0.0f, flags);
 
             else if (paramspec.equals(ParamSpecGType.class))
                 ps = GObjects.paramSpecGtype(name, name, name,
-                        Types.NONE, getFlags(p));
+                        Types.NONE, flags);
 
             else if (paramspec.equals(ParamSpecInt.class))
                 ps = GObjects.paramSpecInt(name, name, name,
-                        Integer.MIN_VALUE, Integer.MAX_VALUE, 0, getFlags(p));
+                        Integer.MIN_VALUE, Integer.MAX_VALUE, 0, flags);
 
             else if (paramspec.equals(ParamSpecInt64.class))
                 ps = GObjects.paramSpecInt64(name, name, name,
-                        Long.MIN_VALUE, Long.MAX_VALUE, 0, getFlags(p));
+                        Long.MIN_VALUE, Long.MAX_VALUE, 0, flags);
 
             else if (paramspec.equals(ParamSpecLong.class))
                 ps = GObjects.paramSpecLong(name, name, name,
-                        Integer.MIN_VALUE, Integer.MAX_VALUE, 0, getFlags(p));
+                        Integer.MIN_VALUE, Integer.MAX_VALUE, 0, flags);
 
             else if (paramspec.equals(ParamSpecPointer.class))
                 ps = GObjects.paramSpecPointer(name, name, name,
-                        getFlags(p));
+                        flags);
 
             else if (paramspec.equals(ParamSpecString.class))
                 ps = GObjects.paramSpecString(name, name, name,
-                        null, getFlags(p));
+                        null, flags);
 
             else if (paramspec.equals(ParamSpecUChar.class))
                 ps = GObjects.paramSpecUchar(name, name, name,
-                        (byte) 0, Byte.MAX_VALUE, (byte) 0, getFlags(p));
+                        (byte) 0, Byte.MAX_VALUE, (byte) 0, flags);
 
             else if (paramspec.equals(ParamSpecUInt.class))
                 ps = GObjects.paramSpecUint(name, name, name,
-                        0, Integer.MAX_VALUE, 0, getFlags(p));
+                        0, Integer.MAX_VALUE, 0, flags);
 
             else if (paramspec.equals(ParamSpecUInt64.class))
                 ps = GObjects.paramSpecUint64(name, name, name,
-                        0, Long.MAX_VALUE, 0, getFlags(p));
+                        0, Long.MAX_VALUE, 0, flags);
 
             else if (paramspec.equals(ParamSpecULong.class))
                 ps = GObjects.paramSpecUlong(name, name, name,
-                        0, Integer.MAX_VALUE, 0, getFlags(p));
+                        0, Integer.MAX_VALUE, 0, flags);
 
             else if (paramspec.equals(ParamSpecUnichar.class))
                 ps = GObjects.paramSpecUnichar(name, name, name,
-                        0, getFlags(p));
+                        0, flags);
 
             else {
                 GLib.log(LOG_DOMAIN, LogLevelFlags.LEVEL_CRITICAL,
@@ -408,36 +555,16 @@ public class Properties {
             }
             propertySpecs.add(ps);
             propertyNames.add(name);
+            getterList.add(definition.getter() == null ? null : getter(definition.getter()));
+            setterList.add(definition.setter() == null ? null : setter(definition.setter()));
         }
 
         // No properties found?
         if (propertySpecs.size() == 1)
             return null;
 
-        // Create arrays of getter and setter methods.
-        Method[] getters = new Method[propertySpecs.size()];
-        Method[] setters = new Method[propertySpecs.size()];
-
-        for (Method method : cls.getDeclaredMethods()) {
-            if (! method.isAnnotationPresent(Property.class)) {
-                continue;
-            }
-            Property property = method.getDeclaredAnnotation(Property.class);
-
-            // Name is specified with the annotation, or infer it form the
-            // method name
-            String name = property.name().isEmpty()
-                    ? getPropertyName(method.getName())
-                    : property.name();
-
-            int idx = propertyNames.indexOf(name);
-
-            // Returns void -> setter, else -> getter
-            if (method.getReturnType().equals(void.class))
-                setters[idx] = method;
-            else
-                getters[idx] = method;
-        }
+        MethodHandle[] getters = getterList.toArray(new MethodHandle[0]);
+        MethodHandle[] setters = setterList.toArray(new MethodHandle[0]);
 
         // Create GParamSpec array. Index 0 is reserved.
         final ParamSpec[] pspecs = new ParamSpec[propertySpecs.size()];
@@ -466,30 +593,19 @@ public class Properties {
                     return;
                 }
 
-                // Invoke the getter method
-                Object output;
+                // Invoke the getter method and write the result to the GValue
                 try {
-                    output = getters[propertyId].invoke(object);
-                } catch (InvocationTargetException e) {
+                    getters[propertyId].invokeExact(
+                            Interop.reinterpret(value.handle(), GVALUE_SIZE),
+                            object);
+                } catch (Throwable t) {
                     // Log exceptions thrown by the getter method
-                    Throwable t = e.getTargetException();
                     GLib.log(LOG_DOMAIN, LogLevelFlags.LEVEL_CRITICAL,
                             "%s.getProperty('%s'): %s\n",
                             cls.getName(),
                             propertyNames.get(propertyId),
                             t.toString());
-                    return;
-                } catch (IllegalAccessException e) {
-                    // Tried to call a private method
-                    GLib.log(LOG_DOMAIN, LogLevelFlags.LEVEL_CRITICAL,
-                            "IllegalAccessException calling %s.getProperty('%s')\n",
-                            cls.getName(), propertyNames.get(propertyId));
-                    return;
                 }
-
-                // Convert return value to GValue
-                if (output != null)
-                    ValueUtil.objectToValue(output, value);
             }, Arena.global());
 
             // Override the set_property virtual method
@@ -511,27 +627,18 @@ public class Properties {
                     return;
                 }
 
-                // Convert argument to GValue
-                Object input = ValueUtil.valueToObject(value);
-
-                // Invoke the setter method
-                if (input != null) {
-                    try {
-                        setters[propertyId].invoke(object, input);
-                    } catch (InvocationTargetException e) {
-                        // Log exceptions thrown by the setter method
-                        Throwable t = e.getTargetException();
-                        GLib.log(LOG_DOMAIN, LogLevelFlags.LEVEL_CRITICAL,
-                                "%s.setProperty('%s'): %s\n",
-                                cls.getName(),
-                                propertyNames.get(propertyId),
-                                t.toString());
-                    } catch (IllegalAccessException e) {
-                        // Tried to call a private method
-                        GLib.log(LOG_DOMAIN, LogLevelFlags.LEVEL_CRITICAL,
-                                "IllegalAccessException calling %s.setProperty('%s')\n",
-                                cls.getName(), propertyNames.get(propertyId));
-                    }
+                // Read the GValue and invoke the setter method
+                try {
+                    setters[propertyId].invokeExact(
+                            object,
+                            Interop.reinterpret(value.handle(), GVALUE_SIZE));
+                } catch (Throwable t) {
+                    // Log exceptions thrown by the setter method
+                    GLib.log(LOG_DOMAIN, LogLevelFlags.LEVEL_CRITICAL,
+                            "%s.setProperty('%s'): %s\n",
+                            cls.getName(),
+                            propertyNames.get(propertyId),
+                            t.toString());
                 }
             }, Arena.global());
 
@@ -24,13 +24,17 @@ import io.github.jwharm.javagi.base.Proxy;
 import io.github.jwharm.javagi.base.ProxyInstance;
 import io.github.jwharm.javagi.gobject.ValueUtil;
 import io.github.jwharm.javagi.gobject.annotations.Signal;
+import io.github.jwharm.javagi.interop.AddressMap;
 import io.github.jwharm.javagi.interop.Interop;
+import io.github.jwharm.javagi.interop.ScratchArena;
 import org.gnome.glib.Quark;
 import org.gnome.glib.Type;
 import org.gnome.gobject.*;
 
 import java.lang.foreign.Arena;
 import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemorySegment;
 import java.lang.foreign.ValueLayout;
 import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Method;
@@ -38,7 +42,9 @@ import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 
 /**
@@ -67,6 +73,26 @@ public class Signals {
                         ValueLayout.ADDRESS, ValueLayout.JAVA_INT),
                 false);
 
+    /*
+     * Emission plans, by GType and detailed signal name.
+     */
+    private static final AddressMap<Map<String, EmissionPlan>> EMISSION_PLANS =
+            new AddressMap<>();
+
+    private static final MemoryLayout GVALUE_LAYOUT = Value.getMemoryLayout();
+    private static final long GVALUE_SIZE = GVALUE_LAYOUT.byteSize();
+
+    // Flag in signal parameter types, see <gobject/gsignal.h>
+    private static final long G_SIGNAL_TYPE_STATIC_SCOPE = 1L;
+
+    private static final MethodHandle g_signal_emitv =
+            Interop.downcallHandle(
+                "g_signal_emitv",
+                FunctionDescriptor.ofVoid(
+                        ValueLayout.ADDRESS, ValueLayout.JAVA_INT,
+                        ValueLayout.JAVA_INT, ValueLayout.ADDRESS),
+                false);
+
     /**
      * The method handle for g_signal_emit_by_name is used by all generated
      * signal-emission methods.
@@ -78,6 +104,16 @@ public class Signals {
                         ValueLayout.ADDRESS, ValueLayout.ADDRESS),
                 true);
 
+    /*
+     * The signal id, detail quark, instance type, parameter types and return
+     * type (or null) of a signal emission.
+     */
+    private record EmissionPlan(int signalId,
+                                int detail,
+                                Type instanceType,
+                                Type[] paramTypes,
+                                Type returnType) {}
+
     private record SignalDeclaration(String signalName,
                                      Set<SignalFlags> signalFlags,
                                      Type returnType,
@@ -159,6 +195,23 @@ public class Signals {
                 + " used as a parameter or return-type of a signal declaration\n");
     }
 
+    /**
+     * The definition of a signal: the name, flags, and the Java classes of
+     * the return type and parameters. The GTypes are inferred from the Java
+     * classes when the signal is installed.
+     *
+     * @param name       the name of the signal
+     * @param flags      the signal flags
+     * @param returnType the Java class of the return value ({@code void.class}
+     *                   when the signal has no return value)
+     * @param paramTypes the Java classes of the parameters
+     */
+    public record SignalDefinition(String name,
+                                   Set<SignalFlags> flags,
+                                   Class<?> returnType,
+                                   List<Class<?>> paramTypes) {
+    }
+
     /**
      * If the provided class contains inner interface declarations with a
      * {@code @Signal}-annotation, this function will return a class
@@ -174,8 +227,8 @@ public class Signals {
     public static <T extends GObject, TC extends GObject.ObjectClass>
     Consumer<TC> installSignals(Class<T> cls) {
 
-        List<SignalDeclaration> signalDeclarations = new ArrayList<>();
-        
+        List<SignalDefinition> signalDefinitions = new ArrayList<>();
+
         for (var iface : cls.getDeclaredClasses()) {
 
             // Look for functional interface declarations...
@@ -187,34 +240,59 @@ public class Signals {
                 continue;
 
             Signal signalAnnotation = iface.getDeclaredAnnotation(Signal.class);
-            
+
             // get the Single Abstract Method of the functional interface
             Method sam = getSingleAbstractMethod(iface);
-            
+
             // signal name
             String signalName = signalAnnotation.name().isBlank()
                     ? getSignalName(iface.getSimpleName())
                     : signalAnnotation.name();
-            
-            // flags
-            Set<SignalFlags> signalFlags = getFlags(signalAnnotation);
-            
+
+            // Add the signal to the list
+            signalDefinitions.add(new SignalDefinition(
+                    signalName,
+                    getFlags(signalAnnotation),
+                    sam.getReturnType(),
+                    List.of(sam.getParameterTypes())));
+        }
+
+        return installSignals(signalDefinitions);
+    }
+
+    /**
+     * Return a class initializer that registers the provided signals (using
+     * {@code g_signal_newv}).
+     *
+     * @param definitions the signal definitions
+     * @param <TC>        the returned lambda expects a
+     *                    {@link GObject.ObjectClass} parameter
+     * @return a class initializer that registers the signals, or {@code null}
+     *         if there are no signals
+     */
+    public static <TC extends GObject.ObjectClass>
+    Consumer<TC> installSignals(List<SignalDefinition> definitions) {
+
+        List<SignalDeclaration> signalDeclarations = new ArrayList<>();
+
+        for (var definition : definitions) {
+
             // return type
-            Type returnType = inferType(sam.getReturnType());
-            
+            Type returnType = inferType(definition.returnType());
+
             // parameter count
-            int nParams = sam.getParameterCount();
-            
+            int nParams = definition.paramTypes().size();
+
             // parameter types
             Type[] paramTypes = new Type[nParams];
-            Class<?>[] paramClasses = sam.getParameterTypes();
             for (int p = 0; p < nParams; p++) {
-                paramTypes[p] = inferType(paramClasses[p]);
+                paramTypes[p] = inferType(definition.paramTypes().get(p));
             }
 
             // Add the signal to the list
             signalDeclarations.add(new SignalDeclaration(
-                    signalName, signalFlags, returnType, nParams, paramTypes));
+                    definition.name(), definition.flags(), returnType,
+                    nParams, paramTypes));
         }
 
         // Don't generate unnecessary class initializer methods.
@@ -251,66 +329,128 @@ public class Signals {
     public static Object emit(GObject gobject,
                               String detailedSignal,
                               Object... params) {
-        Type gtype = Types.getGType(gobject.getClass());
-
-        // Parse the detailed signal name into a signal id and detail quark
-        Out<Integer> signalId = new Out<>();
-        Quark detailQ = new Quark(0);
-        boolean success = GObjects.signalParseName(
-                detailedSignal, gtype, signalId, detailQ, false);
-
-        if (! success)
+        MemorySegment instance = gobject.handle();
+        EmissionPlan plan = getEmissionPlan(instanceType(instance), detailedSignal);
+        if (plan == null)
             throw new IllegalArgumentException("Invalid signal \"%s\" for class %s"
                     .formatted(detailedSignal, gobject));
 
-        try (var arena = Arena.ofConfined()) {
-            // Query the parameter details of the signal
-            SignalQuery query = new SignalQuery(arena);
-            GObjects.signalQuery(signalId.get(), query);
-
-            // Create an array of Types for the parameters
-            int nParams = query.readNParams();
-            Type[] paramTypes = query.readParamTypes();
-
-            // Allocate Values array for the instance parameter and other
-            // parameters
-            var values = new Value[nParams+1];
+        int nParams = plan.paramTypes.length;
+        if (params.length < nParams)
+            throw new IllegalArgumentException("Signal \"%s\" expects %d parameters"
+                    .formatted(detailedSignal, nParams));
 
-            // Allocation return value
-            var returnValue = new Value(arena);
-            Type returnType = query.readReturnType();
-            if (! Types.NONE.equals(returnType))
-                returnValue.init(returnType);
+        // The instance parameter, the other parameters and the return value
+        // are allocated in one block of GValues. The block is aligned for
+        // GValues, also when the scratch arena was already in use.
+        try (var arena = ScratchArena.open()) {
+            MemorySegment block = arena.allocate(GVALUE_LAYOUT, nParams + 2);
+            var values = new Value[nParams + 1];
 
             // Set instance parameter
-            values[0] = new Value(arena).init(gtype);
+            values[0] = new Value(block.asSlice(0, GVALUE_SIZE))
+                    .init(plan.instanceType);
             values[0].setObject(gobject);
 
             // Set other parameters
             for (int i = 0; i < nParams; i++) {
-                values[i+1] = new Value(arena).init(paramTypes[i]);
+                values[i+1] = new Value(block.asSlice(GVALUE_SIZE * (i+1), GVALUE_SIZE))
+                        .init(plan.paramTypes[i]);
                 ValueUtil.objectToValue(params[i], values[i+1]);
             }
 
+            // Allocate return value
+            var returnValue = new Value(block.asSlice(GVALUE_SIZE * (nParams+1), GVALUE_SIZE));
+            if (plan.returnType != null)
+                returnValue.init(plan.returnType);
+
             // Emit the signal
-            GObjects.signalEmitv(values, signalId.get(), detailQ, returnValue);
+            try {
+                g_signal_emitv.invokeExact(block, plan.signalId, plan.detail,
+                        returnValue.handle());
+            } catch (Throwable _err) {
+                throw new AssertionError(_err);
+            }
 
             // Return the result (if any)
-            Object result = Types.NONE.equals(returnType)
+            Object result = plan.returnType == null
                     ? null
                     : ValueUtil.valueToObject(returnValue);
 
             // Cleanup the allocated values
-            for (Value value : values) {
-                if (value != null)
-                    value.unset();
-            }
-            returnValue.unset();
+            for (Value value : values)
+                value.unset();
+            if (plan.returnType != null)
+                returnValue.unset();
 
             return result;
         }
     }
 
+    // Read the GType from the GTypeClass of the instance
+    private static long instanceType(MemorySegment instance) {
+        MemorySegment gclass = Interop.reinterpret(instance, ValueLayout.ADDRESS.byteSize())
+                .get(ValueLayout.ADDRESS, 0);
+        return gclass.reinterpret(ValueLayout.JAVA_LONG.byteSize())
+                .get(ValueLayout.JAVA_LONG, 0);
+    }
+
+    /*
+     * Get the emission plan for the signal, or null if the signal is not
+     * found. The signal id, detail quark, and the parameter and return types
+     * are looked up the first time the signal is emitted for a GType, and
+     * are then cached.
+     */
+    private static EmissionPlan getEmissionPlan(long gtype, String detailedSignal) {
+        Map<String, EmissionPlan> plans = EMISSION_PLANS.get(gtype);
+        if (plans == null) {
+            plans = new ConcurrentHashMap<>();
+            var existing = EMISSION_PLANS.putIfAbsent(gtype, plans);
+            if (existing != null)
+                plans = existing;
+        }
+
+        EmissionPlan plan = plans.get(detailedSignal);
+        if (plan != null)
+            return plan;
+
+        Type type = new Type(gtype);
+
+        // Parse the detailed signal name into a signal id and detail quark
+        Out<Integer> signalId = new Out<>();
+        Quark detailQ = new Quark(0);
+        boolean success = GObjects.signalParseName(
+                detailedSignal, type, signalId, detailQ, false);
+        if (! success)
+            return null;
+
+        // Query the parameter details of the signal
+        try (var arena = Arena.ofConfined()) {
+            SignalQuery query = new SignalQuery(arena);
+            GObjects.signalQuery(signalId.get(), query);
+
+            // The G_SIGNAL_TYPE_STATIC_SCOPE flag is removed from the types
+            Type[] paramTypes = query.readParamTypes();
+            for (int i = 0; i < paramTypes.length; i++)
+                paramTypes[i] = withoutStaticScope(paramTypes[i]);
+            Type returnType = withoutStaticScope(query.readReturnType());
+
+            plan = new EmissionPlan(
+                    signalId.get(),
+                    detailQ.getValue(),
+                    type,
+                    paramTypes,
+                    Types.NONE.equals(returnType) ? null : returnType);
+        }
+
+        var existing = plans.putIfAbsent(detailedSignal, plan);
+        return existing != null ? existing : plan;
+    }
+
+    private static Type withoutStaticScope(Type type) {
+        return new Type(type.getValue() & ~G_SIGNAL_TYPE_STATIC_SCOPE);
+    }
+
     /**
      * Get the single abstract method (SAM) implementation of a class that
      * implements a functional interface. A functional interface is an
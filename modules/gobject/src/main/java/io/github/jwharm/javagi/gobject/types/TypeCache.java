@@ -1,5 +1,5 @@
 /* Java-GI - Java language bindings for GObject-Introspection-based libraries
- * Copyright (C) 2022-2023 Jan-Willem Harmannij
+ * Copyright (C) 2022-2024 Jan-Willem Harmannij
  *
  * SPDX-License-Identifier: LGPL-2.1-or-later
  *
@@ -20,13 +20,13 @@
 package io.github.jwharm.javagi.gobject.types;
 
 import java.lang.foreign.MemorySegment;
-import java.util.Map;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.VarHandle;
 import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
+import io.github.jwharm.javagi.interop.AddressMap;
 import org.gnome.glib.Type;
-import org.gnome.gobject.TypeInstance;
 
 import io.github.jwharm.javagi.base.Proxy;
 
@@ -34,11 +34,37 @@ import io.github.jwharm.javagi.base.Proxy;
  * A register of GTypes with a Java constructor for each GType.
  * Using this register, the correct Java class is always instantiated, based on
  * the GType of the native object instance.
+ * <p>
+ * The GType is read directly from native memory as a primitive {@code long}
+ * ({@code instance->g_class->g_type}), and used as the key in an
+ * {@link AddressMap}. A small inline cache in front of the map remembers the
+ * most recently used types.
  */
 public class TypeCache {
     
-    private final static Map<Type, Function<MemorySegment, ? extends Proxy>> typeRegister
-            = new ConcurrentHashMap<>();
+    private final static AddressMap<Function<MemorySegment, ? extends Proxy>> typeRegister
+            = new AddressMap<>();
+
+    // A segment that spans the entire address space, to read the GType
+    // without allocating a new segment for every native instance
+    private static final MemorySegment ALL =
+            MemorySegment.NULL.reinterpret(Long.MAX_VALUE);
+
+    // Reads a pointer-sized value (GTypeInstance.g_class and GTypeClass.g_type)
+    private static final VarHandle WORD = ValueLayout.JAVA_LONG.varHandle();
+
+    // The inline cache
+    private record CacheEntry(long type,
+                              Function<MemorySegment, ? extends Proxy> ctor,
+                              int epoch) {
+    }
+    private static final int INLINE_CACHE_SIZE = 4;
+    private static final CacheEntry[] inlineCache = new CacheEntry[INLINE_CACHE_SIZE];
+    private static int nextEntry;
+
+    // Incremented when a constructor is registered, to invalidate the inline
+    // cache
+    private static volatile int epoch;
 
     /**
      * Get the constructor from the type registry for the native object
@@ -58,8 +84,9 @@ public class TypeCache {
         if (address == null || address.equals(MemorySegment.NULL)) return null;
 
         // Read the gtype from memory
-        Type type = new TypeInstance(address).readGClass().readGType();
-        
+        long gclass = (long) WORD.get(ALL, address.address());
+        long type = gclass == 0L ? 0L : (long) WORD.get(ALL, gclass);
+
         return getConstructor(type, fallback);
     }
     
@@ -74,14 +101,26 @@ public class TypeCache {
      */
     public static Function<MemorySegment, ? extends Proxy> getConstructor(Type type,
                                                                           Function<MemorySegment, ? extends Proxy> fallback) {
-        // Find the constructor in the typeRegister and return it
-        if (type != null) {
-            Function<MemorySegment, ? extends Proxy> ctor = typeRegister.get(type);
+        Long value = type == null ? null : type.getValue();
+        return getConstructor(value == null ? 0L : value, fallback);
+    }
+
+    private static Function<MemorySegment, ? extends Proxy> getConstructor(long type,
+                                                                           Function<MemorySegment, ? extends Proxy> fallback) {
+        // Find the constructor in the inline cache or the typeRegister and
+        // return it
+        if (type != 0L) {
+            Function<MemorySegment, ? extends Proxy> ctor = lookup(type);
             if (ctor != null) {
                 return ctor;
             }
         }
 
+        // The fallback constructor cannot be registered for an invalid type
+        if (type == 0L) {
+            return fallback;
+        }
+
         // Register the fallback constructor for this type. If another thread
         // did this in the meantime, putIfAbsent() will return that constructor.
         if (fallback != null) {
@@ -92,16 +131,38 @@ public class TypeCache {
         return null;
     }
 
+    /*
+     * Get the constructor from the inline cache, or else from the
+     * typeRegister. The inline cache entries are immutable, so they can be
+     * safely read and replaced without synchronization.
+     */
+    private static Function<MemorySegment, ? extends Proxy> lookup(long type) {
+        int currentEpoch = epoch;
+        for (CacheEntry entry : inlineCache) {
+            if (entry != null && entry.type == type && entry.epoch == currentEpoch) {
+                return entry.ctor;
+            }
+        }
+
+        var ctor = typeRegister.get(type);
+        if (ctor != null) {
+            int index = (nextEntry++) & (INLINE_CACHE_SIZE - 1);
+            inlineCache[index] = new CacheEntry(type, ctor, currentEpoch);
+        }
+        return ctor;
+    }
+
     /**
      * Register the provided constructor function for the provided type
      *
      * @param type Type to use as key in the type register
      * @param ctor Constructor function for this type
      */
-    public static void register(Type type,
+    public static synchronized void register(Type type,
                                 Function<MemorySegment, ? extends Proxy> ctor) {
-        if (type != null) {
-            typeRegister.put(type, ctor);
+        if (type != null && type.getValue() != 0L) {
+            typeRegister.put(type.getValue(), ctor);
+            epoch++;
         }
     }
 }
@@ -0,0 +1,433 @@
+/* Java-GI - Java language bindings for GObject-Introspection-based libraries
+ * Copyright (C) 2022-2024 Jan-Willem Harmannij
+ *
+ * SPDX-License-Identifier: LGPL-2.1-or-later
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.github.jwharm.javagi.gobject.types;
+
+import io.github.jwharm.javagi.base.Proxy;
+import io.github.jwharm.javagi.gobject.annotations.ClassInit;
+import io.github.jwharm.javagi.gobject.annotations.GType;
+import io.github.jwharm.javagi.gobject.annotations.InstanceInit;
+import io.github.jwharm.javagi.gobject.annotations.Layout;
+import org.gnome.glib.GLib;
+import org.gnome.glib.LogLevelFlags;
+import org.gnome.glib.Type;
+import org.gnome.gobject.TypeClass;
+import org.gnome.gobject.TypeInterface;
+
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemorySegment;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.WrongMethodTypeException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static io.github.jwharm.javagi.Constants.LOG_DOMAIN;
+
+/**
+ * Metadata of a Java class that is used to register and instantiate GTypes:
+ * the GType, memory layout, memory address constructor, class and instance
+ * initializers, and the TypeClass or TypeInterface class.
+ * <p>
+ * The metadata is computed once per class (using reflection) and is stored
+ * in a {@link ClassValue}. The GType and memory layout are read when they are
+ * first requested, and are then cached.
+ */
+final class TypeMetadata {
+
+    private static final ClassValue<TypeMetadata> METADATA = new ClassValue<>() {
+        @Override
+        protected TypeMetadata computeValue(Class<?> cls) {
+            return new TypeMetadata(cls);
+        }
+    };
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private final Class<?> cls;
+
+    // Static method that returns the GType, and a method handle to call it.
+    // The GType is cached as a raw value (0 when not yet set), because Type
+    // instances are mutable.
+    private final Method gtypeMethod;
+    private final MethodHandle gtypeGetter;
+    private volatile long gtype;
+
+    // Method that returns the memory layout, and a method handle to call it
+    private final Method layoutMethod;
+    private final boolean layoutAnnotated;
+    private final MethodHandle layoutGetter;
+    private volatile MemoryLayout layout;
+
+    // Memory address constructor, or the reason why it was not found
+    private final Function<MemorySegment, ?> addressConstructor;
+    private final String addressConstructorError;
+
+    private final Consumer<?> instanceInit;
+    private final Consumer<?> classInit;
+    private final Class<?> typeClass;
+    private final Class<?> typeInterface;
+
+    /**
+     * Get the metadata of the provided class.
+     *
+     * @param  cls the class
+     * @return the (cached) metadata
+     */
+    static TypeMetadata of(Class<?> cls) {
+        return METADATA.get(cls);
+    }
+
+    private TypeMetadata(Class<?> cls) {
+        this.cls = cls;
+        Types.addReads(cls);
+        Method[] methods = cls.getDeclaredMethods();
+
+        // Find a static method that returns the GType. A method with return
+        // type org.gnome.glib.Type takes precedence over a method that is
+        // annotated with @GType.
+        Method gtypeMethod = null;
+        for (Method method : methods)
+            if (Modifier.isStatic(method.getModifiers())
+                    && method.isAnnotationPresent(GType.class))
+                gtypeMethod = method;
+        for (Method method : methods)
+            if (Modifier.isStatic(method.getModifiers())
+                    && method.getReturnType().equals(Type.class))
+                gtypeMethod = method;
+        this.gtypeMethod = gtypeMethod;
+        this.gtypeGetter = gtypeMethod == null ? null
+                : unreflect(gtypeMethod, MethodType.methodType(Type.class));
+
+        // Find a method that is annotated with @Layout, or else, a static
+        // method getMemoryLayout()
+        Method layoutMethod = null;
+        boolean layoutAnnotated = false;
+        for (Method method : methods) {
+            if (method.isAnnotationPresent(Layout.class)) {
+                layoutMethod = method;
+                layoutAnnotated = true;
+                break;
+            }
+        }
+        if (layoutMethod == null) {
+            for (Method method : methods) {
+                if (method.getName().equals("getMemoryLayout")
+                        && method.getParameterCount() == 0
+                        && Modifier.isStatic(method.getModifiers())
+                        && MemoryLayout.class.isAssignableFrom(method.getReturnType())) {
+                    layoutMethod = method;
+                    break;
+                }
+            }
+        }
+        this.layoutMethod = layoutMethod;
+        this.layoutAnnotated = layoutAnnotated;
+        this.layoutGetter = layoutMethod == null
+                || (layoutAnnotated && !hasLayoutSignature(layoutMethod)) ? null
+                : unreflect(layoutMethod, MethodType.methodType(MemoryLayout.class));
+
+        // Find the memory address constructor
+        MethodHandle ctor = null;
+        String ctorError = null;
+        try {
+            ctor = LOOKUP.unreflectConstructor(cls.getConstructor(MemorySegment.class))
+                    .asType(MethodType.methodType(Object.class, MemorySegment.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            ctorError = e.toString();
+        }
+        this.addressConstructor = ctor == null ? null : addressConstructor(cls, ctor);
+        this.addressConstructorError = ctorError;
+
+        // Find the instance and class initializers
+        Consumer<?> instanceInit = null;
+        Consumer<?> classInit = null;
+        for (Method method : methods) {
+            if (instanceInit == null && method.isAnnotationPresent(InstanceInit.class))
+                instanceInit = initializer(cls, method, "instance init");
+            if (classInit == null && method.isAnnotationPresent(ClassInit.class))
+                classInit = initializer(cls, method, "class init");
+        }
+        this.instanceInit = instanceInit;
+        this.classInit = classInit;
+
+        // Find the inner TypeClass class, or the inner TypeClass class of the
+        // superclass
+        Class<?> typeClass = findTypeClass(cls);
+        if (typeClass == null && cls.getSuperclass() != null)
+            typeClass = findTypeClass(cls.getSuperclass());
+        this.typeClass = typeClass;
+
+        // Find the inner TypeInterface class
+        Class<?> typeInterface = null;
+        for (Class<?> giface : cls.getClasses()) {
+            if (TypeInterface.class.isAssignableFrom(giface)) {
+                typeInterface = giface;
+                break;
+            }
+        }
+        this.typeInterface = typeInterface;
+    }
+
+    /**
+     * Get the GType of the class, by invoking the static method that returns
+     * the GType. The GType is cached when it has been set.
+     *
+     * @return the GType, or null if not found
+     */
+    Type gtype() {
+        long cached = gtype;
+        if (cached != 0L)
+            return new Type(cached);
+
+        if (gtypeMethod == null) {
+            // No gtype method found
+            GLib.log(LOG_DOMAIN, LogLevelFlags.LEVEL_CRITICAL,
+                    "Cannot find static method that returns org.gnome.glib.Type in class %s\n",
+                    cls.getName());
+            return null;
+        }
+
+        Type result;
+        try {
+            result = (Type) gtypeGetter.invokeExact();
+        } catch (Throwable e) {
+            // Method is not public, or throws an exception
+            GLib.log(LOG_DOMAIN, LogLevelFlags.LEVEL_CRITICAL,
+                    "Exception while trying to read %s.%s\n",
+                    cls.getName(), gtypeMethod.getName());
+            return null;
+        }
+
+        // The GType can be null while the class is being initialized, so it
+        // is only cached when it has been set.
+        if (result == null || result.getValue() == null)
+            return result;
+        gtype = result.getValue();
+        return new Type(gtype);
+    }
+
+    /**
+     * Get the memory layout of the class. The memory layout is cached.
+     *
+     * @return the memory layout, or null if not found
+     */
+    MemoryLayout layout() {
+        MemoryLayout result = layout;
+        if (result != null || layoutMethod == null)
+            return result;
+
+        // Check method signature
+        if (layoutGetter == null) {
+            GLib.log(LOG_DOMAIN, LogLevelFlags.LEVEL_CRITICAL,
+                    "Method %s.%s does not have expected signature () -> MemoryLayout\n",
+                    cls.getName(), layoutMethod.getName());
+            return null;
+        }
+
+        try {
+            result = (MemoryLayout) layoutGetter.invokeExact();
+        } catch (IllegalAccessException e) {
+            // Method is not public
+            if (layoutAnnotated)
+                GLib.log(LOG_DOMAIN, LogLevelFlags.LEVEL_CRITICAL,
+                        "IllegalAccessException when calling %s.%s\n",
+                        cls.getName(), layoutMethod.getName());
+            return null;
+        } catch (Throwable t) {
+            // Method throws an exception
+            if (layoutAnnotated)
+                GLib.log(LOG_DOMAIN, LogLevelFlags.LEVEL_CRITICAL,
+                        "Exception when calling %s.%s: %s\n",
+                        cls.getName(), layoutMethod.getName(), t.toString());
+            return null;
+        }
+
+        if (result != null)
+            layout = result;
+        return result;
+    }
+
+    /**
+     * Get the memory address constructor of the class.
+     *
+     * @return the memory address constructor, or null if not found
+     */
+    @SuppressWarnings("unchecked")
+    <T extends Proxy> Function<MemorySegment, T> addressConstructor() {
+        if (addressConstructor == null)
+            GLib.log(LOG_DOMAIN, LogLevelFlags.LEVEL_CRITICAL,
+                    "Cannot find memory-address constructor definition for class %s: %s\n",
+                    cls.getName(), addressConstructorError);
+        return (Function<MemorySegment, T>) addressConstructor;
+    }
+
+    /**
+     * Get the instance initializer, a method that is annotated with
+     * {@link InstanceInit}.
+     *
+     * @return the instance initializer, or null if not found
+     */
+    @SuppressWarnings("unchecked")
+    <T> Consumer<T> instanceInit() {
+        return (Consumer<T>) instanceInit;
+    }
+
+    /**
+     * Get the class initializer, a static method that is annotated with
+     * {@link ClassInit}.
+     *
+     * @return the class initializer, or null if not found
+     */
+    @SuppressWarnings("unchecked")
+    <TC> Consumer<TC> classInit() {
+        return (Consumer<TC>) classInit;
+    }
+
+    /**
+     * Get the inner TypeClass class, or the inner TypeClass class of the
+     * superclass.
+     *
+     * @return the TypeClass class, or null if not found
+     */
+    Class<?> typeClass() {
+        return typeClass;
+    }
+
+    /**
+     * Get the inner TypeInterface class.
+     *
+     * @return the TypeInterface class, or null if not found
+     */
+    Class<?> typeInterface() {
+        return typeInterface;
+    }
+
+    private static Class<?> findTypeClass(Class<?> cls) {
+        for (Class<?> gclass : cls.getDeclaredClasses())
+            if (TypeClass.class.isAssignableFrom(gclass))
+                return gclass;
+        return null;
+    }
+
+    private static boolean hasLayoutSignature(Method method) {
+        return method.getParameterCount() == 0
+                && method.getReturnType().equals(MemoryLayout.class);
+    }
+
+    /*
+     * Create a method handle for a static method. When the method is not
+     * accessible or has another type, the method handle will throw the
+     * exception.
+     */
+    private static MethodHandle unreflect(Method method, MethodType type) {
+        try {
+            return LOOKUP.unreflect(method).asType(type);
+        } catch (IllegalAccessException | WrongMethodTypeException e) {
+            return MethodHandles.insertArguments(
+                    MethodHandles.throwException(type.returnType(), e.getClass()),
+                    0, e);
+        }
+    }
+
+    /*
+     * Create a Function that runs the memory address constructor. The
+     * Function is generated with the LambdaMetafactory, so it calls the
+     * constructor directly and can be inlined by the JIT compiler. This needs
+     * a private lookup in the class, so it only works when the package of the
+     * class is open to org.gnome.gobject (always true on the classpath; in a
+     * modular application, the package must be opened explicitly). Otherwise
+     * (or when the class is abstract), the constructor is called through a
+     * method handle. In both cases, exceptions are logged.
+     */
+    @SuppressWarnings("unchecked")
+    private static Function<MemorySegment, ?> addressConstructor(Class<?> cls,
+                                                                 MethodHandle ctor) {
+        if (!Modifier.isAbstract(cls.getModifiers())) {
+            try {
+                var lookup = MethodHandles.privateLookupIn(cls, LOOKUP);
+                var site = LambdaMetafactory.metafactory(
+                        lookup,
+                        "apply",
+                        MethodType.methodType(Function.class),
+                        MethodType.methodType(Object.class, Object.class),
+                        lookup.findConstructor(cls,
+                                MethodType.methodType(void.class, MemorySegment.class)),
+                        MethodType.methodType(cls, MemorySegment.class));
+                var factory = (Function<MemorySegment, ?>) site.getTarget().invokeExact();
+                return addr -> {
+                    try {
+                        return factory.apply(addr);
+                    } catch (Throwable e) {
+                        GLib.log(LOG_DOMAIN, LogLevelFlags.LEVEL_CRITICAL,
+                                "Exception in constructor for class %s: %s\n",
+                                cls.getName(), e.toString());
+                        return null;
+                    }
+                };
+            } catch (Throwable _) {
+                // Fallback to the method handle
+            }
+        }
+
+        return addr -> {
+            try {
+                return (Object) ctor.invokeExact(addr);
+            } catch (Throwable e) {
+                GLib.log(LOG_DOMAIN, LogLevelFlags.LEVEL_CRITICAL,
+                        "Exception in constructor for class %s: %s\n",
+                        cls.getName(), e.toString());
+                return null;
+            }
+        };
+    }
+
+    /*
+     * Create a wrapper function that calls an initializer and logs
+     * exceptions. An instance initializer is an instance method without
+     * parameters; a class initializer is a static method with one parameter.
+     */
+    private static Consumer<Object> initializer(Class<?> cls,
+                                                Method method,
+                                                String description) {
+        MethodHandle handle;
+        try {
+            handle = LOOKUP.unreflect(method)
+                    .asType(MethodType.methodType(void.class, Object.class));
+        } catch (IllegalAccessException | WrongMethodTypeException e) {
+            return _ -> GLib.log(LOG_DOMAIN, LogLevelFlags.LEVEL_CRITICAL,
+                    "Exception in %s %s: %s\n",
+                    cls.getName(), description, e.toString());
+        }
+        return obj -> {
+            try {
+                handle.invokeExact(obj);
+            } catch (Throwable e) {
+                GLib.log(LOG_DOMAIN, LogLevelFlags.LEVEL_CRITICAL,
+                        "Exception in %s %s: %s\n",
+                        cls.getName(), description, e.toString());
+            }
+        };
+    }
+}
@@ -0,0 +1,152 @@
+/* Java-GI - Java language bindings for GObject-Introspection-based libraries
+ * Copyright (C) 2022-2024 Jan-Willem Harmannij
+ *
+ * SPDX-License-Identifier: LGPL-2.1-or-later
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.github.jwharm.javagi.gobject.types;
+
+import org.gnome.gobject.GObject;
+import org.gnome.gobject.TypeFlags;
+
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemorySegment;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Registration metadata of a Java class that is registered as a new GType.
+ * <p>
+ * An implementation of this interface is generated at compile time by the
+ * Java-GI annotation processor, for every class with a
+ * {@link io.github.jwharm.javagi.gobject.annotations.RegisteredType}
+ * annotation. The generated class is named after the registered class, with
+ * the suffix {@code Registration}, and is in the same package. For nested
+ * classes, the binary name is used with the {@code $} separators doubled,
+ * for example {@code Outer$$InnerRegistration}.
+ * <p>
+ * When a registration class is found, {@link Types#register(Class)} uses it
+ * instead of discovering the annotated members of the class with reflection.
+ * In a modular application, the package of the registered class must be
+ * exported to the {@code org.gnome.gobject} module (a qualified export is
+ * sufficient). Otherwise, the class is registered with reflection.
+ *
+ * @param <T> the registered class
+ */
+public interface TypeRegistration<T extends GObject> {
+
+    /**
+     * The name of the new GType.
+     *
+     * @return the GType name
+     */
+    String typeName();
+
+    /**
+     * The {@link TypeFlags#ABSTRACT} and {@link TypeFlags#FINAL} flags of the
+     * new GType.
+     *
+     * @return the type flags
+     */
+    Set<TypeFlags> typeFlags();
+
+    /**
+     * The memory address constructor of the registered class.
+     *
+     * @return the memory address constructor
+     */
+    Function<MemorySegment, T> constructor();
+
+    /**
+     * The memory layout of the instance struct that is declared in the
+     * registered class.
+     *
+     * @return the declared memory layout, or {@code null} to use a struct
+     *         with only the parent instance
+     */
+    default MemoryLayout instanceLayout() {
+        return null;
+    }
+
+    /**
+     * The TypeClass class of the registered class, or of its superclass.
+     *
+     * @return the TypeClass class, or {@code null} to find it at runtime
+     */
+    default Class<?> typeClass() {
+        return null;
+    }
+
+    /**
+     * The class initializer, that calls the
+     * {@link io.github.jwharm.javagi.gobject.annotations.ClassInit}-annotated
+     * method.
+     *
+     * @param  <TC> the class initializer expects a
+     *              {@link GObject.ObjectClass} parameter
+     * @return the class initializer, or {@code null} if there is none
+     */
+    default <TC extends GObject.ObjectClass> Consumer<TC> classInit() {
+        return null;
+    }
+
+    /**
+     * The instance initializer, that calls the
+     * {@link io.github.jwharm.javagi.gobject.annotations.InstanceInit}-annotated
+     * method.
+     *
+     * @return the instance initializer, or {@code null} if there is none
+     */
+    default Consumer<T> instanceInit() {
+        return null;
+    }
+
+    /**
+     * The properties that are declared with
+     * {@link io.github.jwharm.javagi.gobject.annotations.Property}-annotated
+     * methods.
+     *
+     * @return the property definitions
+     */
+    default List<Properties.PropertyDefinition> properties() {
+        return List.of();
+    }
+
+    /**
+     * The signals that are declared with
+     * {@link io.github.jwharm.javagi.gobject.annotations.Signal}-annotated
+     * interfaces.
+     *
+     * @return the signal definitions
+     */
+    default List<Signals.SignalDefinition> signals() {
+        return List.of();
+    }
+
+    /**
+     * Whether the registered class overrides methods of its superclass. Only
+     * in that case, the virtual method overrides are registered (with
+     * reflection).
+     *
+     * @return whether the class overrides virtual methods
+     */
+    default boolean overridesMethods() {
+        return true;
+    }
+}
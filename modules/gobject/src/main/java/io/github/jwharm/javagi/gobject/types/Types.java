@@ -31,8 +31,11 @@ import org.gnome.gobject.*;
 import java.lang.foreign.Arena;
 import java.lang.foreign.MemorySegment;
 import java.lang.foreign.MemoryLayout;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.*;
 import java.util.EnumSet;
+import java.util.Optional;
 import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -44,9 +47,22 @@ import static org.gnome.gobject.GObjects.typeTestFlags;
  * The Types class contains GType constants, a series of static methods to
  * check gtype characteristics, and static methods to register a Java class as
  * a new GObject-derived GType.
+ * <p>
+ * The GType constants of the GLib boxed types (such as {@link #DATE}) are
+ * resolved the first time one of them is used, not when the Types class is
+ * loaded.
  */
 @SuppressWarnings("unused")
-public class Types {
+public class Types implements BoxedTypes {
+
+    // Registration classes generated by the annotation processor
+    private static final ClassValue<Optional<TypeRegistration<?>>> REGISTRATIONS =
+            new ClassValue<>() {
+                @Override
+                protected Optional<TypeRegistration<?>> computeValue(Class<?> cls) {
+                    return Optional.ofNullable(loadRegistration(cls));
+                }
+            };
 
     // GLib fundamental types, adapted from <gobject/gtype.h>
 
@@ -187,247 +203,6 @@ public class Types {
      */
     public static final Type VARIANT = new Type(21L << FUNDAMENTAL_SHIFT);
 
-    // GLib boxed types, adapted from <gobject/glib-types.h>
-
-    /**
-     * The {@code GType} for {@code GDate}.
-     */
-    public static final Type DATE = Interop.getType("g_date_get_type");
-
-    /**
-     * The {@code GType} for a boxed type holding a {@code null}-terminated
-     * array of strings.
-     *
-     * @since 2.4
-     */
-    public static final Type STRV = Interop.getType("g_strv_get_type");
-
-    /**
-     * The {@code GType} for {@code GString}.
-     */
-    public static final Type GSTRING = Interop.getType("g_gstring_get_type");
-
-    /**
-     * The {@code GType} for a boxed type holding a {@code GHashTable}
-     * reference.
-     *
-     * @since 2.10
-     */
-    public static final Type HASH_TABLE =
-            Interop.getType("g_hash_table_get_type");
-
-    /**
-     * The {@code GType} for a boxed type holding a {@code GRegex} reference.
-     *
-     * @since 2.14
-     */
-    public static final Type REGEX = Interop.getType("g_regex_get_type");
-
-    /**
-     * The {@code GType} for a boxed type holding a {@code GMatchInfo}
-     * reference.
-     *
-     * @since 2.30
-     */
-    public static final Type MATCH_INFO =
-            Interop.getType("g_match_info_get_type");
-
-    /**
-     * The {@code GType} for a boxed type holding a {@code GArray} reference.
-     *
-     * @since 2.22
-     */
-    public static final Type ARRAY = Interop.getType("g_array_get_type");
-
-    /**
-     * The {@code GType} for a boxed type holding a {@code GByteArray}
-     * reference.
-     *
-     * @since 2.22
-     */
-    public static final Type BYTE_ARRAY =
-            Interop.getType("g_byte_array_get_type");
-
-    /**
-     * The {@code GType} for a boxed type holding a {@code GPtrArray}
-     * reference.
-     *
-     * @since 2.22
-     */
-    public static final Type PTR_ARRAY =
-            Interop.getType("g_ptr_array_get_type");
-
-    /**
-     * The {@code GType} for {@code GBytes}.
-     *
-     * @since 2.32
-     */
-    public static final Type BYTES = Interop.getType("g_bytes_get_type");
-
-    /**
-     * The {@code GType} for a boxed type holding a {@code GVariantType}.
-     *
-     * @since 2.24
-     */
-    public static final Type VARIANT_TYPE =
-            Interop.getType("g_variant_type_get_gtype");
-
-    /**
-     * The {@code GType} for a boxed type holding a {@code GError}.
-     *
-     * @since 2.26
-     */
-    public static final Type ERROR = Interop.getType("g_error_get_type");
-
-    /**
-     * The {@code GType} for a boxed type holding a {@code GDateTime}.
-     *
-     * @since 2.26
-     */
-    public static final Type DATE_TIME =
-            Interop.getType("g_date_time_get_type");
-
-    /**
-     * The {@code GType} for a boxed type holding a {@code GTimeZone}.
-     *
-     * @since 2.34
-     */
-    public static final Type TIME_ZONE =
-            Interop.getType("g_time_zone_get_type");
-
-    /**
-     * The {@code GType} for {@code GIOChannel}.
-     */
-    public static final Type IO_CHANNEL =
-            Interop.getType("g_io_channel_get_type");
-
-    /**
-     * The {@code GType} for {@code GIOCondition}.
-     */
-    public static final Type IO_CONDITION =
-            Interop.getType("g_io_condition_get_type");
-
-    /**
-     * The {@code GType} for a boxed type holding a {@code GVariantBuilder}.
-     *
-     * @since 2.30
-     */
-    public static final Type VARIANT_BUILDER =
-            Interop.getType("g_variant_builder_get_type");
-
-    /**
-     * The {@code GType} for a boxed type holding a {@code GVariantDict}.
-     *
-     * @since 2.40
-     */
-    public static final Type VARIANT_DICT =
-            Interop.getType("g_variant_dict_get_type");
-
-    /**
-     * The {@code GType} for a boxed type holding a {@code GMainLoop}.
-     *
-     * @since 2.30
-     */
-    public static final Type MAIN_LOOP =
-            Interop.getType("g_main_loop_get_type");
-
-    /**
-     * The {@code GType} for a boxed type holding a {@code GMainContext}.
-     *
-     * @since 2.30
-     */
-    public static final Type MAIN_CONTEXT =
-            Interop.getType("g_main_context_get_type");
-
-    /**
-     * The {@code GType} for a boxed type holding a {@code GSource}.
-     *
-     * @since 2.30
-     */
-    public static final Type SOURCE = Interop.getType("g_source_get_type");
-
-    /**
-     * The {@code GType} for a boxed type holding a {@code GPollFD}.
-     *
-     * @since 2.36
-     */
-    public static final Type POLLFD = Interop.getType("g_pollfd_get_type");
-
-    /**
-     * The {@code GType} for a boxed type holding a {@code GMarkupParseContext}.
-     *
-     * @since 2.36
-     */
-    public static final Type MARKUP_PARSE_CONTEXT =
-            Interop.getType("g_markup_parse_context_get_type");
-
-    /**
-     * The {@code GType} for a boxed type holding a {@code GKeyFile}.
-     *
-     * @since 2.32
-     */
-    public static final Type KEY_FILE = Interop.getType("g_key_file_get_type");
-
-    /**
-     * The {@code GType} for a boxed type holding a {@code GMappedFile}.
-     *
-     * @since 2.40
-     */
-    public static final Type MAPPED_FILE =
-            Interop.getType("g_mapped_file_get_type");
-
-    /**
-     * The {@code GType} for a boxed type holding a {@code GThread}.
-     *
-     * @since 2.36
-     */
-    public static final Type THREAD = Interop.getType("g_thread_get_type");
-
-    /**
-     * The {@code GType} for a boxed type holding a {@code GChecksum}.
-     *
-     * @since 2.36
-     */
-    public static final Type CHECKSUM = Interop.getType("g_checksum_get_type");
-
-    /**
-     * The {@code GType} for a boxed type holding a {@code GOptionGroup}.
-     *
-     * @since 2.44
-     */
-    public static final Type OPTION_GROUP =
-            Interop.getType("g_option_group_get_type");
-
-    /**
-     * The {@code GType} for a boxed type holding a {@code GUri}.
-     *
-     * @since 2.66
-     */
-    public static final Type URI = Interop.getType("g_uri_get_type");
-
-    /**
-     * The {@code GType} for {@code GTree}.
-     *
-     * @since 2.68
-     */
-    public static final Type TREE = Interop.getType("g_tree_get_type");
-
-    /**
-     * The {@code GType} for {@code GPatternSpec}.
-     *
-     * @since 2.70
-     */
-    public static final Type PATTERN_SPEC =
-            Interop.getType("g_pattern_spec_get_type");
-
-    /**
-     * The {@code GType} for a boxed type holding a {@code GBookmarkFile}.
-     *
-     * @since 2.76
-     */
-    public static final Type BOOKMARK_FILE =
-            Interop.getType("g_bookmark_file_get_type");
-
     /**
      * First fundamental type number to create a new fundamental type id with
      * G_TYPE_MAKE_FUNDAMENTAL() reserved for GLib.
@@ -669,8 +444,15 @@ public class Types {
             if (instanceLayout != null)
                 return instanceLayout;
 
-            // If no memory layout was defined, create a default memory layout
-            // that only has a pointer to the parent class' memory layout.
+            return getDefaultInstanceLayout(cls, typeName);
+    }
+
+    /*
+     * Create a default memory layout that only has a pointer to the parent
+     * class' memory layout.
+     */
+    private static MemoryLayout getDefaultInstanceLayout(Class<?> cls,
+                                                         String typeName) {
             MemoryLayout parentLayout = getLayout(cls.getSuperclass());
 
             if (parentLayout == null) {
@@ -698,20 +480,7 @@ public class Types {
     @SuppressWarnings("unchecked")
     public static <T extends TypeInstance, TC extends TypeClass>
     Class<TC> getTypeClass(Class<T> cls) {
-
-        // Get the type-struct. This is an inner class that extends ObjectClass.
-        for (Class<?> gclass : cls.getDeclaredClasses()) {
-            if (TypeClass.class.isAssignableFrom(gclass)) {
-                return (Class<TC>) gclass;
-            }
-        }
-        // If the type-struct is unavailable, get it from the parent class.
-        for (Class<?> gclass : cls.getSuperclass().getDeclaredClasses()) {
-            if (TypeClass.class.isAssignableFrom(gclass)) {
-                return (Class<TC>) gclass;
-            }
-        }
-        return null;
+        return (Class<TC>) TypeMetadata.of(cls).typeClass();
     }
 
     /**
@@ -723,13 +492,7 @@ public class Types {
      */
     @SuppressWarnings("unchecked")
     public static <TI extends TypeInterface> Class<TI> getTypeInterface(Class<?> iface) {
-        // Get the type-struct. This is an inner class that extends TypeInterface.
-        for (Class<?> giface : iface.getClasses()) {
-            if (TypeInterface.class.isAssignableFrom(giface)) {
-                return (Class<TI>) giface;
-            }
-        }
-        return null;
+        return (Class<TI>) TypeMetadata.of(iface).typeInterface();
     }
 
     /**
@@ -744,7 +507,12 @@ public class Types {
     public static <T extends GObject> MemoryLayout getClassLayout(Class<T> cls, String typeName) {
         // Get the type-struct. This is an inner class that extends GObject.ObjectClass.
         // If the type-struct is unavailable, get it from the parent class.
-        Class<?> typeClass = getTypeClass(cls);
+        return getClassLayout(cls, getTypeClass(cls), typeName);
+    }
+
+    private static MemoryLayout getClassLayout(Class<?> cls,
+                                               Class<?> typeClass,
+                                               String typeName) {
         if (typeClass == null) {
             GLib.log(LOG_DOMAIN, LogLevelFlags.LEVEL_CRITICAL,
                     "Cannot find TypeClass for class %s\n", cls.getName());
@@ -775,47 +543,7 @@ public class Types {
      * @return the declared GType
      */
     public static Type getGType(Class<?> cls) {
-        Method gtypeMethod = getGTypeMethod(cls);
-
-        if (gtypeMethod == null) {
-            // No gtype method found
-            GLib.log(LOG_DOMAIN, LogLevelFlags.LEVEL_CRITICAL,
-                    "Cannot find static method that returns org.gnome.glib.Type in class %s\n",
-                    cls.getName());
-            return null;
-        }
-
-        try {
-            return (Type) gtypeMethod.invoke(null);
-        } catch (IllegalAccessException | InvocationTargetException e) {
-            // Method is not public, or throws an exception
-            GLib.log(LOG_DOMAIN, LogLevelFlags.LEVEL_CRITICAL,
-                    "Exception while trying to read %s.%s\n",
-                    cls.getName(), gtypeMethod.getName());
-            return null;
-        }
-    }
-
-    // Find a static method that returns the GType of this class
-    private static Method getGTypeMethod(Class<?> cls) {
-        Method gtypeMethod = null;
-
-        // Find a static method that is annotated with @GType and read its value
-        for (Method method : cls.getDeclaredMethods()) {
-            if (Modifier.isStatic(method.getModifiers())
-                    && method.isAnnotationPresent(GType.class)) {
-                gtypeMethod = method;
-            }
-        }
-
-        // Find a static method with return type org.gnome.glib.Type.class
-        for (Method method : cls.getDeclaredMethods()) {
-            if (Modifier.isStatic(method.getModifiers())
-                    && method.getReturnType().equals(Type.class)) {
-                gtypeMethod = method;
-            }
-        }
-        return gtypeMethod;
+        return TypeMetadata.of(cls).gtype();
     }
 
     /**
@@ -828,48 +556,7 @@ public class Types {
      * @return the declared MemoryLayout
      */
     public static MemoryLayout getLayout(Class<?> cls) {
-        // Find a method that is annotated with @MemoryLayout and execute it
-        for (Method m : cls.getDeclaredMethods()) {
-            if (m.isAnnotationPresent(Layout.class)) {
-                // Check method signature
-                if ((m.getParameterTypes().length != 0)
-                        || (! m.getReturnType().equals(MemoryLayout.class))) {
-                    GLib.log(LOG_DOMAIN, LogLevelFlags.LEVEL_CRITICAL,
-                            "Method %s.%s does not have expected signature () -> MemoryLayout\n",
-                            cls.getName(), m.getName());
-                    return null;
-                }
-                // Invoke the @MemoryLayout-annotated method and return the
-                // result
-                try {
-                    return (MemoryLayout) m.invoke(null);
-                } catch (IllegalAccessException e) {
-                    // Method is not public
-                    GLib.log(LOG_DOMAIN, LogLevelFlags.LEVEL_CRITICAL,
-                            "IllegalAccessException when calling %s.%s\n",
-                            cls.getName(), m.getName());
-                    return null;
-                } catch (InvocationTargetException e) {
-                    // Method throws an exception
-                    Throwable t = e.getTargetException();
-                    GLib.log(LOG_DOMAIN, LogLevelFlags.LEVEL_CRITICAL,
-                            "Exception when calling %s.%s: %s\n",
-                            cls.getName(), m.getName(), t.toString());
-                    return null;
-                }
-            }
-        }
-
-        // Find a method {@code public static MemoryLayout getMemoryLayout()}
-        // and execute it
-        try {
-            // invoke getMemoryLayout() on the class
-            Method method = cls.getDeclaredMethod("getMemoryLayout");
-            return (MemoryLayout) method.invoke(null);
-
-        } catch (Exception notfound) {
-            return null;
-        }
+        return TypeMetadata.of(cls).layout();
     }
 
     /**
@@ -884,35 +571,7 @@ public class Types {
      */
     public static <T extends Proxy>
     Function<MemorySegment, T> getAddressConstructor(Class<T> cls) {
-
-        Constructor<T> ctor;
-        try {
-            // Get memory address constructor
-            ctor = cls.getConstructor(MemorySegment.class);
-        } catch (NoSuchMethodException e) {
-            GLib.log(LOG_DOMAIN, LogLevelFlags.LEVEL_CRITICAL,
-                    "Cannot find memory-address constructor definition for class %s: %s\n",
-                    cls.getName(), e.toString());
-            return null;
-        }
-
-        // Create a wrapper function that will run the constructor and catch
-        // exceptions
-        return (addr) -> {
-            try {
-                return ctor.newInstance(addr);
-            } catch (InvocationTargetException ite) {
-                GLib.log(LOG_DOMAIN, LogLevelFlags.LEVEL_CRITICAL,
-                        "Exception in constructor for class %s: %s\n",
-                        cls.getName(), ite.getCause().toString());
-                return null;
-            } catch (Exception e) {
-                GLib.log(LOG_DOMAIN, LogLevelFlags.LEVEL_CRITICAL,
-                        "Exception in constructor for class %s: %s\n",
-                        cls.getName(), e.toString());
-                return null;
-            }
-        };
+        return TypeMetadata.of(cls).addressConstructor();
     }
 
     /**
@@ -926,24 +585,7 @@ public class Types {
      */
     public static <T extends GObject>
     Consumer<T> getInstanceInit(Class<T> cls) {
-
-        // Find instance initializer function
-        for (Method method : cls.getDeclaredMethods()) {
-            if (method.isAnnotationPresent(InstanceInit.class)) {
-                // Create a wrapper function that calls the instance
-                // initializer and logs exceptions
-                return (inst) -> {
-                    try {
-                        method.invoke(inst);
-                    } catch (Exception e) {
-                        GLib.log(LOG_DOMAIN, LogLevelFlags.LEVEL_CRITICAL,
-                                "Exception in %s instance init: %s\n",
-                                cls.getName(), e.toString());
-                    }
-                };
-            }
-        }
-        return null;
+        return TypeMetadata.of(cls).instanceInit();
     }
 
     /**
@@ -959,23 +601,7 @@ public class Types {
      */
     public static <T extends GObject, TC extends GObject.ObjectClass>
     Consumer<TC> getClassInit(Class<T> cls) {
-        // Find class initializer function
-        for (Method method : cls.getDeclaredMethods()) {
-            if (method.isAnnotationPresent(ClassInit.class)) {
-                // Create a wrapper function that calls the class initializer
-                // and logs exceptions
-                return (gclass) -> {
-                    try {
-                        method.invoke(null, gclass);
-                    } catch (Exception e) {
-                        GLib.log(LOG_DOMAIN, LogLevelFlags.LEVEL_CRITICAL,
-                                "Exception in %s class init: %s\n",
-                                cls.getName(), e.toString());
-                    }
-                };
-            }
-        }
-        return null;
+        return TypeMetadata.of(cls).classInit();
     }
 
     /**
@@ -1082,16 +708,51 @@ public class Types {
         try {
             Class<?> parentClass = cls.getSuperclass();
             Type parentType = getGType(parentClass);
-            String typeName = getName(cls);
-            MemoryLayout classLayout = getClassLayout(cls, typeName);
-            Consumer<TC> overridesInit = Overrides.overrideClassMethods(cls);
-            Consumer<TC> propertiesInit = Properties.installProperties(cls);
-            Consumer<TC> signalsInit = Signals.installSignals(cls);
-            Consumer<TC> classInit = getClassInit(cls);
-            MemoryLayout instanceLayout = getInstanceLayout(cls, typeName);
-            Consumer<T> instanceInit = getInstanceInit(cls);
-            Function<MemorySegment, T> constructor = getAddressConstructor(cls);
-            Set<TypeFlags> flags = getTypeFlags(cls);
+            String typeName;
+            MemoryLayout classLayout;
+            Consumer<TC> overridesInit;
+            Consumer<TC> propertiesInit;
+            Consumer<TC> signalsInit;
+            Consumer<TC> classInit;
+            MemoryLayout instanceLayout;
+            Consumer<T> instanceInit;
+            Function<MemorySegment, T> constructor;
+            Set<TypeFlags> flags;
+
+            TypeRegistration<T> registration = getRegistration(cls);
+            if (registration != null) {
+                // Use the registration class that was generated by the
+                // annotation processor
+                typeName = registration.typeName();
+                Class<?> typeClass = registration.typeClass();
+                classLayout = getClassLayout(cls,
+                        typeClass != null ? typeClass : getTypeClass(cls),
+                        typeName);
+                overridesInit = registration.overridesMethods()
+                        ? Overrides.overrideClassMethods(cls)
+                        : null;
+                propertiesInit = Properties.installProperties(cls, registration.properties());
+                signalsInit = Signals.installSignals(registration.signals());
+                classInit = logExceptions(cls, registration.classInit(), "class init");
+                instanceLayout = registration.instanceLayout() != null
+                        ? registration.instanceLayout()
+                        : getDefaultInstanceLayout(cls, typeName);
+                instanceInit = logExceptions(cls, registration.instanceInit(), "instance init");
+                constructor = registration.constructor();
+                flags = registration.typeFlags();
+            } else {
+                // Find the annotated members of the class with reflection
+                typeName = getName(cls);
+                classLayout = getClassLayout(cls, typeName);
+                overridesInit = Overrides.overrideClassMethods(cls);
+                propertiesInit = Properties.installProperties(cls);
+                signalsInit = Signals.installSignals(cls);
+                classInit = getClassInit(cls);
+                instanceLayout = getInstanceLayout(cls, typeName);
+                instanceInit = getInstanceInit(cls);
+                constructor = getAddressConstructor(cls);
+                flags = getTypeFlags(cls);
+            }
 
             if (parentType == null
                     || classLayout == null
@@ -1128,39 +789,7 @@ public class Types {
                     flags
             );
 
-            // Add interfaces
-            try (var arena = Arena.ofConfined()) {
-                for (Class<?> iface : cls.getInterfaces()) {
-                    if (Proxy.class.isAssignableFrom(iface)) {
-                        Type ifaceType = getGType(iface);
-                        if (ifaceType == null) {
-                            GLib.log(LOG_DOMAIN, LogLevelFlags.LEVEL_CRITICAL,
-                                    "Cannot implement interface %s on class %s: No GType\n",
-                                    iface.getName(), cls.getName());
-                            continue;
-                        }
-
-                        InterfaceInfo interfaceInfo = new InterfaceInfo(arena);
-                        Consumer<TypeInterface> ifaceOverridesInit =
-                                Overrides.overrideInterfaceMethods(cls, iface);
-                        Consumer<TypeInterface> ifaceInit =
-                                getInterfaceInit(cls, iface);
-
-                        // Override virtual methods before running a user-defined
-                        // interface init
-                        ifaceInit = chain(ifaceOverridesInit, ifaceInit);
-                        if (ifaceInit == null) {
-                            ifaceInit = $ -> {};
-                        }
-
-                        Consumer<TypeInterface> finalIfaceInit = ifaceInit;
-                        interfaceInfo.writeInterfaceInit((ti, data) ->
-                                finalIfaceInit.accept(ti), Arena.global());
-                        GObjects.typeAddInterfaceStatic(
-                                type, ifaceType, interfaceInfo);
-                    }
-                }
-            }
+            addInterfaces(cls, type);
             return type;
 
         } catch (Exception e) {
@@ -1171,6 +800,149 @@ public class Types {
         }
     }
 
+    /**
+     * Add the GObject interfaces that are implemented by the Java class to
+     * the GType.
+     *
+     * @param cls  the class that implements the interfaces
+     * @param type the GType of the class
+     * @param <T>  the class must extend {@link GObject}
+     */
+    public static <T extends GObject> void addInterfaces(Class<T> cls, Type type) {
+        try (var arena = Arena.ofConfined()) {
+            for (Class<?> iface : cls.getInterfaces()) {
+                if (Proxy.class.isAssignableFrom(iface)) {
+                    Type ifaceType = getGType(iface);
+                    if (ifaceType == null) {
+                        GLib.log(LOG_DOMAIN, LogLevelFlags.LEVEL_CRITICAL,
+                                "Cannot implement interface %s on class %s: No GType\n",
+                                iface.getName(), cls.getName());
+                        continue;
+                    }
+
+                    InterfaceInfo interfaceInfo = new InterfaceInfo(arena);
+                    Consumer<TypeInterface> ifaceOverridesInit =
+                            Overrides.overrideInterfaceMethods(cls, iface);
+                    Consumer<TypeInterface> ifaceInit =
+                            getInterfaceInit(cls, iface);
+
+                    // Override virtual methods before running a user-defined
+                    // interface init
+                    ifaceInit = chain(ifaceOverridesInit, ifaceInit);
+                    if (ifaceInit == null) {
+                        ifaceInit = $ -> {};
+                    }
+
+                    Consumer<TypeInterface> finalIfaceInit = ifaceInit;
+                    interfaceInfo.writeInterfaceInit((ti, data) ->
+                            finalIfaceInit.accept(ti), Arena.global());
+                    GObjects.typeAddInterfaceStatic(
+                            type, ifaceType, interfaceInfo);
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the registration class that was generated by the Java-GI
+     * annotation processor for the provided class, or {@code null} if the
+     * class has no generated registration class. See
+     * {@link TypeRegistration}.
+     *
+     * @param  cls the registered class
+     * @param  <T> the class must extend {@link GObject}
+     * @return the (cached) registration, or {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends GObject> TypeRegistration<T> getRegistration(Class<T> cls) {
+        return (TypeRegistration<T>) REGISTRATIONS.get(cls).orElse(null);
+    }
+
+    /*
+     * Load and instantiate the generated registration class. The name of the
+     * generated class is the binary name of the registered class (with '$'
+     * replaced by '$$') and the suffix "Registration".
+     */
+    private static TypeRegistration<?> loadRegistration(Class<?> cls) {
+        String packageName = cls.getPackageName();
+        String simpleName = packageName.isEmpty()
+                ? cls.getName()
+                : cls.getName().substring(packageName.length() + 1);
+        String name = (packageName.isEmpty() ? "" : packageName + ".")
+                + simpleName.replace("$", "$$") + "Registration";
+
+        Class<?> registrationClass;
+        try {
+            registrationClass = Class.forName(name, true, cls.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+
+        if (! TypeRegistration.class.isAssignableFrom(registrationClass))
+            return null;
+
+        /*
+         * Unlike the public lookup, a lookup in this module can access a
+         * package that is only exported to org.gnome.gobject (a qualified
+         * export). It does need to read the module of the class.
+         */
+        addReads(registrationClass);
+        try {
+            return (TypeRegistration<?>) MethodHandles.lookup()
+                    .findConstructor(registrationClass, MethodType.methodType(void.class))
+                    .invoke();
+        } catch (Throwable e) {
+            GLib.log(LOG_DOMAIN, LogLevelFlags.LEVEL_CRITICAL,
+                    "Cannot instantiate %s: %s\n", name, e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Method handles check that the module of the caller (org.gnome.gobject)
+     * can read the module of the target class, while core reflection does
+     * not. Add a read edge to the module of the class, so method handles
+     * can be created for classes in other modules (for example, the
+     * application module, or other Java-GI modules). This is called by
+     * Java-GI before it creates method handles for the methods of a class;
+     * it is not necessary to call it from application code.
+     *
+     * @param cls the class that will be accessed with method handles
+     */
+    public static void addReads(Class<?> cls) {
+        Module module = Types.class.getModule();
+        if (! module.canRead(cls.getModule()))
+            module.addReads(cls.getModule());
+    }
+
+    /**
+     * Create a wrapper function that calls an initializer and logs
+     * exceptions. Initializers run in an upcall from native code, where an
+     * exception would terminate the JVM.
+     *
+     * @param  cls         the registered class
+     * @param  init        the initializer (can be {@code null})
+     * @param  description the kind of initializer, used in the log message
+     * @param  <Z>         the parameter type of the initializer
+     * @return the wrapped initializer, or {@code null} if {@code init} is
+     *         {@code null}
+     */
+    public static <Z> Consumer<Z> logExceptions(Class<?> cls,
+                                                 Consumer<Z> init,
+                                                 String description) {
+        if (init == null)
+            return null;
+        return obj -> {
+            try {
+                init.accept(obj);
+            } catch (Exception e) {
+                GLib.log(LOG_DOMAIN, LogLevelFlags.LEVEL_CRITICAL,
+                        "Exception in %s %s: %s\n",
+                        cls.getName(), description, e.toString());
+            }
+        };
+    }
+
     /**
      * Register a new GType.
      *
@@ -0,0 +1,139 @@
+/* Java-GI - Java language bindings for GObject-Introspection-based libraries
+ * Copyright (C) 2022-2024 Jan-Willem Harmannij
+ *
+ * SPDX-License-Identifier: LGPL-2.1-or-later
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.github.jwharm.javagi.gobject.types;
+
+import io.github.jwharm.javagi.interop.AddressMap;
+
+import java.lang.foreign.AddressLayout;
+import java.lang.foreign.GroupLayout;
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.StructLayout;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The resolved virtual method slots of a TypeClass or TypeInterface struct.
+ * <p>
+ * The byte offsets of the function pointers in the struct are computed once,
+ * when the table is created. The table also caches the TypeInterface structs
+ * that were peeked from a TypeClass, so chaining up to an interface method
+ * does not need a downcall after the first time.
+ * <p>
+ * The tables are cached per name of the memory layout.
+ */
+final class VirtualMethodTable {
+
+    private static final Map<String, VirtualMethodTable> NAMED_TABLES =
+            new ConcurrentHashMap<>();
+
+    private final MemoryLayout layout;
+    private final Map<String, Long> offsets;
+
+    // TypeInterface structs, by the address of the TypeClass that implements
+    // the interface
+    private final AddressMap<MemorySegment> interfaces = new AddressMap<>();
+
+    private VirtualMethodTable(MemoryLayout layout) {
+        this.layout = layout;
+        Map<String, Long> offsets = new HashMap<>();
+        if (layout instanceof GroupLayout group) {
+            long offset = 0;
+            for (MemoryLayout member : group.memberLayouts()) {
+                if (member instanceof AddressLayout && member.name().isPresent())
+                    offsets.put(member.name().get(), offset);
+                if (group instanceof StructLayout)
+                    offset += member.byteSize();
+            }
+        }
+        this.offsets = Map.copyOf(offsets);
+    }
+
+    /**
+     * Get the virtual method table for the provided memory layout. Named
+     * layouts are cached by name. Generated code passes the memory layout of
+     * the type struct, which is a constant, so the table does not depend on
+     * reflective access to the type struct class.
+     *
+     * @param  layout the memory layout of the type struct
+     * @return the (cached) virtual method table
+     */
+    static VirtualMethodTable of(MemoryLayout layout) {
+        String name = layout.name().orElse(null);
+        if (name == null)
+            return new VirtualMethodTable(layout);
+
+        VirtualMethodTable table = NAMED_TABLES.get(name);
+        if (table != null)
+            return table;
+        return NAMED_TABLES.computeIfAbsent(name,
+                _ -> new VirtualMethodTable(layout));
+    }
+
+    /**
+     * Get the size of the type struct.
+     *
+     * @return the size of the type struct in bytes
+     */
+    long byteSize() {
+        return layout.byteSize();
+    }
+
+    /**
+     * Get the byte offset of the function pointer of a virtual method.
+     *
+     * @param  name the name of the virtual method
+     * @return the byte offset of the function pointer in the type struct
+     * @throws IllegalArgumentException if the struct does not contain a field
+     *                                  with this name
+     */
+    long offset(String name) {
+        Long offset = offsets.get(name);
+        if (offset != null)
+            return offset;
+        return layout.byteOffset(MemoryLayout.PathElement.groupElement(name));
+    }
+
+    /**
+     * Get the cached TypeInterface struct that is implemented by the provided
+     * TypeClass.
+     *
+     * @param  typeClass the address of the TypeClass
+     * @return the address of the TypeInterface, or null if not cached
+     */
+    MemorySegment getInterface(MemorySegment typeClass) {
+        return interfaces.get(typeClass.address());
+    }
+
+    /**
+     * Cache the TypeInterface struct that is implemented by the provided
+     * TypeClass.
+     *
+     * @param typeClass the address of the TypeClass
+     * @param iface     the address of the TypeInterface
+     */
+    void putInterface(MemorySegment typeClass, MemorySegment iface) {
+        if (! MemorySegment.NULL.equals(typeClass)
+                && ! MemorySegment.NULL.equals(iface))
+            interfaces.putIfAbsent(typeClass.address(), iface);
+    }
+}
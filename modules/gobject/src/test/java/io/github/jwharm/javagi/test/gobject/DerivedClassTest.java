@@ -112,6 +112,20 @@ public class DerivedClassTest {
         assertEquals(input2, object.getProperty("bool-property"));
     }
 
+    /**
+     * Write primitive values to GObject properties and read them back
+     */
+    @Test
+    public void writeAndReadPrimitiveProperties() {
+        TestObject object = GObject.newInstance(TestObject.gtype);
+        object.setProperty("int-property", -42);
+        object.setProperty("long-property", 1234567L);
+        object.setProperty("double-property", 2.5d);
+        assertEquals(-42, object.getProperty("int-property"));
+        assertEquals(1234567L, object.getProperty("long-property"));
+        assertEquals(2.5d, object.getProperty("double-property"));
+    }
+
     /**
      * Simple GObject-derived class used in the above tests
      */
@@ -155,5 +169,41 @@ public class DerivedClassTest {
         public void setBoolProperty(boolean boolProperty) {
             this.boolProperty = boolProperty;
         }
+
+        private int intProperty = 0;
+
+        @Property
+        public int getIntProperty() {
+            return intProperty;
+        }
+
+        @Property
+        public void setIntProperty(int intProperty) {
+            this.intProperty = intProperty;
+        }
+
+        private long longProperty = 0;
+
+        @Property
+        public long getLongProperty() {
+            return longProperty;
+        }
+
+        @Property
+        public void setLongProperty(long longProperty) {
+            this.longProperty = longProperty;
+        }
+
+        private double doubleProperty = 0;
+
+        @Property
+        public double getDoubleProperty() {
+            return doubleProperty;
+        }
+
+        @Property
+        public void setDoubleProperty(double doubleProperty) {
+            this.doubleProperty = doubleProperty;
+        }
     }
 }
@@ -0,0 +1,107 @@
+/* Java-GI - Java language bindings for GObject-Introspection-based libraries
+ * Copyright (C) 2022-2024 Jan-Willem Harmannij
+ *
+ * SPDX-License-Identifier: LGPL-2.1-or-later
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.jwharm.javagi.test.gobject;
+
+import io.github.jwharm.javagi.gobject.InstanceCache;
+import org.gnome.glib.MainContext;
+import org.gnome.gobject.GObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test that the InstanceCache returns the same Proxy object for the same
+ * native object, while the toggle reference switches between strong and weak.
+ */
+public class InstanceCacheTest {
+
+    @Test
+    public void sameInstance() {
+        GObject object = GObject.newInstance(GObject.getType());
+        assertTrue(InstanceCache.size() > 0);
+        assertSame(object, InstanceCache.get(object.handle(), GObject::new, true));
+
+        // Toggle to a strong reference and back to a weak reference
+        object.ref();
+        assertSame(object, InstanceCache.get(object.handle(), GObject::new, true));
+        object.unref();
+        assertSame(object, InstanceCache.get(object.handle(), GObject::new, true));
+    }
+
+    /**
+     * With batched release enabled, the toggle references of
+     * garbage-collected objects are removed by the idle source on the default
+     * main context, or by flushReleases(). None of them are lost.
+     */
+    @Test
+    public void batchedRelease() throws InterruptedException {
+        InstanceCache.setBatchedRelease(true);
+        try {
+            // The toggle references are enqueued when the objects are
+            // garbage-collected
+            createGarbage();
+            assertTrue(waitFor(() -> InstanceCache.getPendingReleaseCount() > 0));
+
+            // The idle source removes them when the main context runs
+            MainContext context = MainContext.default_();
+            assertTrue(waitFor(() -> {
+                context.iteration(false);
+                return InstanceCache.getPendingReleaseCount() == 0;
+            }));
+
+            // flushReleases() removes them immediately
+            createGarbage();
+            assertTrue(waitFor(() -> InstanceCache.getPendingReleaseCount() > 0));
+            InstanceCache.flushReleases();
+        } finally {
+            // Disabling batched release flushes the remaining toggle
+            // references
+            InstanceCache.setBatchedRelease(false);
+        }
+
+        // A cleaner that read the batched release flag just before it was
+        // disabled can still enqueue an address after the flush. Nothing
+        // is enqueued after that, so the queue becomes empty.
+        assertTrue(waitFor(() -> {
+            InstanceCache.flushReleases();
+            return InstanceCache.getPendingReleaseCount() == 0;
+        }));
+    }
+
+    // Create GObjects that are immediately unreachable
+    private static void createGarbage() {
+        for (int i = 0; i < 1000; i++)
+            GObject.newInstance(GObject.getType());
+    }
+
+    // Run the garbage collector until the condition is true (or timeout)
+    private static boolean waitFor(BooleanSupplier condition)
+            throws InterruptedException {
+        for (int i = 0; i < 1000; i++) {
+            if (condition.getAsBoolean())
+                return true;
+            System.gc();
+            Thread.sleep(10);
+        }
+        return false;
+    }
+}
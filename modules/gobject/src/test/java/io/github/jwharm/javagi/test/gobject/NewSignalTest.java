@@ -24,16 +24,19 @@ import io.github.jwharm.javagi.gobject.annotations.Property;
 import io.github.jwharm.javagi.gobject.annotations.RegisteredType;
 import io.github.jwharm.javagi.gobject.annotations.Signal;
 import io.github.jwharm.javagi.gobject.types.Types;
+import io.github.jwharm.javagi.interop.ScratchArena;
 import org.gnome.glib.Type;
 import org.gnome.gobject.GObject;
+import org.gnome.gobject.Value;
 import org.junit.jupiter.api.Test;
 
+import java.lang.foreign.MemoryLayout;
 import java.lang.foreign.MemorySegment;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.IntConsumer;
 
-import static org.junit.jupiter.api.Assertions.assertFalse;
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * Test user-defined signals:
@@ -64,6 +67,43 @@ public class NewSignalTest {
         assertTrue(success.get());
     }
 
+    @Test
+    void emitRepeatedly() {
+        Counter counter = GObject.newInstance(Counter.getType(), "limit", 10);
+        AtomicInteger sum = new AtomicInteger(0);
+        counter.connect("limit-reached", (Counter.LimitReached) sum::addAndGet);
+
+        // The emission plan is cached after the first emission
+        for (int i = 1; i <= 100; i++)
+            counter.emit("limit-reached", i);
+        assertEquals(5050, sum.get());
+
+        // Unknown signals are rejected
+        assertThrows(IllegalArgumentException.class,
+                () -> counter.emit("no-such-signal"));
+    }
+
+    @Test
+    void emitInNestedScratchScope() {
+        Counter counter = GObject.newInstance(Counter.getType(), "limit", 10);
+        AtomicInteger sum = new AtomicInteger(0);
+        counter.connect("limit-reached", (Counter.LimitReached) sum::addAndGet);
+
+        // Emit after an odd-sized allocation in the scratch arena, so the
+        // GValues are not allocated at the start of the buffer
+        try (var arena = ScratchArena.open()) {
+            MemorySegment odd = arena.allocate(3);
+            counter.emit("limit-reached", 42);
+            assertEquals(42, sum.get());
+
+            // The next GValue allocation is aligned
+            MemoryLayout layout = Value.getMemoryLayout();
+            MemorySegment value = arena.allocate(layout, 2);
+            assertEquals(0, value.address() % layout.byteAlignment());
+            assertTrue(value.address() >= odd.address() + odd.byteSize());
+        }
+    }
+
     /**
      * Simple GObject-derived class that can count up to a predefined maximum number.
      * When the maximum number is reached, the "limit-reached" signal is emitted.
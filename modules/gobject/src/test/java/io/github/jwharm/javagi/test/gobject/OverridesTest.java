@@ -0,0 +1,54 @@
+package io.github.jwharm.javagi.test.gobject;
+
+import io.github.jwharm.javagi.gobject.types.Overrides;
+import org.gnome.gobject.GObject;
+import org.junit.jupiter.api.Test;
+
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test looking up virtual method function pointers with the cached slot
+ * offsets
+ */
+public class OverridesTest {
+
+    @Test
+    void lookupVirtualMethod() {
+        GObject object = GObject.newInstance(GObject.getType());
+        MemorySegment handle = object.handle();
+        MemoryLayout layout = GObject.ObjectClass.getMemoryLayout();
+
+        // The memory layout is created once
+        assertSame(layout, GObject.ObjectClass.getMemoryLayout());
+
+        // The cached slot offset points to the same function pointer as the
+        // memory layout path
+        MemorySegment func = Overrides.lookupVirtualMethod(
+                handle, layout, "dispose");
+        assertNotEquals(MemorySegment.NULL, func);
+        MemorySegment typeClass = handle.get(ValueLayout.ADDRESS, 0)
+                .reinterpret(layout.byteSize());
+        assertEquals(func, typeClass.get(ValueLayout.ADDRESS,
+                layout.byteOffset(MemoryLayout.PathElement.groupElement("dispose"))));
+
+        // Repeated lookups return the same function pointer
+        assertEquals(func, Overrides.lookupVirtualMethod(
+                handle, layout, "dispose"));
+
+        // Other virtual methods are in other slots
+        assertNotEquals(func, Overrides.lookupVirtualMethod(
+                handle, layout, "finalize"));
+    }
+
+    @Test
+    void unknownVirtualMethod() {
+        GObject object = GObject.newInstance(GObject.getType());
+        assertThrows(IllegalArgumentException.class, () ->
+                Overrides.lookupVirtualMethod(object.handle(),
+                        GObject.ObjectClass.getMemoryLayout(), "no_such_method"));
+    }
+}
@@ -0,0 +1,108 @@
+package io.github.jwharm.javagi.test.gobject;
+
+import io.github.jwharm.javagi.gobject.annotations.Property;
+import io.github.jwharm.javagi.gobject.annotations.RegisteredType;
+import io.github.jwharm.javagi.gobject.types.TypeRegistration;
+import io.github.jwharm.javagi.gobject.types.Types;
+import org.gnome.glib.Type;
+import org.gnome.gobject.GObject;
+import org.junit.jupiter.api.Test;
+
+import java.lang.foreign.MemorySegment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test registering a GType with a registration class that was generated by
+ * the annotation processor, and with reflection when there is no generated
+ * registration class
+ */
+public class RegistrationTest {
+
+    /**
+     * A registration class is generated for classes with a
+     * {@code @RegisteredType} annotation
+     */
+    @Test
+    public void generatedRegistration() {
+        TypeRegistration<DerivedClassTest.TestObject> registration =
+                Types.getRegistration(DerivedClassTest.TestObject.class);
+        assertNotNull(registration);
+        assertEquals("JavaGiTestObject", registration.typeName());
+        assertFalse(registration.overridesMethods());
+
+        // The properties are installed from the generated definitions
+        DerivedClassTest.TestObject object =
+                GObject.newInstance(DerivedClassTest.TestObject.gtype);
+        object.setProperty("int-property", 7);
+        assertEquals(7, object.getProperty("int-property"));
+    }
+
+    /**
+     * The generated registration supports static {@code @Property} methods
+     */
+    @Test
+    public void generatedStaticProperty() {
+        assertNotNull(Types.getRegistration(StaticPropertyObject.class));
+
+        StaticPropertyObject object = GObject.newInstance(StaticPropertyObject.gtype);
+        assertEquals(42, object.getProperty("answer"));
+    }
+
+    /**
+     * Classes without a generated registration class are registered with
+     * reflection. Static {@code @Property} methods ignore the instance.
+     */
+    @Test
+    public void reflectiveRegistration() {
+        assertNull(Types.getRegistration(PlainObject.class));
+
+        PlainObject object = GObject.newInstance(PlainObject.gtype);
+        object.setProperty("name", "abc");
+        assertEquals("abc", object.getProperty("name"));
+        assertEquals("1.0", object.getProperty("version"));
+    }
+
+    /**
+     * GObject-derived class without {@code @RegisteredType} annotation
+     */
+    public static class PlainObject extends GObject {
+        public static Type gtype = Types.register(PlainObject.class);
+        public PlainObject(MemorySegment address) {
+            super(address);
+        }
+
+        private String name;
+
+        @Property
+        public String getName() {
+            return name;
+        }
+
+        @Property
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        @Property(writable=false)
+        public static String getVersion() {
+            return "1.0";
+        }
+    }
+
+    /**
+     * GObject-derived class with a static {@code @Property} method
+     */
+    @RegisteredType(name="JavaGiStaticPropertyObject")
+    public static class StaticPropertyObject extends GObject {
+        public static Type gtype = Types.register(StaticPropertyObject.class);
+        public StaticPropertyObject(MemorySegment address) {
+            super(address);
+        }
+
+        @Property(writable=false)
+        public static int getAnswer() {
+            return 42;
+        }
+    }
+}
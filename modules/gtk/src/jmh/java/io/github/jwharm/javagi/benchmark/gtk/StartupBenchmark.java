@@ -0,0 +1,37 @@
+package io.github.jwharm.javagi.benchmark.gtk;
+
+import org.gnome.gio.ApplicationFlags;
+import org.gnome.gtk.Application;
+import org.gnome.gtk.ApplicationWindow;
+import org.gnome.gtk.Label;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure the time to first window: start a Gtk application in a new JVM,
+ * and quit as soon as the first window is mapped. Every fork measures one
+ * cold start, so this includes loading the Java-GI classes, loading the
+ * native libraries and resolving the GTypes of the registered classes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class StartupBenchmark {
+
+    @Benchmark
+    public int timeToFirstWindow() {
+        var app = new Application("io.github.jwharm.javagi.benchmark.Startup",
+                ApplicationFlags.NON_UNIQUE);
+        app.onActivate(() -> {
+            var window = new ApplicationWindow(app);
+            window.setChild(new Label("Hello"));
+            window.onMap(app::quit);
+            window.present();
+        });
+        return app.run(null);
+    }
+}
@@ -20,12 +20,14 @@
 package io.github.jwharm.javagi.gtk.types;
 
 import io.github.jwharm.javagi.base.Proxy;
+import io.github.jwharm.javagi.gobject.InstanceCache;
 import io.github.jwharm.javagi.gtk.annotations.GtkChild;
 import io.github.jwharm.javagi.gtk.annotations.GtkTemplate;
 import io.github.jwharm.javagi.gtk.util.BuilderJavaScope;
 import io.github.jwharm.javagi.gobject.types.Overrides;
 import io.github.jwharm.javagi.gobject.types.Properties;
 import io.github.jwharm.javagi.gobject.types.Signals;
+import io.github.jwharm.javagi.gobject.types.TypeRegistration;
 
 import io.github.jwharm.javagi.interop.Interop;
 import org.gnome.glib.GLib;
@@ -36,6 +38,8 @@ import org.gnome.gobject.TypeFlags;
 import org.gnome.gtk.Widget;
 
 import java.lang.foreign.*;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Set;
@@ -54,6 +58,10 @@ import static io.github.jwharm.javagi.Constants.LOG_DOMAIN;
  */
 public class Types {
 
+    // Function descriptor of GObjectClass.dispose
+    private static final FunctionDescriptor DISPOSE =
+            FunctionDescriptor.ofVoid(ValueLayout.ADDRESS);
+
     /**
      * Get the {@code name} parameter of the {@code GtkTemplate} annotation, or
      * if it is not defined, fallback to
@@ -173,6 +181,58 @@ public class Types {
         return size + s;
     }
 
+    /*
+     * A @GtkChild-annotated field: the name of the template child, the offset
+     * of the struct field where GTK stores the child, and a VarHandle to set
+     * the Java field.
+     */
+    private record TemplateChild(String name, long offset, VarHandle field) {
+    }
+
+    /*
+     * Create the binding plan for the @GtkChild-annotated fields of a class.
+     * This is done once when the class is registered, so instance
+     * initialization does not need to scan the fields with reflection.
+     */
+    private static TemplateChild[] getTemplateChildren(Class<?> cls,
+                                                       MemoryLayout layout) {
+        // Unlike Field.set, Lookup.unreflectVarHandle checks that this
+        // module can read the module of the class
+        Module module = Types.class.getModule();
+        if (! module.canRead(cls.getModule()))
+            module.addReads(cls.getModule());
+
+        var lookup = MethodHandles.lookup();
+        var children = new ArrayList<TemplateChild>();
+        for (Field field : cls.getDeclaredFields()) {
+            if (! field.isAnnotationPresent(GtkChild.class))
+                continue;
+
+            String name = getChildName(field);
+
+            // Only fields that contain a pointer can hold a template child
+            if (! Proxy.class.isAssignableFrom(field.getType())) {
+                GLib.log(LOG_DOMAIN, LogLevelFlags.LEVEL_CRITICAL,
+                        "Cannot bind template child %s to field %s of type %s in class %s\n",
+                        name, field.getName(), field.getType().getSimpleName(),
+                        cls.getName());
+                continue;
+            }
+
+            try {
+                var path = MemoryLayout.PathElement.groupElement(name);
+                long offset = layout.byteOffset(path);
+                VarHandle handle = lookup.unreflectVarHandle(field);
+                children.add(new TemplateChild(name, offset, handle));
+            } catch (IllegalAccessException e) {
+                GLib.log(LOG_DOMAIN, LogLevelFlags.LEVEL_CRITICAL,
+                        "Cannot access field %s in class %s: %s\n",
+                        field.getName(), cls.getName(), e.getMessage());
+            }
+        }
+        return children.toArray(new TemplateChild[0]);
+    }
+
     /*
      * Return a lambda that will:
      * <ul>
@@ -185,7 +245,7 @@ public class Types {
      */
     private static <T extends Widget>
     Consumer<GObject.ObjectClass> getTemplateClassInit(Class<T> cls,
-                                                       MemoryLayout layout) {
+                                                       TemplateChild[] children) {
 
         var annotation = cls.getAnnotation(GtkTemplate.class);
         String ui = annotation.ui();
@@ -206,11 +266,10 @@ public class Types {
                  * directly.
                  */
                 try {
-                    var parent = GObject.ObjectClass.getMemoryLayout();
                     var func = Overrides.lookupVirtualMethodParent(
-                                    object.handle(), parent, "dispose");
-                    var desc = FunctionDescriptor.ofVoid(ValueLayout.ADDRESS);
-                    var downcall = Interop.downcallHandle(func, desc);
+                            object.handle(),
+                            GObject.ObjectClass.getMemoryLayout(), "dispose");
+                    var downcall = Interop.downcallHandle(func, DISPOSE);
                     downcall.invokeExact(object.handle());
                 } catch (Throwable _err) {
                     throw new AssertionError("Unexpected exception occurred: ", _err);
@@ -220,14 +279,8 @@ public class Types {
             // Install BuilderJavaScope to call Java signal handler methods
             widgetClass.setTemplateScope(BuilderJavaScope.newInstance());
 
-            for (Field field : cls.getDeclaredFields()) {
-                if (field.isAnnotationPresent(GtkChild.class)) {
-                    var name = getChildName(field);
-                    var path = MemoryLayout.PathElement.groupElement(name);
-                    var offset = layout.byteOffset(path);
-                    widgetClass.bindTemplateChildFull(name, false, offset);
-                }
-            }
+            for (TemplateChild child : children)
+                widgetClass.bindTemplateChildFull(child.name(), false, child.offset());
         };
     }
 
@@ -235,40 +288,39 @@ public class Types {
      * Return a lambda that will:
      * <ul>
      *   <li>call gtk_widget_init_template
-     *   <li>for all @GtkChild-annotated fields, get the template child object,
-     *       and assign it to the field.
+     *   <li>for all @GtkChild-annotated fields, read the template child from
+     *       the instance struct, and assign it to the field.
      * </ul>
      * The lambda will be run during instance initialization.
      */
     private static <T extends Widget>
-    Consumer<T> getTemplateInstanceInit(Class<T> cls) {
+    Consumer<T> getTemplateInstanceInit(Class<T> cls,
+                                        TemplateChild[] children,
+                                        MemoryLayout layout) {
 
+        long size = layout.byteSize();
         return (widget) -> {
             widget.initTemplate();
-            for (Field field : cls.getDeclaredFields()) {
-                if (field.isAnnotationPresent(GtkChild.class)) {
-                    try {
-                        setField(field, widget);
-                    } catch (Exception e) {
-                        GLib.log(LOG_DOMAIN, LogLevelFlags.LEVEL_CRITICAL,
-                                "Cannot get template child %s in class %s: %s\n",
-                                field.getName(), cls.getName(), e.getMessage());
-                    }
+
+            // gtk_widget_init_template has written the template children in
+            // the struct fields that were registered with
+            // gtk_widget_class_bind_template_child_full
+            MemorySegment instance = Interop.reinterpret(widget.handle(), size);
+            for (TemplateChild child : children) {
+                try {
+                    var address = instance.get(ValueLayout.ADDRESS, child.offset());
+                    Object object = MemorySegment.NULL.equals(address) ? null
+                            : InstanceCache.getForType(address, GObject::new, true);
+                    child.field().set(widget, object);
+                } catch (Exception e) {
+                    GLib.log(LOG_DOMAIN, LogLevelFlags.LEVEL_CRITICAL,
+                            "Cannot get template child %s in class %s: %s\n",
+                            child.name(), cls.getName(), e.getMessage());
                 }
             }
         };
     }
 
-    /*
-     * Assign the widget from the template to the field
-     */
-    private static void setField(Field field, Widget widget) throws Exception {
-        Type gtype = widget.readGClass().readGType();
-        String name = getChildName(field);
-        GObject child = widget.getTemplateChild(gtype, name);
-        field.set(widget, child);
-    }
-
     /**
      * Register a class as a Gtk composite template class.
      * <p>
@@ -280,20 +332,47 @@ public class Types {
      */
     private static <W extends Widget> Type registerTemplate(Class<W> cls) {
         try {
-            String name = getTemplateName(cls);
+            // Use the registration class that was generated by the annotation
+            // processor, if available
+            TypeRegistration<W> registration = getRegistration(cls);
+
+            String name = registration != null
+                    ? registration.typeName()
+                    : getTemplateName(cls);
             MemoryLayout instanceLayout = getTemplateInstanceLayout(cls, name);
             Class<?> parentClass = cls.getSuperclass();
             Type parentType = getGType(parentClass);
             MemoryLayout classLayout = getClassLayout(cls, name);
-            Function<MemorySegment, W> constructor = getAddressConstructor(cls);
-            Set<TypeFlags> flags = getTypeFlags(cls);
+            Function<MemorySegment, W> constructor = registration != null
+                    ? registration.constructor()
+                    : getAddressConstructor(cls);
+            Set<TypeFlags> flags = registration != null
+                    ? registration.typeFlags()
+                    : getTypeFlags(cls);
 
             // Chain template class init with user-defined class init function
-            var overridesInit = Overrides.overrideClassMethods(cls);
-            var propertiesInit = Properties.installProperties(cls);
-            var signalsInit = Signals.installSignals(cls);
-            var templateClassInit = getTemplateClassInit(cls, instanceLayout);
-            var userDefinedClassInit = getClassInit(cls);
+            Consumer<GObject.ObjectClass> overridesInit;
+            Consumer<GObject.ObjectClass> propertiesInit;
+            Consumer<GObject.ObjectClass> signalsInit;
+            Consumer<GObject.ObjectClass> userDefinedClassInit;
+            Consumer<W> userDefinedInit;
+            if (registration != null) {
+                overridesInit = registration.overridesMethods()
+                        ? Overrides.overrideClassMethods(cls)
+                        : null;
+                propertiesInit = Properties.installProperties(cls, registration.properties());
+                signalsInit = Signals.installSignals(registration.signals());
+                userDefinedClassInit = logExceptions(cls, registration.classInit(), "class init");
+                userDefinedInit = logExceptions(cls, registration.instanceInit(), "instance init");
+            } else {
+                overridesInit = Overrides.overrideClassMethods(cls);
+                propertiesInit = Properties.installProperties(cls);
+                signalsInit = Signals.installSignals(cls);
+                userDefinedClassInit = getClassInit(cls);
+                userDefinedInit = getInstanceInit(cls);
+            }
+            var templateChildren = getTemplateChildren(cls, instanceLayout);
+            var templateClassInit = getTemplateClassInit(cls, templateChildren);
 
             // Override virtual methods, install properties and signals, and
             // then install the template before running a user-defined class
@@ -304,8 +383,8 @@ public class Types {
             classInit = chain(classInit, userDefinedClassInit);
 
             // Chain template instance init with user-defined init function
-            Consumer<W> instanceInit = getTemplateInstanceInit(cls);
-            Consumer<W> userDefinedInit = getInstanceInit(cls);
+            Consumer<W> instanceInit =
+                    getTemplateInstanceInit(cls, templateChildren, instanceLayout);
             if (userDefinedInit != null)
                 instanceInit = instanceInit.andThen(userDefinedInit);
 
@@ -32,7 +32,6 @@ import io.github.jwharm.javagi.gtk.types.Types;
 import java.lang.foreign.MemorySegment;
 import java.lang.reflect.Method;
 import java.util.Set;
-import java.util.function.BooleanSupplier;
 
 import static io.github.jwharm.javagi.Constants.LOG_DOMAIN;
 
@@ -116,40 +115,20 @@ public final class BuilderJavaScope extends BuilderCScope
             Class<? extends GObject> cls = currentObject.getClass();
             Method method = getMethodForName(cls, function);
 
-            // Signal that returns boolean
-            if (method.getReturnType().equals(Boolean.TYPE)) {
-                return new JavaClosure((BooleanSupplier) () -> {
-                    try {
-                        return (boolean) method.invoke(currentObject);
-                    } catch (Exception e) {
-                        GLib.log(LOG_DOMAIN, LogLevelFlags.LEVEL_CRITICAL,
-                                "Cannot invoke method %s in class %s: %s\n",
-                                function,
-                                currentObject.getClass().getName(),
-                                e.getMessage());
-                        return false;
-                    }
-                });
-
-            // Signal that returns void
-            } else {
-                return new JavaClosure((Runnable) () -> {
-                    try {
-                        method.invoke(currentObject);
-                    } catch (Exception e) {
-                        GLib.log(LOG_DOMAIN, LogLevelFlags.LEVEL_CRITICAL,
-                                "Cannot invoke method %s in class %s: %s\n",
-                                function,
-                                currentObject.getClass().getName(),
-                                e.getMessage());
-                    }
-                });
-            }
+            // The method is compiled into a method handle once. The return
+            // value (if any) is written into the return value of the signal.
+            return new JavaClosure(currentObject, method);
         } catch (NoSuchMethodException e) {
             GLib.log(LOG_DOMAIN, LogLevelFlags.LEVEL_CRITICAL,
                     "Cannot find method %s in class %s\n",
                     function, currentObject.getClass().getName());
             return asParent().createClosure(builder, function, flags, object);
+        } catch (IllegalArgumentException e) {
+            GLib.log(LOG_DOMAIN, LogLevelFlags.LEVEL_CRITICAL,
+                    "Cannot access method %s in class %s: %s\n",
+                    function, currentObject.getClass().getName(),
+                    e.getMessage());
+            return asParent().createClosure(builder, function, flags, object);
         }
     }
 
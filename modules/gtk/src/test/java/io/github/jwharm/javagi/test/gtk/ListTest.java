@@ -1,6 +1,7 @@
 package io.github.jwharm.javagi.test.gtk;
 
 import org.gnome.glib.List;
+import org.gnome.glib.ListSnapshot;
 import org.gnome.gtk.Gtk;
 import org.gnome.gtk.Window;
 import org.gnome.gtk.WindowGroup;
@@ -8,8 +9,11 @@ import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
 import java.util.ListIterator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.StreamSupport;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -64,4 +68,37 @@ public class ListTest {
         assertEquals(0, emptyList.size());
         assertTrue(emptyList.isEmpty());
     }
+
+    @Test
+    public void testSnapshot() {
+        Gtk.init();
+
+        ArrayList<Window> input = new ArrayList<>();
+        WindowGroup group = new WindowGroup();
+        for (int i = 0; i < 100; i++) {
+            Window win = new Window();
+            input.add(win);
+            group.addWindow(win);
+        }
+
+        List<Window> glist = group.listWindows();
+        ListSnapshot<Window> snapshot = glist.snapshot();
+        assertEquals(glist.size(), snapshot.size());
+        assertEquals(glist.getFirst(), snapshot.getFirst());
+        assertEquals(glist.getLast(), snapshot.get(99));
+        assertSame(snapshot.get(42), snapshot.get(42));
+
+        // Addresses can be visited without constructing Java instances
+        LongAdder count = new LongAdder();
+        snapshot.forEachAddress(_ -> count.increment());
+        assertEquals(100, count.sum());
+
+        // Parallel stream
+        assertEquals(100, snapshot.parallelStream().filter(input::contains).count());
+        assertEquals(100, StreamSupport.longStream(snapshot.addressSpliterator(), true)
+                .filter(a -> a != 0).count());
+
+        // Empty list
+        assertTrue(new WindowGroup().listWindows().snapshot().isEmpty());
+    }
 }
@@ -20,6 +20,9 @@
 package io.github.jwharm.javagi.test.gtk;
 
 import io.github.jwharm.javagi.base.GErrorException;
+import io.github.jwharm.javagi.gobject.annotations.ClassInit;
+import io.github.jwharm.javagi.gobject.annotations.InstanceInit;
+import io.github.jwharm.javagi.gobject.types.TypeRegistration;
 import io.github.jwharm.javagi.gtk.annotations.GtkChild;
 import io.github.jwharm.javagi.gtk.annotations.GtkTemplate;
 import io.github.jwharm.javagi.gtk.types.Types;
@@ -61,6 +64,11 @@ public class TemplateChildTest {
             // Check that the label field is set to the value from the ui file
             assertEquals(tw.label.getLabel(), "Test Label");
 
+            // Exceptions from the class and instance initializers are
+            // logged, and do not abort class or instance initialization
+            assertTrue(TestWindow.classInitHasRun);
+            assertTrue(tw.instanceInitHasRun);
+
             // Check that the "namedLabel" field (referring to the "label"
             // element in the XML using the annotation parameter "name", is set
             // to the expected value
@@ -72,6 +80,18 @@ public class TemplateChildTest {
         app.run(null);
     }
 
+    /**
+     * The annotation processor generates a registration class for a
+     * {@code @GtkTemplate} class
+     */
+    @Test
+    public void testGeneratedRegistration() {
+        TypeRegistration<TestWindow> registration =
+                io.github.jwharm.javagi.gobject.types.Types.getRegistration(TestWindow.class);
+        assertNotNull(registration);
+        assertEquals("ChildTestWindow", registration.typeName());
+    }
+
     @GtkTemplate(name="ChildTestWindow", ui="/io/github/jwharm/javagi/gtk/TemplateChildTest.ui")
     public static class TestWindow extends ApplicationWindow {
         public static Type gtype = Types.register(TestWindow.class);
@@ -84,5 +104,20 @@ public class TemplateChildTest {
 
         @GtkChild(name="label2")
         public Label namedLabel;
+
+        public static boolean classInitHasRun = false;
+        public boolean instanceInitHasRun = false;
+
+        @ClassInit
+        public static void classInit(GObject.ObjectClass typeClass) {
+            classInitHasRun = true;
+            throw new IllegalStateException("Expected exception in class init");
+        }
+
+        @InstanceInit
+        public void init() {
+            instanceInitHasRun = true;
+            throw new IllegalStateException("Expected exception in instance init");
+        }
     }
 }
@@ -0,0 +1,663 @@
+/* Java-GI - Java language bindings for GObject-Introspection-based libraries
+ * Copyright (C) 2022-2024 Jan-Willem Harmannij
+ *
+ * SPDX-License-Identifier: LGPL-2.1-or-later
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.github.jwharm.javagi.processor;
+
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * Annotation processor that generates an implementation of
+ * {@code io.github.jwharm.javagi.gobject.types.TypeRegistration} for every
+ * class that is annotated with {@code @RegisteredType} or
+ * {@code @GtkTemplate}.
+ * <p>
+ * The generated class contains the type name, type flags, memory address
+ * constructor, class and instance initializers, properties and signals of
+ * the registered class. At runtime, {@code Types.register()} uses the
+ * generated class instead of discovering the annotated members of the class
+ * with reflection.
+ * <p>
+ * The processor refers to the Java-GI annotations and classes by name, so it
+ * does not depend on the Java-GI modules.
+ */
+@SupportedAnnotationTypes({
+        RegisteredTypeProcessor.REGISTERED_TYPE,
+        RegisteredTypeProcessor.GTK_TEMPLATE
+})
+public class RegisteredTypeProcessor extends AbstractProcessor {
+
+    static final String REGISTERED_TYPE = "io.github.jwharm.javagi.gobject.annotations.RegisteredType";
+    static final String GTK_TEMPLATE = "io.github.jwharm.javagi.gtk.annotations.GtkTemplate";
+
+    private static final String ANNOTATIONS = "io.github.jwharm.javagi.gobject.annotations.";
+    private static final String PROPERTY = ANNOTATIONS + "Property";
+    private static final String SIGNAL = ANNOTATIONS + "Signal";
+    private static final String CLASS_INIT = ANNOTATIONS + "ClassInit";
+    private static final String INSTANCE_INIT = ANNOTATIONS + "InstanceInit";
+    private static final String LAYOUT = ANNOTATIONS + "Layout";
+
+    private static final String PROXY = "io.github.jwharm.javagi.base.Proxy";
+    private static final String TYPE_CLASS = "org.gnome.gobject.TypeClass";
+    private static final String MEMORY_SEGMENT = "java.lang.foreign.MemorySegment";
+
+    private Elements elements;
+    private Types types;
+    private Messager messager;
+    private final Set<String> generated = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        elements = processingEnv.getElementUtils();
+        types = processingEnv.getTypeUtils();
+        messager = processingEnv.getMessager();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations,
+                           RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            for (TypeElement cls : ElementFilter.typesIn(
+                    roundEnv.getElementsAnnotatedWith(annotation))) {
+                String name = elements.getBinaryName(cls).toString();
+                if (generated.add(name))
+                    generate(cls);
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Generate the registration class for a registered class. Classes that
+     * cannot be registered without reflection are skipped with a warning:
+     * they are registered with reflection at runtime.
+     */
+    private void generate(TypeElement cls) {
+        if (cls.getKind() != ElementKind.CLASS) {
+            warning(cls, "Only classes can be registered as a GType");
+            return;
+        }
+        if (cls.getModifiers().contains(Modifier.ABSTRACT)) {
+            note(cls, "Abstract class %s is registered with reflection", cls);
+            return;
+        }
+        if (! isAccessible(cls)) {
+            warning(cls, "Class %s is not accessible from its package, it will be registered with reflection", cls);
+            return;
+        }
+        if (! hasAddressConstructor(cls)) {
+            warning(cls, "Class %s has no public constructor with a MemorySegment parameter", cls);
+            return;
+        }
+
+        String packageName = elements.getPackageOf(cls).getQualifiedName().toString();
+        String binaryName = elements.getBinaryName(cls).toString();
+        // The '$' separators of a nested class are doubled, so the name
+        // cannot collide with the registration of another class
+        String simpleName = (packageName.isEmpty() ? binaryName
+                : binaryName.substring(packageName.length() + 1)).replace("$", "$$")
+                + "Registration";
+        String className = name(cls.asType());
+
+        var out = new StringBuilder();
+        if (! packageName.isEmpty())
+            out.append("package ").append(packageName).append(";\n\n");
+
+        out.append("""
+                import io.github.jwharm.javagi.gobject.types.Properties;
+                import io.github.jwharm.javagi.gobject.types.Signals;
+                import io.github.jwharm.javagi.gobject.types.TypeRegistration;
+                import org.gnome.gobject.GObject;
+                import org.gnome.gobject.ParamFlags;
+                import org.gnome.gobject.SignalFlags;
+                import org.gnome.gobject.TypeFlags;
+
+                import java.lang.foreign.MemoryLayout;
+                import java.lang.foreign.MemorySegment;
+                import java.lang.invoke.MethodHandles;
+                import java.lang.invoke.MethodType;
+                import java.util.List;
+                import java.util.Set;
+                import java.util.function.Consumer;
+                import java.util.function.Function;
+
+                """);
+
+        out.append("/**\n * Registration of {@link ").append(className)
+                .append("}, generated by the Java-GI annotation processor.\n */\n");
+        out.append("@javax.annotation.processing.Generated(\"")
+                .append(getClass().getName()).append("\")\n");
+        out.append("public final class ").append(simpleName)
+                .append(" implements TypeRegistration<").append(className).append("> {\n\n");
+
+        String properties = properties(cls);
+        String signals = signals(cls);
+        if (properties != null || signals != null) {
+            if (properties != null)
+                out.append("    private static final List<Properties.PropertyDefinition> PROPERTIES;\n");
+            if (signals != null)
+                out.append("    private static final List<Signals.SignalDefinition> SIGNALS;\n");
+            out.append("\n    static {\n");
+            if (properties != null)
+                out.append(properties);
+            if (signals != null)
+                out.append(signals);
+            out.append("    }\n\n");
+        }
+
+        out.append("    public ").append(simpleName).append("() {\n    }\n\n");
+
+        // Type name
+        out.append("    @Override\n    public String typeName() {\n        return ")
+                .append(literal(typeName(cls))).append(";\n    }\n\n");
+
+        // Type flags
+        out.append("    @Override\n    public Set<TypeFlags> typeFlags() {\n        return ")
+                .append(cls.getModifiers().contains(Modifier.FINAL)
+                        ? "Set.of(TypeFlags.FINAL)" : "Set.of()")
+                .append(";\n    }\n\n");
+
+        // Memory address constructor
+        out.append("    @Override\n    public Function<MemorySegment, ").append(className)
+                .append("> constructor() {\n        return ").append(className)
+                .append("::new;\n    }\n");
+
+        // Instance memory layout
+        ExecutableElement layout = findLayoutMethod(cls);
+        if (layout != null) {
+            out.append("\n    @Override\n    public MemoryLayout instanceLayout() {\n        return ")
+                    .append(className).append(".").append(layout.getSimpleName())
+                    .append("();\n    }\n");
+        }
+
+        // Type class
+        TypeElement typeClass = findTypeClass(cls);
+        if (typeClass != null) {
+            out.append("\n    @Override\n    public Class<?> typeClass() {\n        return ")
+                    .append(name(typeClass.asType())).append(".class;\n    }\n");
+        }
+
+        // Class initializer
+        ExecutableElement classInit = findInitializer(cls, CLASS_INIT, true);
+        if (classInit != null) {
+            String param = name(classInit.getParameters().getFirst().asType());
+            out.append("\n    @Override\n    public <TC extends GObject.ObjectClass> Consumer<TC> classInit() {\n")
+                    .append("        return typeClass -> ")
+                    .append(call(className + "." + classInit.getSimpleName()
+                            + "((" + param + ") typeClass)", classInit))
+                    .append(";\n    }\n");
+        }
+
+        // Instance initializer
+        ExecutableElement instanceInit = findInitializer(cls, INSTANCE_INIT, false);
+        if (instanceInit != null) {
+            out.append("\n    @Override\n    public Consumer<").append(className)
+                    .append("> instanceInit() {\n        return instance -> ")
+                    .append(call("instance." + instanceInit.getSimpleName() + "()", instanceInit))
+                    .append(";\n    }\n");
+        }
+
+        if (properties != null)
+            out.append("""
+
+                        @Override
+                        public List<Properties.PropertyDefinition> properties() {
+                            return PROPERTIES;
+                        }
+                    """);
+
+        if (signals != null)
+            out.append("""
+
+                        @Override
+                        public List<Signals.SignalDefinition> signals() {
+                            return SIGNALS;
+                        }
+                    """);
+
+        // Virtual method overrides are registered with reflection, but only
+        // when the class actually overrides a method.
+        if (! overridesMethods(cls))
+            out.append("""
+
+                        @Override
+                        public boolean overridesMethods() {
+                            return false;
+                        }
+                    """);
+
+        out.append("}\n");
+
+        String qualifiedName = packageName.isEmpty() ? simpleName
+                : packageName + "." + simpleName;
+        try (Writer writer = processingEnv.getFiler()
+                .createSourceFile(qualifiedName, cls).openWriter()) {
+            writer.write(out.toString());
+        } catch (IOException e) {
+            messager.printMessage(Diagnostic.Kind.ERROR,
+                    "Cannot write " + qualifiedName + ": " + e.getMessage(), cls);
+        }
+    }
+
+    /*
+     * The type name, computed in the same way as Types.getName() and
+     * Types.getTemplateName() at runtime.
+     */
+    private String typeName(TypeElement cls) {
+        String templateName = stringValue(cls, GTK_TEMPLATE, "name");
+        if (templateName != null && ! templateName.isEmpty())
+            return templateName;
+
+        String name = stringValue(cls, REGISTERED_TYPE, "name");
+        if (name == null || name.isEmpty())
+            name = elements.getBinaryName(cls).toString();
+        return name.replaceAll("[^a-zA-Z]", "_");
+    }
+
+    /*
+     * Generate the static initializer code for the property definitions, or
+     * return null when the class has no properties.
+     */
+    private String properties(TypeElement cls) {
+        // Properties by name, in the order in which they are found
+        Map<String, String[]> definitions = new LinkedHashMap<>();
+        String className = name(cls.asType());
+
+        for (ExecutableElement method : ElementFilter.methodsIn(cls.getEnclosedElements())) {
+            AnnotationMirror property = annotation(method, PROPERTY);
+            if (property == null)
+                continue;
+
+            if (method.getModifiers().contains(Modifier.PRIVATE)) {
+                warning(method, "Property method %s is private", method.getSimpleName());
+                continue;
+            }
+
+            boolean isSetter = method.getReturnType().getKind() == TypeKind.VOID;
+            int paramCount = method.getParameters().size();
+            if (isSetter ? paramCount != 1 : paramCount != 0) {
+                warning(method, "Invalid property getter/setter %s", method.getSimpleName());
+                continue;
+            }
+
+            String name = (String) value(property, "name");
+            if (name.isEmpty()) {
+                String methodName = method.getSimpleName().toString();
+                if (! (methodName.startsWith("get") || methodName.startsWith("set"))) {
+                    messager.printMessage(Diagnostic.Kind.ERROR,
+                            "Cannot infer property name from method named " + methodName,
+                            method);
+                    continue;
+                }
+                name = methodName.substring(3)
+                        .replaceAll("([a-z0-9])([A-Z])", "$1-$2")
+                        .toLowerCase().replaceAll("\\.", "");
+            }
+
+            boolean isStatic = method.getModifiers().contains(Modifier.STATIC);
+            String handle = isSetter
+                    ? "lookup.%s(%s.class, %s, MethodType.methodType(void.class, %s.class))"
+                            .formatted(isStatic ? "findStatic" : "findVirtual",
+                                    className, literal(method.getSimpleName().toString()),
+                                    name(method.getParameters().getFirst().asType()))
+                    : "lookup.%s(%s.class, %s, MethodType.methodType(%s.class))"
+                            .formatted(isStatic ? "findStatic" : "findVirtual",
+                                    className, literal(method.getSimpleName().toString()),
+                                    name(method.getReturnType()));
+
+            // A static getter or setter ignores the instance
+            if (isStatic)
+                handle = "MethodHandles.dropArguments(%s, 0, %s.class)"
+                        .formatted(handle, className);
+
+            /*
+             * The flags are read from the first method that is found for the
+             * property. The type can be set on either the getter or setter.
+             */
+            String type = name((TypeMirror) value(property, "type"));
+            String[] existing = definitions.get(name);
+            if (existing == null) {
+                definitions.put(name, new String[] {
+                        type,
+                        propertyFlags(property),
+                        isSetter ? "null" : handle,
+                        isSetter ? handle : "null"});
+            } else {
+                if (existing[0].equals("org.gnome.gobject.ParamSpec"))
+                    existing[0] = type;
+                if (isSetter)
+                    existing[3] = handle;
+                else
+                    existing[2] = handle;
+            }
+        }
+
+        if (definitions.isEmpty())
+            return null;
+
+        var out = new StringBuilder();
+        out.append("        var lookup = MethodHandles.lookup();\n");
+        out.append("        try {\n");
+        out.append("            PROPERTIES = List.of(");
+        String separator = "\n";
+        for (var entry : definitions.entrySet()) {
+            String[] def = entry.getValue();
+            out.append(separator)
+                    .append("                    new Properties.PropertyDefinition(\n")
+                    .append("                            ").append(literal(entry.getKey())).append(",\n")
+                    .append("                            ").append(def[0]).append(".class,\n")
+                    .append("                            ").append(def[1]).append(",\n")
+                    .append("                            ").append(def[2]).append(",\n")
+                    .append("                            ").append(def[3]).append(")");
+            separator = ",\n";
+        }
+        out.append(");\n");
+        out.append("        } catch (ReflectiveOperationException e) {\n");
+        out.append("            throw new ExceptionInInitializerError(e);\n");
+        out.append("        }\n");
+        return out.toString();
+    }
+
+    /*
+     * Generate the static initializer code for the signal definitions, or
+     * return null when the class has no signals.
+     */
+    private String signals(TypeElement cls) {
+        var definitions = new ArrayList<String>();
+
+        for (TypeElement iface : ElementFilter.typesIn(cls.getEnclosedElements())) {
+            if (iface.getKind() != ElementKind.INTERFACE)
+                continue;
+
+            AnnotationMirror signal = annotation(iface, SIGNAL);
+            if (signal == null)
+                continue;
+
+            // Find the single abstract method of the functional interface
+            ExecutableElement sam = null;
+            for (ExecutableElement method : ElementFilter.methodsIn(iface.getEnclosedElements())) {
+                if (method.getModifiers().contains(Modifier.ABSTRACT)) {
+                    if (sam != null) {
+                        sam = null;
+                        break;
+                    }
+                    sam = method;
+                }
+            }
+            if (sam == null) {
+                messager.printMessage(Diagnostic.Kind.ERROR,
+                        "Signal declaration " + iface.getSimpleName()
+                                + " is not a functional interface", iface);
+                continue;
+            }
+
+            String name = (String) value(signal, "name");
+            if (name.isBlank())
+                name = iface.getSimpleName().toString()
+                        .replaceAll("([a-z0-9])([A-Z])", "$1-$2")
+                        .toLowerCase().replaceAll("\\.", "");
+
+            var paramTypes = new StringJoiner(", ", "List.of(", ")");
+            for (VariableElement param : sam.getParameters())
+                paramTypes.add(name(param.asType()) + ".class");
+
+            definitions.add(("                new Signals.SignalDefinition(\n"
+                    + "                        %s,\n"
+                    + "                        %s,\n"
+                    + "                        %s.class,\n"
+                    + "                        %s)")
+                    .formatted(literal(name), signalFlags(signal),
+                            name(sam.getReturnType()), paramTypes));
+        }
+
+        if (definitions.isEmpty())
+            return null;
+
+        return "        SIGNALS = List.of(\n"
+                + String.join(",\n", definitions)
+                + ");\n";
+    }
+
+    /*
+     * Generate an expression with the ParamFlags of a @Property annotation.
+     */
+    private String propertyFlags(AnnotationMirror property) {
+        var flags = new StringJoiner(", ", "Set.of(", ")");
+        if ((Boolean) value(property, "readable"))       flags.add("ParamFlags.READABLE");
+        if ((Boolean) value(property, "writable"))       flags.add("ParamFlags.WRITABLE");
+        if ((Boolean) value(property, "construct"))      flags.add("ParamFlags.CONSTRUCT");
+        if ((Boolean) value(property, "constructOnly"))  flags.add("ParamFlags.CONSTRUCT_ONLY");
+        if ((Boolean) value(property, "explicitNotify")) flags.add("ParamFlags.EXPLICIT_NOTIFY");
+        if ((Boolean) value(property, "deprecated"))     flags.add("ParamFlags.DEPRECATED");
+        return flags.toString();
+    }
+
+    /*
+     * Generate an expression with the SignalFlags of a @Signal annotation.
+     */
+    private String signalFlags(AnnotationMirror signal) {
+        var flags = new StringJoiner(", ", "Set.of(", ")");
+        if ((Boolean) value(signal, "action"))      flags.add("SignalFlags.ACTION");
+        if ((Boolean) value(signal, "deprecated"))  flags.add("SignalFlags.DEPRECATED");
+        if ((Boolean) value(signal, "detailed"))    flags.add("SignalFlags.DETAILED");
+        if ((Boolean) value(signal, "mustCollect")) flags.add("SignalFlags.MUST_COLLECT");
+        if ((Boolean) value(signal, "noHooks"))     flags.add("SignalFlags.NO_HOOKS");
+        if ((Boolean) value(signal, "noRecurse"))   flags.add("SignalFlags.NO_RECURSE");
+        if ((Boolean) value(signal, "runCleanup"))  flags.add("SignalFlags.RUN_CLEANUP");
+        if ((Boolean) value(signal, "runFirst"))    flags.add("SignalFlags.RUN_FIRST");
+        if ((Boolean) value(signal, "runLast"))     flags.add("SignalFlags.RUN_LAST");
+        return flags.toString();
+    }
+
+    /*
+     * Find the @ClassInit (static, one parameter) or @InstanceInit (no
+     * parameters) method.
+     */
+    private ExecutableElement findInitializer(TypeElement cls,
+                                              String annotationName,
+                                              boolean isStatic) {
+        for (ExecutableElement method : ElementFilter.methodsIn(cls.getEnclosedElements())) {
+            if (annotation(method, annotationName) == null)
+                continue;
+
+            if (method.getModifiers().contains(Modifier.PRIVATE)
+                    || method.getModifiers().contains(Modifier.STATIC) != isStatic
+                    || method.getParameters().size() != (isStatic ? 1 : 0)) {
+                warning(method, "Initializer %s does not have the expected signature",
+                        method.getSimpleName());
+                return null;
+            }
+            return method;
+        }
+        return null;
+    }
+
+    /*
+     * Find a method that is annotated with @Layout, or else, a static method
+     * getMemoryLayout().
+     */
+    private ExecutableElement findLayoutMethod(TypeElement cls) {
+        List<ExecutableElement> methods = ElementFilter.methodsIn(cls.getEnclosedElements());
+        for (ExecutableElement method : methods)
+            if (annotation(method, LAYOUT) != null)
+                return isLayoutMethod(method) ? method : null;
+        for (ExecutableElement method : methods)
+            if (method.getSimpleName().contentEquals("getMemoryLayout")
+                    && isLayoutMethod(method))
+                return method;
+        return null;
+    }
+
+    private boolean isLayoutMethod(ExecutableElement method) {
+        return method.getModifiers().contains(Modifier.STATIC)
+                && ! method.getModifiers().contains(Modifier.PRIVATE)
+                && method.getParameters().isEmpty()
+                && isSubtype(method.getReturnType(), "java.lang.foreign.MemoryLayout");
+    }
+
+    /*
+     * Find the inner TypeClass class, or the inner TypeClass class of the
+     * superclass.
+     */
+    private TypeElement findTypeClass(TypeElement cls) {
+        TypeElement typeClass = findDeclaredTypeClass(cls);
+        if (typeClass == null && cls.getSuperclass().getKind() == TypeKind.DECLARED)
+            typeClass = findDeclaredTypeClass(
+                    (TypeElement) types.asElement(cls.getSuperclass()));
+        return typeClass;
+    }
+
+    private TypeElement findDeclaredTypeClass(TypeElement cls) {
+        for (TypeElement inner : ElementFilter.typesIn(cls.getEnclosedElements()))
+            if (isSubtype(inner.asType(), TYPE_CLASS) && isAccessible(inner))
+                return inner;
+        return null;
+    }
+
+    /*
+     * Check whether the class overrides a method of a superclass that is
+     * part of the Java-GI bindings (a virtual method).
+     */
+    private boolean overridesMethods(TypeElement cls) {
+        for (ExecutableElement method : ElementFilter.methodsIn(cls.getEnclosedElements())) {
+            if (method.getModifiers().contains(Modifier.STATIC))
+                continue;
+
+            TypeMirror superclass = cls.getSuperclass();
+            while (superclass.getKind() == TypeKind.DECLARED) {
+                var parent = (TypeElement) types.asElement(superclass);
+                for (ExecutableElement candidate : ElementFilter.methodsIn(parent.getEnclosedElements())) {
+                    if (candidate.getSimpleName().equals(method.getSimpleName())
+                            && elements.overrides(method, candidate, cls)
+                            && isSubtype(parent.asType(), PROXY))
+                        return true;
+                }
+                superclass = parent.getSuperclass();
+            }
+        }
+        return false;
+    }
+
+    private boolean hasAddressConstructor(TypeElement cls) {
+        for (ExecutableElement ctor : ElementFilter.constructorsIn(cls.getEnclosedElements()))
+            if (ctor.getModifiers().contains(Modifier.PUBLIC)
+                    && ctor.getParameters().size() == 1
+                    && name(ctor.getParameters().getFirst().asType()).equals(MEMORY_SEGMENT))
+                return true;
+        return false;
+    }
+
+    /*
+     * Check that the class, and all enclosing classes, are accessible from
+     * other classes in the package.
+     */
+    private boolean isAccessible(TypeElement cls) {
+        Element element = cls;
+        while (element instanceof TypeElement type) {
+            if (type.getModifiers().contains(Modifier.PRIVATE))
+                return false;
+            if (type.getNestingKind().isNested()
+                    && ! type.getModifiers().contains(Modifier.STATIC)
+                    && type.getKind() == ElementKind.CLASS)
+                return false;
+            element = type.getEnclosingElement();
+        }
+        return true;
+    }
+
+    private boolean isSubtype(TypeMirror type, String superTypeName) {
+        TypeElement superType = elements.getTypeElement(superTypeName);
+        if (superType == null)
+            return false;
+        return types.isSubtype(types.erasure(type), types.erasure(superType.asType()));
+    }
+
+    /*
+     * Wrap a method call in a block that rethrows checked exceptions.
+     */
+    private static String call(String call, ExecutableElement method) {
+        if (method.getThrownTypes().isEmpty())
+            return call;
+        return """
+                {
+                            try {
+                                %s;
+                            } catch (RuntimeException | Error e) {
+                                throw e;
+                            } catch (Exception e) {
+                                throw new RuntimeException(e);
+                            }
+                        }""".formatted(call);
+    }
+
+    // The erased, canonical name of a type
+    private String name(TypeMirror type) {
+        return types.erasure(type).toString();
+    }
+
+    private AnnotationMirror annotation(Element element, String annotationName) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            var type = (TypeElement) mirror.getAnnotationType().asElement();
+            if (type.getQualifiedName().contentEquals(annotationName))
+                return mirror;
+        }
+        return null;
+    }
+
+    private Object value(AnnotationMirror annotation, String name) {
+        for (var entry : elements.getElementValuesWithDefaults(annotation).entrySet())
+            if (entry.getKey().getSimpleName().contentEquals(name))
+                return entry.getValue().getValue();
+        throw new IllegalArgumentException(name);
+    }
+
+    private String stringValue(Element element, String annotationName, String name) {
+        AnnotationMirror annotation = annotation(element, annotationName);
+        return annotation == null ? null : (String) value(annotation, name);
+    }
+
+    private String literal(String value) {
+        return elements.getConstantExpression(value);
+    }
+
+    private void warning(Element element, String format, Object... args) {
+        messager.printMessage(Diagnostic.Kind.WARNING, format.formatted(args), element);
+    }
+
+    private void note(Element element, String format, Object... args) {
+        messager.printMessage(Diagnostic.Kind.NOTE, format.formatted(args), element);
+    }
+}